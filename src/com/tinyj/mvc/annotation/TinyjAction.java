@@ -0,0 +1,50 @@
+package com.tinyj.mvc.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.tinyj.mvc.model.ActionScope;
+
+
+/**
+ * marks an Action subclass as an mvc action (or an ajax action), the same as an &lt;action&gt;
+ * element in the tinyj-mvc-config.xml or an &lt;ajax-action&gt; element in the 
+ * tinyj-ajax-config.xml.
+ * 
+ * for ex:
+ * 
+ * <pre>
+ * &#64;TinyjAction(path="bla/foo", forwards={
+ *     &#64;TinyjForward(name="valid", path="bla/bar.jsp", redirect=true),
+ *     &#64;TinyjForward(name="invalid", path="bla/foo.jsp")})
+ * public class MyAction extends Action
+ * </pre>
+ * 
+ * the annotated class must be a public, non abstract class with a public 
+ * (String, MVCContext) constructor.
+ * 
+ * @author asaf.peeri
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface TinyjAction
+{
+	String path();
+	
+	TinyjForward[] forwards() default {};
+	
+	/**
+	 * true if this is an ajax action (served by the ajax controller)
+	 */
+	boolean ajax() default false;
+	
+	/**
+	 * the scope of the action. a singleton action must extend StatelessAction
+	 */
+	ActionScope scope() default ActionScope.request;
+}
@@ -0,0 +1,34 @@
+package com.tinyj.mvc.annotation;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+
+/**
+ * describes a forward of an action (or a global forward), the same as a &lt;forward&gt;
+ * element in the tinyj-mvc-config.xml
+ * 
+ * @author asaf.peeri
+ *
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target({})
+public @interface TinyjForward
+{
+	String name();
+	
+	String path() default "";
+	
+	boolean redirect() default false;
+	
+	boolean backToCaller() default false;
+	
+	boolean avoidHistorySave() default false;
+	
+	boolean customURL() default false;
+	
+	String action() default "";
+	
+	String[] preload() default {};
+}
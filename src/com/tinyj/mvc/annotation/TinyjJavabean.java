@@ -0,0 +1,27 @@
+package com.tinyj.mvc.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.tinyj.mvc.model.JavaBeanScope;
+
+
+/**
+ * marks a class as a javabean used by the web app, the same as a &lt;javabean&gt;
+ * element in the tinyj-mvc-config.xml
+ * 
+ * @author asaf.peeri
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface TinyjJavabean
+{
+	String name();
+	
+	JavaBeanScope scope() default JavaBeanScope.request;
+}
@@ -0,0 +1,25 @@
+package com.tinyj.mvc.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+
+/**
+ * holds the global parts of the mvc configuration: the global forwards and the 
+ * page-history-stack size. should be put on a single class of the web app.
+ * 
+ * @author asaf.peeri
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface TinyjMVCConfig
+{
+	TinyjForward[] globalForwards() default {};
+	
+	int pageHistoryStackSize() default 10;
+}
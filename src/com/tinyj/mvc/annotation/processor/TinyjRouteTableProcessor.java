@@ -0,0 +1,424 @@
+package com.tinyj.mvc.annotation.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import com.tinyj.mvc.annotation.TinyjAction;
+import com.tinyj.mvc.annotation.TinyjForward;
+import com.tinyj.mvc.annotation.TinyjJavabean;
+import com.tinyj.mvc.annotation.TinyjMVCConfig;
+import com.tinyj.mvc.model.ActionScope;
+
+
+/**
+ * an annotation processor which generates, at compile time, an IMVCRouteTable implementation
+ * out of the @TinyjAction, @TinyjJavabean and @TinyjMVCConfig annotations found in the 
+ * compiled sources.
+ * 
+ * the generated route table registers every action, ajax action, forward and javabean mapping 
+ * with plain <i>new</i> calls, including a factory for every action which calls the action 
+ * constructor directly. therefore, when it is used, the startup makes no DOM or XPath work 
+ * and no Class.forName lookups for the actions.
+ * 
+ * the generated class is registered under META-INF/services so the MVCConfigurationManager 
+ * finds it at startup. its name defaults to com.tinyj.mvc.generated.TinyjRouteTable and can be
+ * changed using the <i>tinyj.routeTable</i> processor option (-Atinyj.routeTable=...).
+ * 
+ * @author asaf.peeri
+ *
+ */
+@SupportedAnnotationTypes({"com.tinyj.mvc.annotation.TinyjAction", "com.tinyj.mvc.annotation.TinyjJavabean", "com.tinyj.mvc.annotation.TinyjMVCConfig"})
+@SupportedOptions(TinyjRouteTableProcessor.ROUTE_TABLE_OPTION_NAME)
+public class TinyjRouteTableProcessor extends AbstractProcessor
+{
+	public static final String ROUTE_TABLE_OPTION_NAME = "tinyj.routeTable";
+	public static final String DEFAULT_ROUTE_TABLE_CLASS_NAME = "com.tinyj.mvc.generated.TinyjRouteTable";
+	
+	private static final String ACTION_CLASS_NAME = "com.tinyj.mvc.model.Action";
+	private static final String STATELESS_ACTION_CLASS_NAME = "com.tinyj.mvc.model.StatelessAction";
+	private static final String MVC_CONTEXT_CLASS_NAME = "com.tinyj.mvc.controller.MVCContext";
+	private static final String ROUTE_TABLE_INTERFACE_NAME = "com.tinyj.mvc.config.IMVCRouteTable";
+	
+	private List<TypeElement> mActionElements = new ArrayList<TypeElement>();
+	private List<TypeElement> mJavabeanElements = new ArrayList<TypeElement>();
+	private TypeElement mMVCConfigElement;
+	private Set<String> mActionPaths = new HashSet<String>();
+	private Set<String> mAjaxActionPaths = new HashSet<String>();
+	private boolean mGenerated = false;
+	
+	
+	@Override
+	public SourceVersion getSupportedSourceVersion()
+	{
+		return SourceVersion.latestSupported();
+	}
+	
+	
+	@Override
+	public boolean process(Set<? extends TypeElement> aAnnotations, RoundEnvironment aRoundEnv)
+	{
+		for (Element elem : aRoundEnv.getElementsAnnotatedWith(TinyjAction.class))
+		{
+			if (checkActionElement(elem))
+			{
+				mActionElements.add((TypeElement)elem);
+			}
+		}
+		
+		for (Element elem : aRoundEnv.getElementsAnnotatedWith(TinyjJavabean.class))
+		{
+			if (checkInstantiableClass(elem, TinyjJavabean.class.getSimpleName()))
+			{
+				mJavabeanElements.add((TypeElement)elem);
+			}
+		}
+		
+		for (Element elem : aRoundEnv.getElementsAnnotatedWith(TinyjMVCConfig.class))
+		{
+			if (mMVCConfigElement != null)
+			{
+				error(elem, "@TinyjMVCConfig is already defined on " + mMVCConfigElement.getQualifiedName());
+				continue;
+			}
+			mMVCConfigElement = (TypeElement)elem;
+		}
+		
+		if (aRoundEnv.processingOver() && !mGenerated && !aRoundEnv.errorRaised())
+		{
+			mGenerated = true;
+			if (!mActionElements.isEmpty() || !mJavabeanElements.isEmpty() || mMVCConfigElement != null)
+			{
+				generateRouteTable();
+			}
+		}
+		
+		return true;
+	}
+	
+	
+	/**
+	 * checks that the element annotated with @TinyjAction is an instantiable Action class
+	 * with a public (String, MVCContext) constructor, and that its path is unique
+	 * 
+	 * @param aElement the annotated element
+	 * 
+	 * @return true if the element is a valid action
+	 */
+	protected boolean checkActionElement(Element aElement)
+	{
+		if (!checkInstantiableClass(aElement, TinyjAction.class.getSimpleName()))
+		{
+			return false;
+		}
+		
+		Types types = processingEnv.getTypeUtils();
+		Elements elements = processingEnv.getElementUtils();
+		TypeElement typeElem = (TypeElement)aElement;
+		
+		TypeElement actionTypeElem = elements.getTypeElement(ACTION_CLASS_NAME);
+		if (!types.isAssignable(typeElem.asType(), actionTypeElem.asType()))
+		{
+			error(aElement, "@TinyjAction class must extend " + ACTION_CLASS_NAME);
+			return false;
+		}
+		
+		boolean constructorFound = false;
+		for (ExecutableElement constructor : ElementFilter.constructorsIn(typeElem.getEnclosedElements()))
+		{
+			List<? extends VariableElement> params = constructor.getParameters();
+			if (constructor.getModifiers().contains(Modifier.PUBLIC) && params.size() == 2 
+				&& isType(params.get(0).asType(), String.class.getName()) 
+				&& isType(params.get(1).asType(), MVC_CONTEXT_CLASS_NAME))
+			{
+				constructorFound = true;
+				break;
+			}
+		}
+		if (!constructorFound)
+		{
+			error(aElement, "@TinyjAction class must have a public (String, MVCContext) constructor");
+			return false;
+		}
+		
+		TinyjAction actionAnnotation = aElement.getAnnotation(TinyjAction.class);
+		TypeElement statelessActionTypeElem = elements.getTypeElement(STATELESS_ACTION_CLASS_NAME);
+		if (actionAnnotation.scope() == ActionScope.singleton && !types.isAssignable(typeElem.asType(), statelessActionTypeElem.asType()))
+		{
+			error(aElement, "singleton @TinyjAction class must extend " + STATELESS_ACTION_CLASS_NAME);
+			return false;
+		}
+		
+		Set<String> paths = actionAnnotation.ajax() ? mAjaxActionPaths : mActionPaths;
+		if (!paths.add(actionAnnotation.path()))
+		{
+			error(aElement, "action path is already defined: " + actionAnnotation.path());
+			return false;
+		}
+		
+		return true;
+	}
+	
+	
+	/**
+	 * checks that the annotated element is a public, non abstract, top level or static 
+	 * nested class
+	 */
+	protected boolean checkInstantiableClass(Element aElement, String aAnnotationName)
+	{
+		if (aElement.getKind() != ElementKind.CLASS)
+		{
+			error(aElement, "@" + aAnnotationName + " can only be used on a class");
+			return false;
+		}
+		
+		Set<Modifier> modifiers = aElement.getModifiers();
+		if (!modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.ABSTRACT))
+		{
+			error(aElement, "@" + aAnnotationName + " class must be public and not abstract");
+			return false;
+		}
+		
+		if (((TypeElement)aElement).getNestingKind() == NestingKind.MEMBER && !modifiers.contains(Modifier.STATIC))
+		{
+			error(aElement, "@" + aAnnotationName + " nested class must be static");
+			return false;
+		}
+		
+		return true;
+	}
+	
+	
+	protected boolean isType(TypeMirror aTypeMirror, String aClassName)
+	{
+		Types types = processingEnv.getTypeUtils();
+		TypeElement typeElem = processingEnv.getElementUtils().getTypeElement(aClassName);
+		
+		return typeElem != null && types.isSameType(types.erasure(aTypeMirror), types.erasure(typeElem.asType()));
+	}
+	
+	
+	/**
+	 * writes the route table source file and its META-INF/services registration
+	 */
+	protected void generateRouteTable()
+	{
+		String routeTableClassName = processingEnv.getOptions().get(ROUTE_TABLE_OPTION_NAME);
+		if (routeTableClassName == null || "".equals(routeTableClassName.trim()))
+		{
+			routeTableClassName = DEFAULT_ROUTE_TABLE_CLASS_NAME;
+		}
+		routeTableClassName = routeTableClassName.trim();
+		
+		int lastDotIndex = routeTableClassName.lastIndexOf(".");
+		String packageName = lastDotIndex == -1 ? null : routeTableClassName.substring(0, lastDotIndex);
+		String simpleClassName = routeTableClassName.substring(lastDotIndex + 1);
+		
+		Filer filer = processingEnv.getFiler();
+		List<Element> originatingElements = new ArrayList<Element>(mActionElements);
+		originatingElements.addAll(mJavabeanElements);
+		if (mMVCConfigElement != null)
+		{
+			originatingElements.add(mMVCConfigElement);
+		}
+		
+		try
+		{
+			Writer writer = filer.createSourceFile(routeTableClassName, originatingElements.toArray(new Element[originatingElements.size()])).openWriter();
+			PrintWriter pw = new PrintWriter(writer);
+			try
+			{
+				writeRouteTable(pw, packageName, simpleClassName);
+			}
+			finally
+			{
+				pw.close();
+			}
+			
+			FileObject servicesFile = filer.createResource(StandardLocation.CLASS_OUTPUT, "", "META-INF/services/" + ROUTE_TABLE_INTERFACE_NAME);
+			pw = new PrintWriter(servicesFile.openWriter());
+			try
+			{
+				pw.println(routeTableClassName);
+			}
+			finally
+			{
+				pw.close();
+			}
+		}
+		catch (IOException ioe)
+		{
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "could not generate route table " + routeTableClassName + ": " + ioe.toString());
+		}
+	}
+	
+	
+	protected void writeRouteTable(PrintWriter aWriter, String aPackageName, String aSimpleClassName)
+	{
+		if (aPackageName != null)
+		{
+			aWriter.println("package " + aPackageName + ";");
+			aWriter.println();
+		}
+		aWriter.println("/**");
+		aWriter.println(" * generated by " + TinyjRouteTableProcessor.class.getName() + ". do not edit.");
+		aWriter.println(" */");
+		aWriter.println("public final class " + aSimpleClassName + " implements " + ROUTE_TABLE_INTERFACE_NAME);
+		aWriter.println("{");
+		aWriter.println("\tpublic void register(com.tinyj.mvc.config.MVCConfigurationManager aConfigurationManager)");
+		aWriter.println("\t{");
+		aWriter.println("\t\tcom.tinyj.mvc.config.MVCConfigActionDescriptor actionDescriptor = null;");
+		aWriter.println("\t\tcom.tinyj.mvc.config.AjaxConfigActionDescriptor ajaxActionDescriptor = null;");
+		aWriter.println("\t\tcom.tinyj.mvc.config.MVCConfigForwardDescriptor forwardDescriptor = null;");
+		aWriter.println("\t\tcom.tinyj.mvc.config.MVCConfigJavabeanDescriptor javabeanDescriptor = null;");
+		
+		Elements elements = processingEnv.getElementUtils();
+		
+		for (TypeElement actionElem : mActionElements)
+		{
+			TinyjAction actionAnnotation = actionElem.getAnnotation(TinyjAction.class);
+			String descriptorVar = actionAnnotation.ajax() ? "ajaxActionDescriptor" : "actionDescriptor";
+			String descriptorType = actionAnnotation.ajax() ? "com.tinyj.mvc.config.AjaxConfigActionDescriptor" : "com.tinyj.mvc.config.MVCConfigActionDescriptor";
+			
+			aWriter.println();
+			aWriter.println("\t\t" + descriptorVar + " = new " + descriptorType + "();");
+			aWriter.println("\t\t" + descriptorVar + ".setPath(" + quote(actionAnnotation.path()) + ");");
+			aWriter.println("\t\t" + descriptorVar + ".setType(" + quote(elements.getBinaryName(actionElem).toString()) + ");");
+			aWriter.println("\t\t" + descriptorVar + ".setScope(com.tinyj.mvc.model.ActionScope." + actionAnnotation.scope().name() + ");");
+			aWriter.println("\t\t" + descriptorVar + ".setActionFactory(new com.tinyj.mvc.model.IActionFactory()");
+			aWriter.println("\t\t{");
+			aWriter.println("\t\t\tpublic com.tinyj.mvc.model.Action createAction(String aActionPath, com.tinyj.mvc.controller.MVCContext aMVCContext)");
+			aWriter.println("\t\t\t{");
+			aWriter.println("\t\t\t\treturn new " + actionElem.getQualifiedName() + "(aActionPath, aMVCContext);");
+			aWriter.println("\t\t\t}");
+			aWriter.println("\t\t});");
+			
+			if (actionAnnotation.ajax())
+			{
+				aWriter.println("\t\taConfigurationManager.addAjaxAction(ajaxActionDescriptor);");
+			}
+			else
+			{
+				for (TinyjForward forward : actionAnnotation.forwards())
+				{
+					writeForward(aWriter, forward);
+					aWriter.println("\t\tactionDescriptor.addForward(forwardDescriptor);");
+				}
+				aWriter.println("\t\taConfigurationManager.addMVCAction(actionDescriptor);");
+			}
+		}
+		
+		if (mMVCConfigElement != null)
+		{
+			TinyjMVCConfig mvcConfig = mMVCConfigElement.getAnnotation(TinyjMVCConfig.class);
+			for (TinyjForward forward : mvcConfig.globalForwards())
+			{
+				writeForward(aWriter, forward);
+				aWriter.println("\t\taConfigurationManager.addGlobalForward(forwardDescriptor);");
+			}
+			aWriter.println();
+			aWriter.println("\t\taConfigurationManager.setPageHistoryStackSize(" + mvcConfig.pageHistoryStackSize() + ");");
+		}
+		
+		for (TypeElement javabeanElem : mJavabeanElements)
+		{
+			TinyjJavabean javabeanAnnotation = javabeanElem.getAnnotation(TinyjJavabean.class);
+			aWriter.println();
+			aWriter.println("\t\tjavabeanDescriptor = new com.tinyj.mvc.config.MVCConfigJavabeanDescriptor();");
+			aWriter.println("\t\tjavabeanDescriptor.setName(" + quote(javabeanAnnotation.name()) + ");");
+			aWriter.println("\t\tjavabeanDescriptor.setType(" + quote(elements.getBinaryName(javabeanElem).toString()) + ");");
+			aWriter.println("\t\tjavabeanDescriptor.setScope(" + quote(javabeanAnnotation.scope().name()) + ");");
+			aWriter.println("\t\taConfigurationManager.addJavabeanMapping(javabeanDescriptor);");
+		}
+		
+		aWriter.println("\t}");
+		aWriter.println("}");
+	}
+	
+	
+	protected void writeForward(PrintWriter aWriter, TinyjForward aForward)
+	{
+		aWriter.println("\t\tforwardDescriptor = new com.tinyj.mvc.config.MVCConfigForwardDescriptor();");
+		aWriter.println("\t\tforwardDescriptor.setName(" + quote(aForward.name()) + ");");
+		if (!"".equals(aForward.path()))
+		{
+			aWriter.println("\t\tforwardDescriptor.setPath(" + quote(aForward.path()) + ");");
+		}
+		if (!"".equals(aForward.action()))
+		{
+			aWriter.println("\t\tforwardDescriptor.setAction(" + quote(aForward.action()) + ");");
+		}
+		if (aForward.preload().length > 0)
+		{
+			StringBuilder preload = new StringBuilder();
+			for (String resource : aForward.preload())
+			{
+				preload.append((preload.length() == 0) ? "" : ", ").append(quote(resource));
+			}
+			aWriter.println("\t\tforwardDescriptor.setPreload(new String[] {" + preload + "});");
+		}
+		aWriter.println("\t\tforwardDescriptor.setRedirect(\"" + aForward.redirect() + "\");");
+		aWriter.println("\t\tforwardDescriptor.setBackToCaller(" + aForward.backToCaller() + ");");
+		aWriter.println("\t\tforwardDescriptor.setAvoidHistorySave(" + aForward.avoidHistorySave() + ");");
+		aWriter.println("\t\tforwardDescriptor.setCustomURL(" + aForward.customURL() + ");");
+	}
+	
+	
+	/**
+	 * returns the given string as a java string literal
+	 */
+	protected static String quote(String aValue)
+	{
+		StringBuilder sb = new StringBuilder(aValue.length() + 2);
+		sb.append('"');
+		for (int i=0 ; i<aValue.length() ; ++i)
+		{
+			char c = aValue.charAt(i);
+			switch (c)
+			{
+				case '"': sb.append("\\\""); break;
+				case '\\': sb.append("\\\\"); break;
+				case '\n': sb.append("\\n"); break;
+				case '\r': sb.append("\\r"); break;
+				case '\t': sb.append("\\t"); break;
+				default: sb.append(c);
+			}
+		}
+		sb.append('"');
+		
+		return sb.toString();
+	}
+	
+	
+	protected void error(Element aElement, String aMsg)
+	{
+		Messager messager = processingEnv.getMessager();
+		messager.printMessage(Diagnostic.Kind.ERROR, aMsg, aElement);
+	}
+}
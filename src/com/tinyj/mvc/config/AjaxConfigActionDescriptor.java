@@ -1,30 +1,94 @@
 package com.tinyj.mvc.config;
 
-public class AjaxConfigActionDescriptor
+import com.tinyj.mvc.controller.LatestWinsRegistry;
+import com.tinyj.mvc.controller.MicroBatcher;
+import com.tinyj.mvc.controller.SingleFlightGroup;
+import com.tinyj.mvc.model.AjaxActionResponse;
+
+/**
+ * a descriptor for an ajax action saved in the MVCConfigurationManager
+ * 
+ * @author asaf.peeri
+ *
+ */
+public class AjaxConfigActionDescriptor extends BaseConfigActionDescriptor
 {
-	private String mPath;
-	private String mType;
+	private SingleFlightGroup mSingleFlightGroup;
+	private AjaxActionResponse mFallbackResponse;
+	private LatestWinsRegistry mLatestWinsRegistry;
+	private MicroBatcher mMicroBatcher;
 	
 	
-	public String getPath()
+	public AjaxConfigActionDescriptor()
 	{
-		return mPath;
 	}
 	
-	public void setPath(String aPath)
+	
+	/**
+	 * returns the group coalescing concurrent identical requests to this ajax action
+	 * 
+	 * @return the single flight group, or null if the requests are not coalesced
+	 */
+	public SingleFlightGroup getSingleFlightGroup()
 	{
-		mPath = aPath;
+		return mSingleFlightGroup;
 	}
-
 	
-	public String getType()
+	
+	public void setSingleFlightGroup(SingleFlightGroup aSingleFlightGroup)
 	{
-		return mType;
+		mSingleFlightGroup = aSingleFlightGroup;
 	}
-
-	public void setType(String aType)
+	
+	
+	/**
+	 * returns the canned response written back when the circuit breaker of this ajax action is open
+	 * 
+	 * @return the fallback response, or null if there is none
+	 */
+	public AjaxActionResponse getFallbackResponse()
+	{
+		return mFallbackResponse;
+	}
+	
+	
+	public void setFallbackResponse(AjaxActionResponse aFallbackResponse)
+	{
+		mFallbackResponse = aFallbackResponse;
+	}
+	
+	
+	/**
+	 * returns the registry through which a newer request of a session to this ajax action 
+	 * supersedes the older one
+	 * 
+	 * @return the latest wins registry, or null if requests are not superseded
+	 */
+	public LatestWinsRegistry getLatestWinsRegistry()
 	{
-		mType = aType;
+		return mLatestWinsRegistry;
 	}
 	
+	
+	public void setLatestWinsRegistry(LatestWinsRegistry aLatestWinsRegistry)
+	{
+		mLatestWinsRegistry = aLatestWinsRegistry;
+	}
+	
+	
+	/**
+	 * returns the batcher executing concurrent requests to this ajax action together
+	 * 
+	 * @return the micro batcher, or null if the requests are not batched
+	 */
+	public MicroBatcher getMicroBatcher()
+	{
+		return mMicroBatcher;
+	}
+	
+	
+	public void setMicroBatcher(MicroBatcher aMicroBatcher)
+	{
+		mMicroBatcher = aMicroBatcher;
+	}
 }
@@ -0,0 +1,286 @@
+package com.tinyj.mvc.config;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.tinyj.mvc.controller.ActionInterceptorChain;
+import com.tinyj.mvc.controller.AdaptiveConcurrencyLimit;
+import com.tinyj.mvc.controller.CircuitBreaker;
+import com.tinyj.mvc.controller.RateLimiter;
+import com.tinyj.mvc.model.Action;
+import com.tinyj.mvc.model.ActionExecutionMode;
+import com.tinyj.mvc.model.ActionPriority;
+import com.tinyj.mvc.model.ActionScope;
+import com.tinyj.mvc.model.IActionFactory;
+
+
+/**
+ * the common part of an action descriptor saved in the MVCConfigurationManager, shared by
+ * mvc actions and ajax actions. besides the path and type, it holds the pre-resolved
+ * factory used to instantiate the action on every request
+ * 
+ * @author asaf.peeri
+ *
+ */
+public abstract class BaseConfigActionDescriptor
+{
+	private String mPath;
+	private String mType;
+	private ActionScope mScope = ActionScope.request;
+	private IActionFactory mActionFactory;
+	private volatile Action mSingletonAction;
+	private final ReentrantLock mSingletonLock = new ReentrantLock();
+	private String[] mInterceptorNames = new String[0];
+	private ActionInterceptorChain mInterceptorChain;
+	private int mAsyncTimeoutSeconds;
+	private int mTimeoutMillis;
+	private ActionExecutionMode mExecutionMode;
+	private AdaptiveConcurrencyLimit mConcurrencyLimit;
+	private RateLimiter mRateLimiter;
+	private ActionPriority mPriority;
+	private CircuitBreaker mCircuitBreaker;
+	
+	
+	public String getPath()
+	{
+		return mPath;
+	}
+	
+	
+	public void setPath(String aPath)
+	{
+		mPath = aPath;
+	}
+	
+	
+	public String getType()
+	{
+		return mType;
+	}
+	
+	
+	public void setType(String aType)
+	{
+		mType = aType;
+	}
+	
+	
+	/**
+	 * returns the scope of the action: request (a new instance per request), or singleton 
+	 * (a single StatelessAction instance reused by all requests)
+	 * 
+	 * @return the scope of the action
+	 */
+	public ActionScope getScope()
+	{
+		return mScope;
+	}
+	
+	
+	public void setScope(ActionScope aScope)
+	{
+		mScope = aScope;
+	}
+	
+	
+	/**
+	 * returns the shared action instance of a singleton scoped action
+	 * 
+	 * @return the singleton action instance, or null if it was not created yet
+	 */
+	public Action getSingletonAction()
+	{
+		return mSingletonAction;
+	}
+	
+	
+	public void setSingletonAction(Action aSingletonAction)
+	{
+		mSingletonAction = aSingletonAction;
+	}
+	
+	
+	/**
+	 * returns the lock guarding the creation of the singleton action instance
+	 * 
+	 * @return the singleton creation lock
+	 */
+	public ReentrantLock getSingletonLock()
+	{
+		return mSingletonLock;
+	}
+	
+	
+	/**
+	 * returns the factory that instantiates this action. it is resolved once when the 
+	 * configuration is loaded, so no reflective lookup is made per request
+	 * 
+	 * @return the action factory, or null if it was not resolved yet
+	 */
+	public IActionFactory getActionFactory()
+	{
+		return mActionFactory;
+	}
+	
+	
+	public void setActionFactory(IActionFactory aActionFactory)
+	{
+		mActionFactory = aActionFactory;
+	}
+	
+	
+	/**
+	 * returns the names of the interceptors declared on this action (in addition to the
+	 * global interceptors)
+	 * 
+	 * @return the names of the interceptors declared on this action
+	 */
+	public String[] getInterceptorNames()
+	{
+		return mInterceptorNames;
+	}
+	
+	
+	public void setInterceptorNames(String[] aInterceptorNames)
+	{
+		mInterceptorNames = aInterceptorNames;
+	}
+	
+	
+	/**
+	 * returns the interceptor chain of this action, compiled upon configuration load out
+	 * of the global interceptors and the interceptors declared on this action
+	 * 
+	 * @return the interceptor chain, or null if it was not compiled yet
+	 */
+	public ActionInterceptorChain getInterceptorChain()
+	{
+		return mInterceptorChain;
+	}
+	
+	
+	public void setInterceptorChain(ActionInterceptorChain aInterceptorChain)
+	{
+		mInterceptorChain = aInterceptorChain;
+	}
+	
+	
+	/**
+	 * returns the number of seconds an asynchronous execution of this action may take
+	 * 
+	 * @return the async timeout in seconds, or 0 to use the configured default
+	 */
+	public int getAsyncTimeoutSeconds()
+	{
+		return mAsyncTimeoutSeconds;
+	}
+	
+	
+	public void setAsyncTimeoutSeconds(int aAsyncTimeoutSeconds)
+	{
+		mAsyncTimeoutSeconds = aAsyncTimeoutSeconds;
+	}
+	
+	
+	/**
+	 * returns the time budget of a request to this action, from entering the ActionExecutor
+	 * up to the action response (see Deadline)
+	 * 
+	 * @return the timeout in milliseconds, or 0 to use the configured default
+	 */
+	public int getTimeoutMillis()
+	{
+		return mTimeoutMillis;
+	}
+	
+	
+	public void setTimeoutMillis(int aTimeoutMillis)
+	{
+		mTimeoutMillis = aTimeoutMillis;
+	}
+	
+	
+	/**
+	 * returns the mode of executing this action: on the container thread, or on a virtual thread
+	 * 
+	 * @return the execution mode, or null to use the configured default
+	 */
+	public ActionExecutionMode getExecutionMode()
+	{
+		return mExecutionMode;
+	}
+	
+	
+	public void setExecutionMode(ActionExecutionMode aExecutionMode)
+	{
+		mExecutionMode = aExecutionMode;
+	}
+	
+	
+	/**
+	 * returns the adaptive limit of the requests this action executes at once
+	 * 
+	 * @return the concurrency limit, or null if the action is not limited
+	 */
+	public AdaptiveConcurrencyLimit getConcurrencyLimit()
+	{
+		return mConcurrencyLimit;
+	}
+	
+	
+	public void setConcurrencyLimit(AdaptiveConcurrencyLimit aConcurrencyLimit)
+	{
+		mConcurrencyLimit = aConcurrencyLimit;
+	}
+	
+	
+	/**
+	 * returns the limiter of the rate of requests each client may send to this action
+	 * 
+	 * @return the rate limiter, or null if the action is not rate limited
+	 */
+	public RateLimiter getRateLimiter()
+	{
+		return mRateLimiter;
+	}
+	
+	
+	public void setRateLimiter(RateLimiter aRateLimiter)
+	{
+		mRateLimiter = aRateLimiter;
+	}
+	
+	
+	/**
+	 * returns the priority class of this action, used by the PriorityScheduler under overload
+	 * 
+	 * @return the priority class, or null to use the default (high for page actions, normal for 
+	 * 		   ajax actions)
+	 */
+	public ActionPriority getPriority()
+	{
+		return mPriority;
+	}
+	
+	
+	public void setPriority(ActionPriority aPriority)
+	{
+		mPriority = aPriority;
+	}
+	
+	
+	/**
+	 * returns the circuit breaker wrapped around the execution of this action
+	 * 
+	 * @return the circuit breaker, or null if the action has none
+	 */
+	public CircuitBreaker getCircuitBreaker()
+	{
+		return mCircuitBreaker;
+	}
+	
+	
+	public void setCircuitBreaker(CircuitBreaker aCircuitBreaker)
+	{
+		mCircuitBreaker = aCircuitBreaker;
+	}
+}
@@ -0,0 +1,19 @@
+package com.tinyj.mvc.config;
+
+
+/**
+ * an interface defining a route table, which registers action-mappings, global-forwards and 
+ * javabean-mappings directly onto the MVCConfigurationManager, as an alternative to parsing 
+ * the tinyj-mvc-config.xml and tinyj-ajax-config.xml files.
+ * 
+ * an implementation of this interface is generated at compile time by the 
+ * TinyjRouteTableProcessor out of the @TinyjAction, @TinyjJavabean and @TinyjMVCConfig 
+ * annotations, and is found at startup through the java.util.ServiceLoader mechanism.
+ * 
+ * @author asaf.peeri
+ *
+ */
+public interface IMVCRouteTable
+{
+	public void register(MVCConfigurationManager aConfigurationManager);
+}
@@ -1,7 +1,10 @@
 package com.tinyj.mvc.config;
 
+import java.util.Collections;
 import java.util.Hashtable;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 
 
 /**
@@ -10,11 +13,12 @@ import java.util.Map;
  * @author asaf.peeri
  *
  */
-public class MVCConfigActionDescriptor
+public class MVCConfigActionDescriptor extends BaseConfigActionDescriptor
 {
-	private String mPath;
-	private String mType;
 	private Map<String, MVCConfigForwardDescriptor> mForwards = new Hashtable<String, MVCConfigForwardDescriptor>();
+	private String mFallbackForward;
+	private volatile Map<String, NavigationTarget> mNavigationTargets;
+	private volatile PreloadLinks mPreloadLinks;
 	
 	
 	public MVCConfigActionDescriptor()
@@ -22,30 +26,6 @@ public class MVCConfigActionDescriptor
 	}
 
 
-	public String getPath()
-	{
-		return mPath;
-	}
-
-
-	public void setPath(String aPath)
-	{
-		mPath = aPath;
-	}
-
-
-	public String getType()
-	{
-		return mType;
-	}
-
-
-	public void setType(String aType)
-	{
-		mType = aType;
-	}
-
-
 	public Map<String, MVCConfigForwardDescriptor> getForwards()
 	{
 		return mForwards;
@@ -58,18 +38,24 @@ public class MVCConfigActionDescriptor
 		fDescriptor.setName(aForwardName);
 		fDescriptor.setPath(aForwardPath);
 		mForwards.put(aForwardName, fDescriptor);
+		mNavigationTargets = null;
+		mPreloadLinks = null;
 	}
 	
 	
 	public void addForward(MVCConfigForwardDescriptor aForwardDescriptor)
 	{
 		mForwards.put(aForwardDescriptor.getName(), aForwardDescriptor);
+		mNavigationTargets = null;
+		mPreloadLinks = null;
 	}
 	
 	
 	public void removeForward(String aForwardName)
 	{
 		mForwards.remove(aForwardName);
+		mNavigationTargets = null;
+		mPreloadLinks = null;
 	}
 	
 	
@@ -82,7 +68,85 @@ public class MVCConfigActionDescriptor
 	public void setForwards(Map<String, MVCConfigForwardDescriptor> aForwards)
 	{
 		mForwards = aForwards;
+		mNavigationTargets = null;
+		mPreloadLinks = null;
+	}
+	
+	
+	/**
+	 * returns the forward name a request navigates to when the circuit breaker of this action 
+	 * is open
+	 * 
+	 * @return the fallback forward name, or null if there is none
+	 */
+	public String getFallbackForward()
+	{
+		return mFallbackForward;
 	}
 	
 	
+	public void setFallbackForward(String aFallbackForward)
+	{
+		mFallbackForward = aFallbackForward;
+	}
+	
+	
+	/**
+	 * returns the compiled navigation targets of this action by forward name: its forwards, 
+	 * followed by the global forwards it does not override
+	 * 
+	 * @return the navigation targets, or null if not compiled yet (or changed since compiled)
+	 */
+	public Map<String, NavigationTarget> getNavigationTargets()
+	{
+		return mNavigationTargets;
+	}
+	
+	
+	public void setNavigationTargets(Map<String, NavigationTarget> aNavigationTargets)
+	{
+		mNavigationTargets = aNavigationTargets;
+		mPreloadLinks = null;
+	}
+	
+	
+	/**
+	 * returns the critical resources of the pages this action forwards to (the preload of all
+	 * its navigation targets, including the global forwards), sent to the browser before the 
+	 * action executes, as the action response (and therefore the forward) is not known yet
+	 * 
+	 * @return the preload links, or null if no navigation target of the action declares any 
+	 * (or the navigation targets are not compiled yet)
+	 */
+	public PreloadLinks getPreloadLinks()
+	{
+		PreloadLinks preloadLinks = mPreloadLinks;
+		if (preloadLinks == null)
+		{
+			Map<String, NavigationTarget> navigationTargets = mNavigationTargets;
+			if (navigationTargets == null)
+			{
+				return null;
+			}
+			
+			//the resources of the forwards of the action come before those of the global forwards
+			Set<String> resources = new LinkedHashSet<String>();
+			for (NavigationTarget navigationTarget : navigationTargets.values())
+			{
+				if (mForwards.get(navigationTarget.getName()) == navigationTarget.getForwardDescriptor())
+				{
+					Collections.addAll(resources, navigationTarget.getForwardDescriptor().getPreload());
+				}
+			}
+			for (NavigationTarget navigationTarget : navigationTargets.values())
+			{
+				Collections.addAll(resources, navigationTarget.getForwardDescriptor().getPreload());
+			}
+			
+			preloadLinks = new PreloadLinks(resources);
+			mPreloadLinks = preloadLinks;
+		}
+		
+		return preloadLinks.isEmpty() ? null : preloadLinks;
+	}
 }
@@ -15,6 +15,8 @@ public class MVCConfigForwardDescriptor
 	private boolean mBackToCaller;
 	private boolean mAvoidHistorySave;
 	private boolean mCustomURL;
+	private String mAction;
+	private String[] mPreload = new String[0];
 	
 	
 	public MVCConfigForwardDescriptor()
@@ -80,4 +82,32 @@ public class MVCConfigForwardDescriptor
 	{
 		mCustomURL = aCustomURL;
 	}
+
+	/**
+	 * returns the path of the action this forward chains to, executed in process on the same 
+	 * MVCContext, instead of forwarding the request through the container
+	 */
+	public String getAction()
+	{
+		return mAction;
+	}
+
+	public void setAction(String aAction)
+	{
+		mAction = aAction;
+	}
+
+	/**
+	 * returns the critical resources (like css and js bundles) of the page of this forward, 
+	 * preloaded before the action executes
+	 */
+	public String[] getPreload()
+	{
+		return mPreload;
+	}
+
+	public void setPreload(String[] aPreload)
+	{
+		mPreload = aPreload;
+	}
 }
@@ -1,9 +1,18 @@
 package com.tinyj.mvc.config;
 
 import java.io.ByteArrayInputStream;
+import java.lang.reflect.InvocationTargetException;
 import java.util.Hashtable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.xpath.XPath;
@@ -15,9 +24,27 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
+import com.tinyj.mvc.controller.ActionInterceptorChain;
+import com.tinyj.mvc.controller.AdaptiveConcurrencyLimit;
+import com.tinyj.mvc.controller.BackgroundTaskExecutor;
+import com.tinyj.mvc.controller.CircuitBreaker;
+import com.tinyj.mvc.controller.IActionInterceptor;
+import com.tinyj.mvc.controller.LatestWinsRegistry;
+import com.tinyj.mvc.controller.MicroBatcher;
+import com.tinyj.mvc.controller.PriorityScheduler;
+import com.tinyj.mvc.controller.RateLimiter;
+import com.tinyj.mvc.controller.SingleFlightGroup;
 import com.tinyj.mvc.exception.AjaxInitializationException;
 import com.tinyj.mvc.exception.MVCExceptionCodes;
 import com.tinyj.mvc.exception.MVCInitializationException;
+import com.tinyj.mvc.exception.ResolveActionException;
+import com.tinyj.mvc.model.ActionExecutionMode;
+import com.tinyj.mvc.model.ActionPriority;
+import com.tinyj.mvc.model.ActionResolver;
+import com.tinyj.mvc.model.ActionRouter;
+import com.tinyj.mvc.model.ActionScope;
+import com.tinyj.mvc.model.AjaxActionResponse;
+import com.tinyj.mvc.model.MethodHandleActionFactory;
 
 
 /**
@@ -30,7 +57,8 @@ import com.tinyj.mvc.exception.MVCInitializationException;
  */
 public class MVCConfigurationManager
 {
-	protected static MVCConfigurationManager sInstance;
+	protected static volatile MVCConfigurationManager sInstance;
+	private static final ReentrantLock sInstanceLock = new ReentrantLock();
 	
 	//for mvc
 	public Map<String, MVCConfigActionDescriptor> mActionMappings;
@@ -38,9 +66,61 @@ public class MVCConfigurationManager
 	public Map<String, MVCConfigJavabeanDescriptor> mJavabeanMappings;
 	public int mPageHistoryStackSize = 10;
 	
+	//idempotency tokens store bounds
+	protected int mIdempotencyMaxEntries = 10000;
+	protected int mIdempotencyTTLSeconds = 300;
+	protected int mIdempotencyWaitSeconds = 30;
+	
+	//asynchronous execution timeout, and the forwards its failures are mapped to
+	protected int mAsyncTimeoutSeconds = 30;
+	protected String mAsyncTimeoutForward;
+	protected String mAsyncErrorForward;
+	protected boolean mAsyncDeclared = false;
+	
+	//the default mode of executing actions, and the bound of actions executing off the container threads
+	protected ActionExecutionMode mExecutionMode = ActionExecutionMode.container;
+	protected int mExecutionMaxConcurrency = 1000;
+	protected int mExecutionTimeoutMillis;
+	protected int mExecutionMaxChainDepth = 8;
+	protected boolean mExecutionDeclared = false;
+	
+	//the executor of the tasks actions run after their response
+	protected int mBackgroundTaskThreads = 4;
+	protected int mBackgroundTaskQueueSize = 1000;
+	protected String mBackgroundTaskOverflowPolicy = BackgroundTaskExecutor.OVERFLOW_DISCARD;
+	protected int mBackgroundTaskDrainSeconds = 10;
+	protected boolean mBackgroundTasksDeclared = false;
+	
+	//the forward a page action shed by its concurrency limit navigates to
+	protected String mLoadSheddingForward;
+	
+	//the key identifying the clients of rate limited actions, and the number of clients tracked per 
+	//action, as set by the configuration file being parsed (and given to the rate limiters of its actions)
+	protected String mRateLimitingKey = RateLimiter.KEY_IP;
+	protected String mRateLimitingCookie;
+	protected int mRateLimitingMaxClients = 10000;
+	
+	//schedules the execution of actions by their priority class, when configured
+	protected volatile PriorityScheduler mPriorityScheduler;
+	
 	//for ajax
 	public Map<String, AjaxConfigActionDescriptor> mAjaxActionMappings;
 	
+	//interceptors, by name, in declaration order, and the ones applied to all the actions of
+	//the configuration declaring them (the mvc or the ajax configuration)
+	protected Map<String, IActionInterceptor> mInterceptors = new LinkedHashMap<String, IActionInterceptor>();
+	protected List<IActionInterceptor> mGlobalInterceptors = new ArrayList<IActionInterceptor>();
+	protected volatile ActionInterceptorChain mGlobalInterceptorChain = ActionInterceptorChain.EMPTY;
+	protected List<IActionInterceptor> mGlobalAjaxInterceptors = new ArrayList<IActionInterceptor>();
+	protected volatile ActionInterceptorChain mGlobalAjaxInterceptorChain = ActionInterceptorChain.EMPTY;
+	
+	//the routers matching request URIs onto the action mappings. rebuilt whenever a mapping is added
+	protected volatile ActionRouter<MVCConfigActionDescriptor> mMVCActionRouter;
+	protected volatile ActionRouter<AjaxConfigActionDescriptor> mAjaxActionRouter;
+	
+	//true once a generated route table was registered instead of the xml configuration
+	protected boolean mRouteTableLoaded = false;
+	
 	
 	/**
 	 * the c'tor
@@ -70,7 +150,9 @@ public class MVCConfigurationManager
 			return sInstance;
 		}
 		
-		synchronized (MVCConfigurationManager.class)
+		//a lock rather than a monitor, so a virtual thread calling it does not pin its carrier thread
+		sInstanceLock.lock();
+		try
 		{
 			if (sInstance != null)
 			{
@@ -82,6 +164,10 @@ public class MVCConfigurationManager
 				return sInstance;
 			}
 		}
+		finally
+		{
+			sInstanceLock.unlock();
+		}
 	}
 	
 	
@@ -100,11 +186,34 @@ public class MVCConfigurationManager
 			
 			Document d = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(bais);
 			
+			parseInterceptors(xpath, d, "//tinyj-mvc-config/interceptors/interceptor", false);
+			parseRateLimiting(xpath, d, "//tinyj-mvc-config/rate-limiting");
 			parseActionMappings(xpath, d);
 			parseGlobalForwards(xpath, d);
 			parseJavabeanMappings(xpath, d);
 			parsePageHistoryStack(xpath, d);
+			parseIdempotency(xpath, d);
+			parseAsync(xpath, d, "//tinyj-mvc-config/async");
+			parseExecution(xpath, d, "//tinyj-mvc-config/execution");
+			parseBackgroundTasks(xpath, d, "//tinyj-mvc-config/background-tasks");
+			parseLoadShedding(xpath, d);
+			parsePriorityScheduling(xpath, d, "//tinyj-mvc-config/priority-scheduling");
+			
+			compileInterceptorChains();
+			compileNavigationTargets();
 			
+			//compile the router upfront, so the first request does not pay for it
+			getMVCActionRouter();
+		}
+		catch(MVCInitializationException mie)
+		{
+			System.out.println("could not initialize MVC configuration: " + mie.toString());
+			throw mie;
+		}
+		catch(ResolveActionException rae)
+		{
+			System.out.println("could not resolve action in MVC configuration: " + rae.toString());
+			throw new MVCInitializationException("could not resolve action in MVC configuration: " + rae.getMessage(), rae.mErrorCode);
 		}
 		catch(Throwable t)
 		{
@@ -115,6 +224,62 @@ public class MVCConfigurationManager
 	}
 	
 	
+	/**
+	 * registers all the route tables (IMVCRouteTable implementations generated at compile time
+	 * by the TinyjRouteTableProcessor) found by the java.util.ServiceLoader. a route table is
+	 * an alternative to the mvc and ajax configuration files, which avoids any xml parsing and 
+	 * reflective action lookups upon startup.
+	 * 
+	 * calling this method more than once registers the route tables only once.
+	 * 
+	 * @return true if at least one route table was found and registered
+	 */
+	public boolean loadRouteTables()
+	{
+		synchronized (this)
+		{
+			if (mRouteTableLoaded)
+			{
+				return true;
+			}
+			
+			Iterator<IMVCRouteTable> routeTablesIter = ServiceLoader.load(IMVCRouteTable.class).iterator();
+			while (routeTablesIter.hasNext())
+			{
+				IMVCRouteTable routeTable = routeTablesIter.next();
+				System.out.println("registering generated route table: " + routeTable.getClass().getName());
+				loadRouteTable(routeTable);
+			}
+			
+			return mRouteTableLoaded;
+		}
+	}
+	
+	
+	/**
+	 * registers the given route table onto this configuration
+	 * 
+	 * @param aRouteTable the route table to register
+	 */
+	public void loadRouteTable(IMVCRouteTable aRouteTable)
+	{
+		aRouteTable.register(this);
+		mRouteTableLoaded = true;
+	}
+	
+	
+	/**
+	 * returns whether a generated route table was registered onto this configuration
+	 * 
+	 * @return true if a route table was registered
+	 */
+	public boolean isRouteTableLoaded()
+	{
+		return mRouteTableLoaded;
+	}
+	
+	
+	
 	/**
 	 * a helper method used to parse the action-mappings in the MVC configuration file
 	 * 
@@ -122,9 +287,10 @@ public class MVCConfigurationManager
 	 * @param aDocument the current document object
 	 * 
 	 * @throws XPathExpressionException for any expression error occurs
+	 * @throws ResolveActionException when an action type cannot be resolved
 	 */
 	protected void parseActionMappings(XPath aXPath, Document aDocument)
-		throws XPathExpressionException
+		throws XPathExpressionException, ResolveActionException, MVCInitializationException
 	{
 		NodeList nodeList = (NodeList)aXPath.evaluate("//tinyj-mvc-config/action-mappings/action", aDocument, XPathConstants.NODESET);
 		for (int i=0 ; i<nodeList.getLength() ; ++i)
@@ -134,6 +300,7 @@ public class MVCConfigurationManager
 			
 			if (actionDescriptor != null)
 			{
+				resolveActionFactory(actionDescriptor);
 				//mActionMappings.put(actionDescriptor.getPath(), actionDescriptor);
 				addMVCAction(actionDescriptor);
 			}
@@ -149,20 +316,22 @@ public class MVCConfigurationManager
 	 * @return the parsed Action as a descriptor
 	 */
 	protected MVCConfigActionDescriptor parseAction(Element aActionElem)
+		throws MVCInitializationException
 	{
 		if (aActionElem == null)
 		{
 			return null;
 		}
 		
-		String path = aActionElem.getAttribute("path");
-		String type = aActionElem.getAttribute("type");
-				
 		Element forwardElem = null;
 		
 		MVCConfigActionDescriptor actionDescriptor = new MVCConfigActionDescriptor();
-		actionDescriptor.setPath(path);
-		actionDescriptor.setType(type);
+		parseActionAttributes(aActionElem, actionDescriptor);
+		String fallbackForward = aActionElem.getAttribute("circuit-fallback");
+		if (fallbackForward != null && !"".equals(fallbackForward))
+		{
+			actionDescriptor.setFallbackForward(fallbackForward);
+		}
 				
 		NodeList forwardNodeList = aActionElem.getElementsByTagName("forward");
 		for (int i=0 ; i<forwardNodeList.getLength() ; ++i)
@@ -178,6 +347,302 @@ public class MVCConfigurationManager
 	}
 	
 	
+	/**
+	 * a helper method used to parse the attributes shared by mvc actions and ajax actions
+	 * 
+	 * @param aActionElem the action xml element
+	 * @param aActionDescriptor the descriptor to set the parsed attributes on
+	 */
+	protected void parseActionAttributes(Element aActionElem, BaseConfigActionDescriptor aActionDescriptor)
+		throws MVCInitializationException
+	{
+		aActionDescriptor.setPath(aActionElem.getAttribute("path"));
+		aActionDescriptor.setType(aActionElem.getAttribute("type"));
+		aActionDescriptor.setScope(parseActionScope(aActionElem.getAttribute("scope")));
+		aActionDescriptor.setInterceptorNames(parseNamesList(aActionElem.getAttribute("interceptors")));
+		aActionDescriptor.setAsyncTimeoutSeconds(parsePositiveIntAttribute(aActionElem, "async-timeout-seconds", 0));
+		aActionDescriptor.setTimeoutMillis(parsePositiveIntAttribute(aActionElem, "timeout-ms", 0));
+		aActionDescriptor.setExecutionMode(parseExecutionMode(aActionElem.getAttribute("execution"), null));
+		aActionDescriptor.setConcurrencyLimit(parseConcurrencyLimit(aActionElem));
+		aActionDescriptor.setRateLimiter(parseRateLimiter(aActionElem));
+		aActionDescriptor.setPriority(parseActionPriority(aActionElem.getAttribute("priority")));
+		aActionDescriptor.setCircuitBreaker(parseCircuitBreaker(aActionElem));
+	}
+	
+	
+	/**
+	 * a helper method used to parse the circuit breaker of an action, given by its 
+	 * circuit-failure-rate attribute (the failure rate in percents opening the breaker), and
+	 * its circuit-window-seconds, circuit-min-requests, circuit-open-seconds and 
+	 * circuit-half-open-requests attributes
+	 * 
+	 * @param aActionElem the action xml element
+	 * 
+	 * @return the circuit breaker, or null if the action has none
+	 */
+	protected CircuitBreaker parseCircuitBreaker(Element aActionElem)
+		throws MVCInitializationException
+	{
+		int failureRatePercent = parsePositiveIntAttribute(aActionElem, "circuit-failure-rate", 0);
+		if (failureRatePercent == 0)
+		{
+			return null;
+		}
+		if (failureRatePercent > 100)
+		{
+			String errMsg = "circuit-failure-rate is not valid (should be a percentage): " + failureRatePercent;
+			System.out.println(errMsg);
+			throw new MVCInitializationException(errMsg, MVCExceptionCodes.MVC_CONFIGURATION_PARSE_ERROR);
+		}
+		
+		int windowSeconds = parsePositiveIntAttribute(aActionElem, "circuit-window-seconds", 10);
+		int minRequests = parsePositiveIntAttribute(aActionElem, "circuit-min-requests", 20);
+		int openSeconds = parsePositiveIntAttribute(aActionElem, "circuit-open-seconds", 30);
+		int halfOpenRequests = parsePositiveIntAttribute(aActionElem, "circuit-half-open-requests", 5);
+		
+		return new CircuitBreaker(failureRatePercent, windowSeconds, minRequests, openSeconds, halfOpenRequests);
+	}
+	
+	
+	/**
+	 * a helper method used to parse the adaptive concurrency limit of an action, given by its
+	 * concurrency-limit (the initial limit), concurrency-max-limit and concurrency-target-latency-ms
+	 * attributes
+	 * 
+	 * @param aActionElem the action xml element
+	 * 
+	 * @return the concurrency limit, or null if the action is not limited
+	 */
+	protected AdaptiveConcurrencyLimit parseConcurrencyLimit(Element aActionElem)
+		throws MVCInitializationException
+	{
+		int initialLimit = parsePositiveIntAttribute(aActionElem, "concurrency-limit", 0);
+		if (initialLimit == 0)
+		{
+			return null;
+		}
+		
+		int maxLimit = parsePositiveIntAttribute(aActionElem, "concurrency-max-limit", initialLimit * 10);
+		int targetLatencyMillis = parsePositiveIntAttribute(aActionElem, "concurrency-target-latency-ms", 1000);
+		
+		return new AdaptiveConcurrencyLimit(initialLimit, maxLimit, targetLatencyMillis);
+	}
+	
+	
+	/**
+	 * a helper method used to parse the rate limit of an action, given by its rate-limit 
+	 * attribute (the number of requests per second, minute or hour, like "10/s", "600/m" or 
+	 * "1000/h") and its rate-limit-burst attribute (the number of requests a client may send at
+	 * once, by default the number of requests per time unit)
+	 * 
+	 * @param aActionElem the action xml element
+	 * 
+	 * @return the rate limiter, or null if the action is not rate limited
+	 */
+	protected RateLimiter parseRateLimiter(Element aActionElem)
+		throws MVCInitializationException
+	{
+		String rateLimit = aActionElem.getAttribute("rate-limit");
+		if (rateLimit == null || "".equals(rateLimit))
+		{
+			return null;
+		}
+		
+		TimeUnit timeUnit = TimeUnit.SECONDS;
+		String requests = rateLimit.trim();
+		int slash = requests.indexOf('/');
+		if (slash >= 0)
+		{
+			String unit = requests.substring(slash + 1).trim();
+			requests = requests.substring(0, slash).trim();
+			
+			if ("m".equals(unit))
+			{
+				timeUnit = TimeUnit.MINUTES;
+			}
+			else if ("h".equals(unit))
+			{
+				timeUnit = TimeUnit.HOURS;
+			}
+			else if (!"s".equals(unit))
+			{
+				String errMsg = "rate-limit unit is not valid (should be s, m or h): " + rateLimit;
+				System.out.println(errMsg);
+				throw new MVCInitializationException(errMsg, MVCExceptionCodes.MVC_CONFIGURATION_PARSE_ERROR);
+			}
+		}
+		
+		int requestsPerUnit = 0;
+		try
+		{
+			requestsPerUnit = Integer.parseInt(requests);
+		}
+		catch(NumberFormatException nfe)
+		{
+			//handled below
+		}
+		if (requestsPerUnit <= 0)
+		{
+			String errMsg = "rate-limit is not valid (should be like 10/s): " + rateLimit;
+			System.out.println(errMsg);
+			throw new MVCInitializationException(errMsg, MVCExceptionCodes.MVC_CONFIGURATION_PARSE_ERROR);
+		}
+		
+		int burst = parsePositiveIntAttribute(aActionElem, "rate-limit-burst", requestsPerUnit);
+		
+		return new RateLimiter(requestsPerUnit, timeUnit, burst, mRateLimitingMaxClients, mRateLimitingKey, mRateLimitingCookie);
+	}
+	
+	
+	/**
+	 * a helper method used to parse the priority attribute of an action
+	 * 
+	 * @param aPriority the priority attribute value
+	 * 
+	 * @return the priority class, or null if the attribute is not given
+	 */
+	protected ActionPriority parseActionPriority(String aPriority)
+		throws MVCInitializationException
+	{
+		if (aPriority == null || "".equals(aPriority))
+		{
+			return null;
+		}
+		
+		try
+		{
+			return ActionPriority.valueOf(aPriority);
+		}
+		catch(IllegalArgumentException iae)
+		{
+			String errMsg = "priority is not valid (should be high, normal or low): " + aPriority;
+			System.out.println(errMsg);
+			throw new MVCInitializationException(errMsg, MVCExceptionCodes.MVC_CONFIGURATION_PARSE_ERROR);
+		}
+	}
+	
+	
+	/**
+	 * a helper method used to parse an execution mode attribute
+	 * 
+	 * @param aExecutionMode the execution mode attribute value
+	 * @param aDefaultExecutionMode the execution mode to return when the attribute is not given
+	 * 
+	 * @return the execution mode
+	 */
+	protected ActionExecutionMode parseExecutionMode(String aExecutionMode, ActionExecutionMode aDefaultExecutionMode)
+		throws MVCInitializationException
+	{
+		if (aExecutionMode == null || "".equals(aExecutionMode))
+		{
+			return aDefaultExecutionMode;
+		}
+		
+		try
+		{
+			return ActionExecutionMode.valueOf(aExecutionMode);
+		}
+		catch(IllegalArgumentException iae)
+		{
+			String errMsg = "execution mode is not valid (should be container or virtual): " + aExecutionMode;
+			System.out.println(errMsg);
+			throw new MVCInitializationException(errMsg, MVCExceptionCodes.MVC_CONFIGURATION_PARSE_ERROR);
+		}
+	}
+	
+	
+	/**
+	 * a helper method used to parse the scope attribute of an action. when the attribute is
+	 * not given, the action is request scoped
+	 * 
+	 * @param aScope the scope attribute value
+	 * 
+	 * @return the action scope
+	 */
+	protected ActionScope parseActionScope(String aScope)
+	{
+		if (aScope == null || "".equals(aScope))
+		{
+			return ActionScope.request;
+		}
+		
+		return ActionScope.valueOf(aScope);
+	}
+	
+	
+	/**
+	 * a helper method used to parse a comma separated list of names
+	 * 
+	 * @param aNamesList the comma separated names
+	 * 
+	 * @return the names, trimmed. an empty array if no names were given
+	 */
+	protected String[] parseNamesList(String aNamesList)
+	{
+		List<String> names = new ArrayList<String>();
+		if (aNamesList != null)
+		{
+			for (String name : aNamesList.split(","))
+			{
+				name = name.trim();
+				if (!"".equals(name))
+				{
+					names.add(name);
+				}
+			}
+		}
+		
+		return names.toArray(new String[names.size()]);
+	}
+	
+	
+	/**
+	 * a helper method used to parse the interceptors in a configuration file.
+	 * every interceptor is instantiated once (using its public no-args c'tor) and registered 
+	 * by its name. an interceptor with global="true" is applied to all the actions.
+	 * 
+	 * @param aXPath the currently used XPath object
+	 * @param aDocument the current document object
+	 * @param aExpression the XPath expression of the interceptor elements
+	 * @param aAjax true if the interceptors are declared in the ajax configuration
+	 * 
+	 * @throws XPathExpressionException for any expression error occurs
+	 * @throws MVCInitializationException when an interceptor cannot be instantiated
+	 */
+	protected void parseInterceptors(XPath aXPath, Document aDocument, String aExpression, boolean aAjax)
+		throws XPathExpressionException, MVCInitializationException
+	{
+		NodeList nodeList = (NodeList)aXPath.evaluate(aExpression, aDocument, XPathConstants.NODESET);
+		for (int i=0 ; i<nodeList.getLength() ; ++i)
+		{
+			Element interceptorElem = (Element)nodeList.item(i);
+			String name = interceptorElem.getAttribute("name");
+			String type = interceptorElem.getAttribute("type");
+			boolean global = Boolean.parseBoolean(interceptorElem.getAttribute("global"));
+			
+			IActionInterceptor interceptor = null;
+			try
+			{
+				interceptor = (IActionInterceptor)Class.forName(type).getDeclaredConstructor().newInstance();
+			}
+			catch (InvocationTargetException ite)
+			{
+				throw new MVCInitializationException("interceptor could not be instantiated, its c'tor failed: " + name + "; " + type + ": " + ite.getCause(), MVCExceptionCodes.MVC_INTERCEPTOR_CANT_BE_INSTANTIATED);
+			}
+			catch (ReflectiveOperationException roe)
+			{
+				throw new MVCInitializationException("interceptor could not be instantiated: " + name + "; " + type + ": " + roe.toString(), MVCExceptionCodes.MVC_INTERCEPTOR_CANT_BE_INSTANTIATED);
+			}
+			catch (ClassCastException cce)
+			{
+				throw new MVCInitializationException("interceptor is not an IActionInterceptor: " + name + "; " + type, MVCExceptionCodes.MVC_INTERCEPTOR_CANT_BE_INSTANTIATED);
+			}
+			
+			addInterceptor(name, interceptor, global, aAjax);
+		}
+	}
+	
+	
 	/**
 	 * a helper method used to parse a Forward xml element in the MVC configuration file
 	 * 
@@ -198,6 +663,7 @@ public class MVCConfigurationManager
 		String backToCaller = aForwardElem.getAttribute("backtocaller");
 		String avoidHistorySave = aForwardElem.getAttribute("avoidhistorysave");
 		String customURL = aForwardElem.getAttribute("customurl");
+		String action = aForwardElem.getAttribute("action");
 		
 		
 		MVCConfigForwardDescriptor forwardDescriptor = new MVCConfigForwardDescriptor();
@@ -207,6 +673,11 @@ public class MVCConfigurationManager
 		forwardDescriptor.setBackToCaller(Boolean.parseBoolean(backToCaller));
 		forwardDescriptor.setAvoidHistorySave(Boolean.parseBoolean(avoidHistorySave));
 		forwardDescriptor.setCustomURL(Boolean.parseBoolean(customURL));
+		if (!"".equals(action))
+		{
+			forwardDescriptor.setAction(action);
+		}
+		forwardDescriptor.setPreload(parseNamesList(aForwardElem.getAttribute("preload")));
 		
 		return forwardDescriptor;
 	}
@@ -333,7 +804,28 @@ public class MVCConfigurationManager
 			
 			Document d = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(bais);
 			
-			parseAjaxActionMappings(xpath, d);			
+			parseInterceptors(xpath, d, "//tinyj-ajax-config/interceptors/interceptor", true);
+			parseRateLimiting(xpath, d, "//tinyj-ajax-config/rate-limiting");
+			parseAjaxActionMappings(xpath, d);
+			parseAsync(xpath, d, "//tinyj-ajax-config/async");
+			parseExecution(xpath, d, "//tinyj-ajax-config/execution");
+			parseBackgroundTasks(xpath, d, "//tinyj-ajax-config/background-tasks");
+			parsePriorityScheduling(xpath, d, "//tinyj-ajax-config/priority-scheduling");
+			
+			compileInterceptorChains();
+			
+			//compile the router upfront, so the first request does not pay for it
+			getAjaxActionRouter();
+		}
+		catch(MVCInitializationException mie)
+		{
+			System.out.println("could not initialize Ajax configuration: " + mie.toString());
+			throw new AjaxInitializationException(mie.getMessage(), mie.mErrorCode);
+		}
+		catch(ResolveActionException rae)
+		{
+			System.out.println("could not resolve action in Ajax configuration: " + rae.toString());
+			throw new AjaxInitializationException("could not resolve action in Ajax configuration: " + rae.getMessage(), rae.mErrorCode);
 		}
 		catch(Exception e)
 		{
@@ -351,9 +843,10 @@ public class MVCConfigurationManager
 	 * @param aDocument the current document object
 	 * 
 	 * @throws XPathExpressionException for any expression error occurs
+	 * @throws ResolveActionException when an ajax action type cannot be resolved
 	 */
 	protected void parseAjaxActionMappings(XPath aXPath, Document aDocument)
-		throws XPathExpressionException
+		throws XPathExpressionException, ResolveActionException, MVCInitializationException
 	{
 		NodeList nodeList = (NodeList)aXPath.evaluate("//tinyj-ajax-config/ajax-action-mappings/ajax-action", aDocument, XPathConstants.NODESET);
 		for (int i=0 ; i<nodeList.getLength() ; ++i)
@@ -363,6 +856,7 @@ public class MVCConfigurationManager
 			
 			if (ajaxActionDescriptor != null)
 			{
+				resolveActionFactory(ajaxActionDescriptor);
 				//mAjaxActionMappings.put(ajaxActionDescriptor.getPath(), ajaxActionDescriptor);
 				addAjaxAction(ajaxActionDescriptor);
 			}
@@ -378,18 +872,50 @@ public class MVCConfigurationManager
 	 * @return the parsed Ajax Action as a descriptor
 	 */
 	protected AjaxConfigActionDescriptor parseAjaxAction(Element aAjaxActionElem)
+		throws MVCInitializationException
 	{
 		if (aAjaxActionElem == null)
 		{
 			return null;
 		}
 		
-		String path = aAjaxActionElem.getAttribute("path");
-		String type = aAjaxActionElem.getAttribute("type");
-		
 		AjaxConfigActionDescriptor ajaxActionDescriptor = new AjaxConfigActionDescriptor();
-		ajaxActionDescriptor.setPath(path);
-		ajaxActionDescriptor.setType(type);
+		parseActionAttributes(aAjaxActionElem, ajaxActionDescriptor);
+		
+		//concurrent identical requests to a coalesced ajax action share a single execution
+		if (Boolean.parseBoolean(aAjaxActionElem.getAttribute("coalesce")))
+		{
+			ajaxActionDescriptor.setSingleFlightGroup(new SingleFlightGroup(parseNamesList(aAjaxActionElem.getAttribute("coalesce-ignore"))));
+		}
+		
+		//a newer request of a session to a latest wins ajax action supersedes the older one
+		if (Boolean.parseBoolean(aAjaxActionElem.getAttribute("latest-wins")))
+		{
+			if (ajaxActionDescriptor.getSingleFlightGroup() != null)
+			{
+				String errMsg = "ajax action " + ajaxActionDescriptor.getPath() + " can't be both coalesced and latest-wins";
+				System.out.println(errMsg);
+				throw new MVCInitializationException(errMsg, MVCExceptionCodes.MVC_CONFIGURATION_PARSE_ERROR);
+			}
+			
+			ajaxActionDescriptor.setLatestWinsRegistry(new LatestWinsRegistry(ajaxActionDescriptor.getPath()));
+		}
+		
+		//concurrent requests to a micro batched ajax action are executed together, as a batch
+		int batchWindowMillis = parsePositiveIntAttribute(aAjaxActionElem, "batch-window-ms", 0);
+		if (batchWindowMillis > 0)
+		{
+			ajaxActionDescriptor.setMicroBatcher(new MicroBatcher(ajaxActionDescriptor.getPath(), batchWindowMillis, 
+					parsePositiveIntAttribute(aAjaxActionElem, "batch-max-size", 32)));
+		}
+		
+		//the canned response written back while the circuit breaker of the action is open
+		if (aAjaxActionElem.hasAttribute("circuit-fallback-response"))
+		{
+			String contentType = aAjaxActionElem.getAttribute("circuit-fallback-content-type");
+			ajaxActionDescriptor.setFallbackResponse(new AjaxActionResponse(null, aAjaxActionElem.getAttribute("circuit-fallback-response"), 
+					"".equals(contentType) ? null : contentType));
+		}
 				
 		return ajaxActionDescriptor;
 	}
@@ -397,36 +923,331 @@ public class MVCConfigurationManager
 	
 	
 	/**
-	 * adds a new action descriptor to the configuration
+	 * resolves the action type of the given descriptor into an action factory, and keeps
+	 * it on the descriptor (along with the action instance, if it is singleton scoped). 
+	 * this is done once upon configuration load, so an action with a bad type fails the 
+	 * initialization instead of its first request.
 	 * 
-	 * @param aActionDescriptor the action descriptor to add
+	 * @param aActionDescriptor the action descriptor to resolve its factory
+	 * 
+	 * @throws ResolveActionException when the action type cannot be resolved
 	 */
-	public void addMVCAction(MVCConfigActionDescriptor aActionDescriptor)
+	protected void resolveActionFactory(BaseConfigActionDescriptor aActionDescriptor)
+		throws ResolveActionException
 	{
-		if (aActionDescriptor == null || aActionDescriptor.getPath() == null)
+		if (aActionDescriptor.getActionFactory() == null)
 		{
-			return;
+			aActionDescriptor.setActionFactory(MethodHandleActionFactory.forType(aActionDescriptor.getPath(), aActionDescriptor.getType()));
 		}
 		
-		mActionMappings.put(aActionDescriptor.getPath(), aActionDescriptor);
+		//a singleton action is created upfront as well
+		if (aActionDescriptor.getScope() == ActionScope.singleton && aActionDescriptor.getSingletonAction() == null)
+		{
+			aActionDescriptor.setSingletonAction(ActionResolver.createSingletonAction(aActionDescriptor));
+		}
 	}
 	
 	
+	
 	/**
-	 * retrieves an action descriptor according to the the given action name
-	 * 
-	 * @param aActionPath the name of the action to retrieve 
+	 * registers an interceptor by name. the interceptor chains of the actions should be 
+	 * compiled again (by calling compileInterceptorChains) for the interceptor to take effect.
 	 * 
-	 * @return the action descriptor
+	 * @param aName the name of the interceptor, used to declare it on actions
+	 * @param aInterceptor the interceptor instance, shared by all requests
+	 * @param aGlobal true if the interceptor should be applied to all the (page) actions
 	 */
-	public MVCConfigActionDescriptor getMVCAction(String aActionPath)
+	public void addInterceptor(String aName, IActionInterceptor aInterceptor, boolean aGlobal)
 	{
-		return mActionMappings.get(aActionPath);
+		addInterceptor(aName, aInterceptor, aGlobal, false);
 	}
 	
 	
 	/**
-	 * adds a new ajax action descriptor to the configuration
+	 * registers an interceptor by name. a global interceptor is applied to all the actions of 
+	 * its own kind only: a global interceptor of the mvc configuration to the page actions, and
+	 * a global interceptor of the ajax configuration to the ajax actions.
+	 * 
+	 * @param aName the name of the interceptor, used to declare it on actions
+	 * @param aInterceptor the interceptor instance, shared by all requests
+	 * @param aGlobal true if the interceptor should be applied to all the actions of its kind
+	 * @param aAjax true if the interceptor is global to the ajax actions rather than to the page actions
+	 */
+	public void addInterceptor(String aName, IActionInterceptor aInterceptor, boolean aGlobal, boolean aAjax)
+	{
+		synchronized (mInterceptors)
+		{
+			IActionInterceptor prevInterceptor = mInterceptors.put(aName, aInterceptor);
+			if (prevInterceptor != null)
+			{
+				mGlobalInterceptors.remove(prevInterceptor);
+				mGlobalAjaxInterceptors.remove(prevInterceptor);
+			}
+			if (aGlobal)
+			{
+				(aAjax ? mGlobalAjaxInterceptors : mGlobalInterceptors).add(aInterceptor);
+			}
+			mGlobalInterceptorChain = new ActionInterceptorChain(mGlobalInterceptors.toArray(new IActionInterceptor[mGlobalInterceptors.size()]));
+			mGlobalAjaxInterceptorChain = new ActionInterceptorChain(mGlobalAjaxInterceptors.toArray(new IActionInterceptor[mGlobalAjaxInterceptors.size()]));
+		}
+	}
+	
+	
+	/**
+	 * compiles the interceptor chain of every action and ajax action: first the global 
+	 * interceptors of its kind (page or ajax), in declaration order, and then the interceptors 
+	 * declared on the action.
+	 * 
+	 * @throws MVCInitializationException when an action declares an interceptor which is not defined
+	 */
+	public void compileInterceptorChains()
+		throws MVCInitializationException
+	{
+		for (MVCConfigActionDescriptor actionDescriptor : mActionMappings.values())
+		{
+			actionDescriptor.setInterceptorChain(compileInterceptorChain(actionDescriptor));
+		}
+		for (AjaxConfigActionDescriptor ajaxActionDescriptor : mAjaxActionMappings.values())
+		{
+			ajaxActionDescriptor.setInterceptorChain(compileInterceptorChain(ajaxActionDescriptor));
+		}
+	}
+	
+	
+	/**
+	 * compiles the forwards of every action, along with the global forwards, into navigation 
+	 * targets, so navigating a request takes a single lookup. the forwards chaining to an action
+	 * are validated as well, so a bad chained action fails the initialization instead of its 
+	 * first request.
+	 * 
+	 * @throws MVCInitializationException when a forward chains to an action which is not defined,
+	 * or declares a path or a redirect along with the action it chains to
+	 */
+	public void compileNavigationTargets()
+		throws MVCInitializationException
+	{
+		for (MVCConfigForwardDescriptor forwardDescriptor : mGlobalForwards.values())
+		{
+			validateChainedAction(forwardDescriptor, "global forwards");
+		}
+		
+		for (MVCConfigActionDescriptor actionDescriptor : mActionMappings.values())
+		{
+			for (MVCConfigForwardDescriptor forwardDescriptor : actionDescriptor.getForwards().values())
+			{
+				validateChainedAction(forwardDescriptor, actionDescriptor.getPath());
+			}
+			
+			actionDescriptor.setNavigationTargets(compileNavigationTargets(actionDescriptor));
+		}
+	}
+	
+	
+	protected void validateChainedAction(MVCConfigForwardDescriptor aForwardDescriptor, String aDeclaringPath)
+		throws MVCInitializationException
+	{
+		if (aForwardDescriptor.getAction() == null)
+		{
+			return;
+		}
+		
+		//a chained action is navigated by its own forwards, so a path or a redirect would be ignored
+		if ((aForwardDescriptor.getPath() != null && !"".equals(aForwardDescriptor.getPath())) || Boolean.parseBoolean(aForwardDescriptor.getRedirect()))
+		{
+			throw new MVCInitializationException("forward " + aForwardDescriptor.getName() + " of " + aDeclaringPath + 
+												 " declares an action along with a path or a redirect", MVCExceptionCodes.MVC_CONFIGURATION_PARSE_ERROR);
+		}
+		
+		if (getMVCAction(aForwardDescriptor.getAction()) == null)
+		{
+			throw new MVCInitializationException("forward " + aForwardDescriptor.getName() + " of " + aDeclaringPath + 
+												 " chains to an action which is not defined: " + aForwardDescriptor.getAction(), MVCExceptionCodes.MVC_CANT_FIND_ACTION_PATH);
+		}
+	}
+	
+	
+	protected Map<String, NavigationTarget> compileNavigationTargets(MVCConfigActionDescriptor aActionDescriptor)
+	{
+		Map<String, NavigationTarget> navigationTargets = new HashMap<String, NavigationTarget>();
+		for (MVCConfigForwardDescriptor forwardDescriptor : mGlobalForwards.values())
+		{
+			navigationTargets.put(forwardDescriptor.getName(), new NavigationTarget(forwardDescriptor));
+		}
+		
+		//the forwards of the action take precedence over the global forwards
+		for (MVCConfigForwardDescriptor forwardDescriptor : aActionDescriptor.getForwards().values())
+		{
+			navigationTargets.put(forwardDescriptor.getName(), new NavigationTarget(forwardDescriptor));
+		}
+		
+		return Collections.unmodifiableMap(navigationTargets);
+	}
+	
+	
+	/**
+	 * retrieves the navigation target of the given forward name for the given action: the 
+	 * forward of the action, or the global forward
+	 * 
+	 * @param aActionDescriptor the action descriptor
+	 * @param aForwardName the forward name
+	 * 
+	 * @return the navigation target, or null if the forward name is not defined
+	 */
+	public NavigationTarget getNavigationTarget(MVCConfigActionDescriptor aActionDescriptor, String aForwardName)
+	{
+		return (aForwardName == null) ? null : getNavigationTargets(aActionDescriptor).get(aForwardName);
+	}
+	
+	
+	/**
+	 * retrieves the navigation targets of the given action by forward name: the forwards of the 
+	 * action, and the global forwards it does not override
+	 * 
+	 * @param aActionDescriptor the action descriptor
+	 * 
+	 * @return the navigation targets
+	 */
+	public Map<String, NavigationTarget> getNavigationTargets(MVCConfigActionDescriptor aActionDescriptor)
+	{
+		Map<String, NavigationTarget> navigationTargets = aActionDescriptor.getNavigationTargets();
+		if (navigationTargets == null)
+		{
+			//the forwards of the action were changed since compiled (or were never compiled)
+			navigationTargets = compileNavigationTargets(aActionDescriptor);
+			aActionDescriptor.setNavigationTargets(navigationTargets);
+		}
+		
+		return navigationTargets;
+	}
+	
+	
+	/**
+	 * retrieves the critical resources of the pages the given action may navigate to, through
+	 * its forwards or the global forwards
+	 * 
+	 * @param aActionDescriptor the action descriptor
+	 * 
+	 * @return the preload links, or null if none of its navigation targets declares any
+	 */
+	public PreloadLinks getPreloadLinks(MVCConfigActionDescriptor aActionDescriptor)
+	{
+		getNavigationTargets(aActionDescriptor);
+		return aActionDescriptor.getPreloadLinks();
+	}
+	
+	
+	protected ActionInterceptorChain compileInterceptorChain(BaseConfigActionDescriptor aActionDescriptor)
+		throws MVCInitializationException
+	{
+		synchronized (mInterceptors)
+		{
+			List<IActionInterceptor> chain = new ArrayList<IActionInterceptor>(isAjaxAction(aActionDescriptor) ? mGlobalAjaxInterceptors : mGlobalInterceptors);
+			for (String interceptorName : aActionDescriptor.getInterceptorNames())
+			{
+				IActionInterceptor interceptor = mInterceptors.get(interceptorName);
+				if (interceptor == null)
+				{
+					throw new MVCInitializationException("interceptor is not defined: " + interceptorName + " for action: " + aActionDescriptor.getPath(), MVCExceptionCodes.MVC_INTERCEPTOR_IS_NOT_DEFINED);
+				}
+				if (!chain.contains(interceptor))
+				{
+					chain.add(interceptor);
+				}
+			}
+			
+			if (chain.isEmpty())
+			{
+				return ActionInterceptorChain.EMPTY;
+			}
+			
+			return new ActionInterceptorChain(chain.toArray(new IActionInterceptor[chain.size()]));
+		}
+	}
+	
+	
+	/**
+	 * returns the interceptor chain to run for the given action. if the chain of the action
+	 * was not compiled (the action was added after the configuration was loaded), the chain of
+	 * the global interceptors of its kind is returned
+	 * 
+	 * @param aActionDescriptor the action descriptor
+	 * 
+	 * @return the interceptor chain of the action
+	 */
+	public ActionInterceptorChain getInterceptorChain(BaseConfigActionDescriptor aActionDescriptor)
+	{
+		ActionInterceptorChain chain = aActionDescriptor.getInterceptorChain();
+		if (chain == null)
+		{
+			return isAjaxAction(aActionDescriptor) ? mGlobalAjaxInterceptorChain : mGlobalInterceptorChain;
+		}
+		
+		return chain;
+	}
+	
+	
+	protected static boolean isAjaxAction(BaseConfigActionDescriptor aActionDescriptor)
+	{
+		return aActionDescriptor instanceof AjaxConfigActionDescriptor;
+	}
+	
+	
+	
+	/**
+	 * adds a new action descriptor to the configuration
+	 * 
+	 * @param aActionDescriptor the action descriptor to add
+	 */
+	public void addMVCAction(MVCConfigActionDescriptor aActionDescriptor)
+	{
+		if (aActionDescriptor == null || aActionDescriptor.getPath() == null)
+		{
+			return;
+		}
+		
+		mActionMappings.put(aActionDescriptor.getPath(), aActionDescriptor);
+		mMVCActionRouter = null;
+	}
+	
+	
+	/**
+	 * retrieves an action descriptor according to the the given action name
+	 * 
+	 * @param aActionPath the name of the action to retrieve 
+	 * 
+	 * @return the action descriptor
+	 */
+	public MVCConfigActionDescriptor getMVCAction(String aActionPath)
+	{
+		return mActionMappings.get(aActionPath);
+	}
+	
+	
+	/**
+	 * returns the router matching request URIs onto the action mappings. the router is 
+	 * built out of the action mappings the first time it is needed after they changed.
+	 * 
+	 * @return the action router
+	 */
+	public ActionRouter<MVCConfigActionDescriptor> getMVCActionRouter()
+	{
+		ActionRouter<MVCConfigActionDescriptor> router = mMVCActionRouter;
+		if (router == null)
+		{
+			router = new ActionRouter<MVCConfigActionDescriptor>();
+			for (MVCConfigActionDescriptor actionDescriptor : mActionMappings.values())
+			{
+				router.addRoute(actionDescriptor.getPath(), actionDescriptor);
+			}
+			mMVCActionRouter = router;
+		}
+		
+		return router;
+	}
+	
+	
+	/**
+	 * adds a new ajax action descriptor to the configuration
 	 * 
 	 * @param aActionDescriptor the ajax action descriptor to add
 	 */
@@ -438,6 +1259,7 @@ public class MVCConfigurationManager
 		}
 		
 		mAjaxActionMappings.put(aAjaxActionDescriptor.getPath(), aAjaxActionDescriptor);
+		mAjaxActionRouter = null;
 	}
 	
 	
@@ -454,6 +1276,67 @@ public class MVCConfigurationManager
 	}
 	
 	
+	/**
+	 * adds a new global forward descriptor to the configuration
+	 * 
+	 * @param aForwardDescriptor the global forward descriptor to add
+	 */
+	public void addGlobalForward(MVCConfigForwardDescriptor aForwardDescriptor)
+	{
+		if (aForwardDescriptor == null || aForwardDescriptor.getName() == null)
+		{
+			return;
+		}
+		
+		mGlobalForwards.put(aForwardDescriptor.getName(), aForwardDescriptor);
+		
+		//the navigation targets of all actions include the global forwards
+		for (MVCConfigActionDescriptor actionDescriptor : mActionMappings.values())
+		{
+			actionDescriptor.setNavigationTargets(null);
+		}
+	}
+	
+	
+	/**
+	 * adds a new java bean descriptor to the configuration
+	 * 
+	 * @param aJavabeanDescriptor the java bean descriptor to add
+	 */
+	public void addJavabeanMapping(MVCConfigJavabeanDescriptor aJavabeanDescriptor)
+	{
+		if (aJavabeanDescriptor == null || aJavabeanDescriptor.getName() == null)
+		{
+			return;
+		}
+		
+		mJavabeanMappings.put(aJavabeanDescriptor.getName(), aJavabeanDescriptor);
+	}
+	
+	
+	/**
+	 * returns the router matching request URIs onto the ajax action mappings. the router is 
+	 * built out of the ajax action mappings the first time it is needed after they changed.
+	 * 
+	 * @return the ajax action router
+	 */
+	public ActionRouter<AjaxConfigActionDescriptor> getAjaxActionRouter()
+	{
+		ActionRouter<AjaxConfigActionDescriptor> router = mAjaxActionRouter;
+		if (router == null)
+		{
+			router = new ActionRouter<AjaxConfigActionDescriptor>();
+			for (AjaxConfigActionDescriptor ajaxActionDescriptor : mAjaxActionMappings.values())
+			{
+				router.addRoute(ajaxActionDescriptor.getPath(), ajaxActionDescriptor);
+			}
+			mAjaxActionRouter = router;
+		}
+		
+		return router;
+	}
+	
+	
 	/**
 	 * retrieves a global forward descriptor according to the given forward name
 	 * 
@@ -500,6 +1383,275 @@ public class MVCConfigurationManager
 	}
 
 
+	/**
+	 * parses the optional idempotency element, bounding the store of idempotency tokens:
+	 * &lt;idempotency max-entries="10000" ttl-seconds="300" wait-seconds="30"/&gt;
+	 */
+	protected void parseIdempotency(XPath aXPath, Document aDocument)
+		throws XPathExpressionException, MVCInitializationException
+	{
+		NodeList nodeList = (NodeList)aXPath.evaluate("//tinyj-mvc-config/idempotency", aDocument, XPathConstants.NODESET);
+		if (nodeList.getLength() == 1)
+		{
+			Element idempotencyElem = (Element)nodeList.item(0);
+			mIdempotencyMaxEntries = parsePositiveIntAttribute(idempotencyElem, "max-entries", mIdempotencyMaxEntries);
+			mIdempotencyTTLSeconds = parsePositiveIntAttribute(idempotencyElem, "ttl-seconds", mIdempotencyTTLSeconds);
+			mIdempotencyWaitSeconds = parsePositiveIntAttribute(idempotencyElem, "wait-seconds", mIdempotencyWaitSeconds);
+		}
+	}
+	
+	
+	/**
+	 * parses the optional async element, configuring the asynchronous execution of AsyncActions:
+	 * &lt;async timeout-seconds="30" timeout-forward="timeout" error-forward="error"/&gt;
+	 * the forwards are only used by mvc actions. an ajax action failure is answered with an
+	 * http error status. the settings are shared by the page actions and the ajax actions, so 
+	 * the element is declared in one of the configuration files only. declaring it in both fails
+	 * the initialization
+	 */
+	protected void parseAsync(XPath aXPath, Document aDocument, String aExpression)
+		throws XPathExpressionException, MVCInitializationException
+	{
+		NodeList nodeList = (NodeList)aXPath.evaluate(aExpression, aDocument, XPathConstants.NODESET);
+		if (nodeList.getLength() == 1)
+		{
+			if (mAsyncDeclared)
+			{
+				String errMsg = "async is already declared (it is shared by the mvc and ajax configuration, and should be declared in one of them only)";
+				System.out.println(errMsg);
+				throw new MVCInitializationException(errMsg, MVCExceptionCodes.MVC_CONFIGURATION_PARSE_ERROR);
+			}
+			mAsyncDeclared = true;
+			
+			Element asyncElem = (Element)nodeList.item(0);
+			mAsyncTimeoutSeconds = parsePositiveIntAttribute(asyncElem, "timeout-seconds", mAsyncTimeoutSeconds);
+			
+			String timeoutForward = asyncElem.getAttribute("timeout-forward");
+			if (timeoutForward != null && !"".equals(timeoutForward))
+			{
+				mAsyncTimeoutForward = timeoutForward;
+			}
+			
+			String errorForward = asyncElem.getAttribute("error-forward");
+			if (errorForward != null && !"".equals(errorForward))
+			{
+				mAsyncErrorForward = errorForward;
+			}
+		}
+	}
+	
+	
+	/**
+	 * parses the optional execution element, setting the default mode of executing actions,
+	 * the maximal number of actions executing at once off the container threads, and the
+	 * default timeout of actions (see Deadline), and the maximal number of actions chained by a 
+	 * single request (see the action attribute of a forward):
+	 * &lt;execution mode="virtual" max-concurrency="1000" timeout-ms="10000" max-chain-depth="8"/&gt;
+	 * the settings are shared by the page actions and the ajax actions, so the element is 
+	 * declared in one of the configuration files only. declaring it in both fails the initialization
+	 */
+	protected void parseExecution(XPath aXPath, Document aDocument, String aExpression)
+		throws XPathExpressionException, MVCInitializationException
+	{
+		NodeList nodeList = (NodeList)aXPath.evaluate(aExpression, aDocument, XPathConstants.NODESET);
+		if (nodeList.getLength() == 1)
+		{
+			if (mExecutionDeclared)
+			{
+				String errMsg = "execution is already declared (it is shared by the mvc and ajax configuration, and should be declared in one of them only)";
+				System.out.println(errMsg);
+				throw new MVCInitializationException(errMsg, MVCExceptionCodes.MVC_CONFIGURATION_PARSE_ERROR);
+			}
+			mExecutionDeclared = true;
+			
+			Element executionElem = (Element)nodeList.item(0);
+			mExecutionMode = parseExecutionMode(executionElem.getAttribute("mode"), mExecutionMode);
+			mExecutionMaxConcurrency = parsePositiveIntAttribute(executionElem, "max-concurrency", mExecutionMaxConcurrency);
+			mExecutionTimeoutMillis = parsePositiveIntAttribute(executionElem, "timeout-ms", mExecutionTimeoutMillis);
+			mExecutionMaxChainDepth = parsePositiveIntAttribute(executionElem, "max-chain-depth", mExecutionMaxChainDepth);
+		}
+	}
+	
+	
+	/**
+	 * parses the optional background-tasks element, configuring the executor of the tasks actions 
+	 * run after their response (see MVCContext.runAfterResponse): the number of threads, the size 
+	 * of the queue, what is dropped when the queue is full (discard, discard-oldest or 
+	 * caller-runs), and how long the queued tasks are drained on shutdown:
+	 * &lt;background-tasks threads="4" queue-size="1000" overflow="discard" drain-seconds="10"/&gt;
+	 * a single executor runs the tasks of the page actions and the ajax actions, so the element is
+	 * declared in one of the configuration files only. declaring it in both fails the initialization
+	 */
+	protected void parseBackgroundTasks(XPath aXPath, Document aDocument, String aExpression)
+		throws XPathExpressionException, MVCInitializationException
+	{
+		NodeList nodeList = (NodeList)aXPath.evaluate(aExpression, aDocument, XPathConstants.NODESET);
+		if (nodeList.getLength() == 1)
+		{
+			if (mBackgroundTasksDeclared)
+			{
+				String errMsg = "background-tasks is already declared (it is shared by the mvc and ajax configuration, and should be declared in one of them only)";
+				System.out.println(errMsg);
+				throw new MVCInitializationException(errMsg, MVCExceptionCodes.MVC_CONFIGURATION_PARSE_ERROR);
+			}
+			mBackgroundTasksDeclared = true;
+			
+			Element backgroundTasksElem = (Element)nodeList.item(0);
+			mBackgroundTaskThreads = parsePositiveIntAttribute(backgroundTasksElem, "threads", mBackgroundTaskThreads);
+			mBackgroundTaskQueueSize = parsePositiveIntAttribute(backgroundTasksElem, "queue-size", mBackgroundTaskQueueSize);
+			mBackgroundTaskDrainSeconds = parsePositiveIntAttribute(backgroundTasksElem, "drain-seconds", mBackgroundTaskDrainSeconds);
+			
+			String overflowPolicy = backgroundTasksElem.getAttribute("overflow");
+			if (overflowPolicy != null && !"".equals(overflowPolicy))
+			{
+				if (!BackgroundTaskExecutor.OVERFLOW_DISCARD.equals(overflowPolicy) && 
+					!BackgroundTaskExecutor.OVERFLOW_DISCARD_OLDEST.equals(overflowPolicy) && 
+					!BackgroundTaskExecutor.OVERFLOW_CALLER_RUNS.equals(overflowPolicy))
+				{
+					String errMsg = "background-tasks overflow is not valid (should be discard, discard-oldest or caller-runs): " + overflowPolicy;
+					System.out.println(errMsg);
+					throw new MVCInitializationException(errMsg, MVCExceptionCodes.MVC_CONFIGURATION_PARSE_ERROR);
+				}
+				
+				mBackgroundTaskOverflowPolicy = overflowPolicy;
+			}
+		}
+	}
+	
+	
+	/**
+	 * parses the optional rate-limiting element, giving the key identifying the clients of rate
+	 * limited actions (session, ip or cookie), and the number of clients tracked per action:
+	 * &lt;rate-limiting key="cookie" cookie="clientId" max-clients="10000"/&gt;
+	 * it should precede the actions, since their rate limiters are created as they are parsed.
+	 * the settings apply to the actions of the parsed configuration file only, and a file without
+	 * the element gets the defaults (the ip address, and 10000 clients)
+	 */
+	protected void parseRateLimiting(XPath aXPath, Document aDocument, String aExpression)
+		throws XPathExpressionException, MVCInitializationException
+	{
+		mRateLimitingKey = RateLimiter.KEY_IP;
+		mRateLimitingCookie = null;
+		mRateLimitingMaxClients = 10000;
+		
+		NodeList nodeList = (NodeList)aXPath.evaluate(aExpression, aDocument, XPathConstants.NODESET);
+		if (nodeList.getLength() == 1)
+		{
+			Element rateLimitingElem = (Element)nodeList.item(0);
+			
+			String key = rateLimitingElem.getAttribute("key");
+			if (key != null && !"".equals(key))
+			{
+				if (!RateLimiter.KEY_SESSION.equals(key) && !RateLimiter.KEY_IP.equals(key) && !RateLimiter.KEY_COOKIE.equals(key))
+				{
+					String errMsg = "rate-limiting key is not valid (should be session, ip or cookie): " + key;
+					System.out.println(errMsg);
+					throw new MVCInitializationException(errMsg, MVCExceptionCodes.MVC_CONFIGURATION_PARSE_ERROR);
+				}
+				mRateLimitingKey = key;
+			}
+			
+			mRateLimitingCookie = rateLimitingElem.getAttribute("cookie");
+			if (RateLimiter.KEY_COOKIE.equals(mRateLimitingKey) && (mRateLimitingCookie == null || "".equals(mRateLimitingCookie)))
+			{
+				String errMsg = "rate-limiting by cookie requires the cookie name";
+				System.out.println(errMsg);
+				throw new MVCInitializationException(errMsg, MVCExceptionCodes.MVC_CONFIGURATION_PARSE_ERROR);
+			}
+			
+			mRateLimitingMaxClients = parsePositiveIntAttribute(rateLimitingElem, "max-clients", mRateLimitingMaxClients);
+		}
+	}
+	
+	
+	/**
+	 * parses the optional priority-scheduling element, bounding the number of actions executing
+	 * at once, and scheduling them by their priority class:
+	 * &lt;priority-scheduling max-concurrency="200" queue-size="400" max-wait-ms="2000"/&gt;
+	 * a single scheduler schedules the page actions and the ajax actions together, so the element
+	 * is declared in one of the configuration files only. declaring it in both fails the 
+	 * initialization, rather than letting the file loaded last silently win
+	 */
+	protected void parsePriorityScheduling(XPath aXPath, Document aDocument, String aExpression)
+		throws XPathExpressionException, MVCInitializationException
+	{
+		NodeList nodeList = (NodeList)aXPath.evaluate(aExpression, aDocument, XPathConstants.NODESET);
+		if (nodeList.getLength() == 1)
+		{
+			if (mPriorityScheduler != null)
+			{
+				String errMsg = "priority-scheduling is already declared (it is shared by the mvc and ajax configuration, and should be declared in one of them only)";
+				System.out.println(errMsg);
+				throw new MVCInitializationException(errMsg, MVCExceptionCodes.MVC_CONFIGURATION_PARSE_ERROR);
+			}
+			
+			Element schedulingElem = (Element)nodeList.item(0);
+			int maxConcurrency = parsePositiveIntAttribute(schedulingElem, "max-concurrency", 200);
+			int queueSize = parsePositiveIntAttribute(schedulingElem, "queue-size", maxConcurrency * 2);
+			int maxWaitMillis = parsePositiveIntAttribute(schedulingElem, "max-wait-ms", 2000);
+			
+			mPriorityScheduler = new PriorityScheduler(maxConcurrency, queueSize, maxWaitMillis);
+		}
+	}
+	
+	
+	/**
+	 * parses the optional load-shedding element, giving the (global) forward a page action shed by
+	 * its concurrency limit navigates to: &lt;load-shedding forward="busy"/&gt;
+	 * without it, a shed request is answered with http 503
+	 */
+	protected void parseLoadShedding(XPath aXPath, Document aDocument)
+		throws XPathExpressionException
+	{
+		NodeList nodeList = (NodeList)aXPath.evaluate("//tinyj-mvc-config/load-shedding", aDocument, XPathConstants.NODESET);
+		if (nodeList.getLength() == 1)
+		{
+			String forward = ((Element)nodeList.item(0)).getAttribute("forward");
+			if (forward != null && !"".equals(forward))
+			{
+				mLoadSheddingForward = forward;
+			}
+		}
+	}
+	
+	
+	/**
+	 * parses a positive integer attribute of the given element
+	 * 
+	 * @param aElement the element holding the attribute
+	 * @param aAttributeName the name of the attribute
+	 * @param aDefaultValue the value to return when the attribute is missing
+	 * 
+	 * @return the value of the attribute
+	 */
+	protected int parsePositiveIntAttribute(Element aElement, String aAttributeName, int aDefaultValue)
+		throws MVCInitializationException
+	{
+		String value = aElement.getAttribute(aAttributeName);
+		if (value == null || "".equals(value))
+		{
+			return aDefaultValue;
+		}
+		
+		try
+		{
+			int intValue = Integer.parseInt(value.trim());
+			if (intValue > 0)
+			{
+				return intValue;
+			}
+		}
+		catch(NumberFormatException nfe)
+		{
+			//handled below
+		}
+		
+		String errMsg = aElement.getTagName() + " " + aAttributeName + " is not a valid positive Integer: " + value;
+		System.out.println(errMsg);
+		throw new MVCInitializationException(errMsg, MVCExceptionCodes.MVC_CONFIGURATION_PARSE_ERROR);
+	}
+	
+	
 	/**
 	 * retrieves all the java beans mapping as an iterator
 	 * 
@@ -521,4 +1673,250 @@ public class MVCConfigurationManager
 		return mPageHistoryStackSize;
 	}
 	
-}
\ No newline at end of file
+	
+	/**
+	 * sets the page-history-stack size
+	 * 
+	 * @param aPageHistoryStackSize the page-history-stack size
+	 */
+	public void setPageHistoryStackSize(int aPageHistoryStackSize)
+	{
+		mPageHistoryStackSize = aPageHistoryStackSize;
+	}
+	
+	
+	/**
+	 * returns the maximal number of idempotency tokens held at once
+	 */
+	public int getIdempotencyMaxEntries()
+	{
+		return mIdempotencyMaxEntries;
+	}
+	
+	
+	/**
+	 * returns the number of seconds an idempotency token (and its stored response) is kept
+	 */
+	public int getIdempotencyTTLSeconds()
+	{
+		return mIdempotencyTTLSeconds;
+	}
+	
+	
+	/**
+	 * returns the number of seconds a repeated submission waits for the first one to complete
+	 */
+	public int getIdempotencyWaitSeconds()
+	{
+		return mIdempotencyWaitSeconds;
+	}
+	
+	
+	/**
+	 * returns the number of milliseconds an asynchronous execution of the given action may take
+	 * 
+	 * @param aActionDescriptor the descriptor of the action
+	 * 
+	 * @return the async timeout in milliseconds
+	 */
+	public long getAsyncTimeoutMillis(BaseConfigActionDescriptor aActionDescriptor)
+	{
+		int timeoutSeconds = aActionDescriptor.getAsyncTimeoutSeconds();
+		if (timeoutSeconds <= 0)
+		{
+			timeoutSeconds = mAsyncTimeoutSeconds;
+		}
+		
+		return timeoutSeconds * 1000L;
+	}
+	
+	
+	/**
+	 * returns the forward name an mvc action is navigated to when its asynchronous execution 
+	 * times out
+	 * 
+	 * @return the timeout forward name, or null if not configured
+	 */
+	public String getAsyncTimeoutForward()
+	{
+		return mAsyncTimeoutForward;
+	}
+	
+	
+	/**
+	 * returns the forward name an mvc action is navigated to when its asynchronous execution 
+	 * fails
+	 * 
+	 * @return the error forward name, or null if not configured
+	 */
+	public String getAsyncErrorForward()
+	{
+		return mAsyncErrorForward;
+	}
+	
+	
+	/**
+	 * returns the mode of executing the given action: its own execution mode, or the default one
+	 * 
+	 * @param aActionDescriptor the descriptor of the action
+	 * 
+	 * @return the execution mode of the action
+	 */
+	public ActionExecutionMode getExecutionMode(BaseConfigActionDescriptor aActionDescriptor)
+	{
+		ActionExecutionMode executionMode = aActionDescriptor.getExecutionMode();
+		if (executionMode == null)
+		{
+			return mExecutionMode;
+		}
+		
+		return executionMode;
+	}
+	
+	
+	/**
+	 * returns the maximal number of actions executing at once off the container threads
+	 */
+	public int getExecutionMaxConcurrency()
+	{
+		return mExecutionMaxConcurrency;
+	}
+	
+	
+	/**
+	 * returns the time budget of a request to the given action: its own timeout, or the 
+	 * default one
+	 * 
+	 * @param aActionDescriptor the descriptor of the action
+	 * 
+	 * @return the timeout in milliseconds, 0 if the action has no deadline
+	 */
+	public int getTimeoutMillis(BaseConfigActionDescriptor aActionDescriptor)
+	{
+		int timeoutMillis = aActionDescriptor.getTimeoutMillis();
+		if (timeoutMillis == 0)
+		{
+			return mExecutionTimeoutMillis;
+		}
+		
+		return timeoutMillis;
+	}
+	
+	
+	/**
+	 * returns the forward a page action shed by its concurrency limit navigates to
+	 * 
+	 * @return the load shedding forward name, or null if not configured
+	 */
+	public String getLoadSheddingForward()
+	{
+		return mLoadSheddingForward;
+	}
+	
+	
+	/**
+	 * returns the current concurrency limits of all the limited actions, by action path 
+	 * (with the .act or .ajx extension). the limits are live, so this is useful for monitoring
+	 * 
+	 * @return the concurrency limits of the limited actions
+	 */
+	public Map<String, AdaptiveConcurrencyLimit> getConcurrencyLimits()
+	{
+		Map<String, AdaptiveConcurrencyLimit> concurrencyLimits = new LinkedHashMap<String, AdaptiveConcurrencyLimit>();
+		for (MVCConfigActionDescriptor actionDescriptor : mActionMappings.values())
+		{
+			if (actionDescriptor.getConcurrencyLimit() != null)
+			{
+				concurrencyLimits.put(actionDescriptor.getPath() + ActionResolver.MVC_ACTION_EXTENSION, actionDescriptor.getConcurrencyLimit());
+			}
+		}
+		for (AjaxConfigActionDescriptor ajaxActionDescriptor : mAjaxActionMappings.values())
+		{
+			if (ajaxActionDescriptor.getConcurrencyLimit() != null)
+			{
+				concurrencyLimits.put(ajaxActionDescriptor.getPath() + ActionResolver.AJAX_ACTION_EXTENSION, ajaxActionDescriptor.getConcurrencyLimit());
+			}
+		}
+		
+		return concurrencyLimits;
+	}
+	
+	
+	/**
+	 * returns the scheduler of the actions by their priority class
+	 * 
+	 * @return the priority scheduler, or null if the priority-scheduling element is not configured
+	 */
+	public PriorityScheduler getPriorityScheduler()
+	{
+		return mPriorityScheduler;
+	}
+	
+	
+	/**
+	 * returns the priority class of the given action: its own priority, or by default high for 
+	 * page actions and normal for ajax actions
+	 * 
+	 * @param aActionDescriptor the descriptor of the action
+	 * 
+	 * @return the priority class of the action
+	 */
+	public ActionPriority getActionPriority(BaseConfigActionDescriptor aActionDescriptor)
+	{
+		ActionPriority priority = aActionDescriptor.getPriority();
+		if (priority == null)
+		{
+			return (aActionDescriptor instanceof MVCConfigActionDescriptor) ? ActionPriority.high : ActionPriority.normal;
+		}
+		
+		return priority;
+	}
+	
+	
+	/**
+	 * returns the number of threads running the tasks actions run after their response
+	 */
+	public int getBackgroundTaskThreads()
+	{
+		return mBackgroundTaskThreads;
+	}
+	
+	
+	/**
+	 * returns the maximal number of tasks waiting for a background thread
+	 */
+	public int getBackgroundTaskQueueSize()
+	{
+		return mBackgroundTaskQueueSize;
+	}
+	
+	
+	/**
+	 * returns the policy applied on a background task when the queue is full
+	 * 
+	 * @return one of the BackgroundTaskExecutor.OVERFLOW_* policies
+	 */
+	public String getBackgroundTaskOverflowPolicy()
+	{
+		return mBackgroundTaskOverflowPolicy;
+	}
+	
+	
+	/**
+	 * returns the maximal time to wait for the queued background tasks on shutdown
+	 */
+	public int getBackgroundTaskDrainSeconds()
+	{
+		return mBackgroundTaskDrainSeconds;
+	}
+	
+	
+	/**
+	 * returns the maximal number of actions a single request may chain to, through forwards
+	 * with an action attribute, past its own action
+	 */
+	public int getMaxChainDepth()
+	{
+		return mExecutionMaxChainDepth;
+	}
+}
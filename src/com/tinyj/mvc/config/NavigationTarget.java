@@ -0,0 +1,193 @@
+package com.tinyj.mvc.config;
+
+import javax.servlet.RequestDispatcher;
+import javax.servlet.http.HttpServletRequest;
+
+
+/**
+ * a NavigationTarget is a forward of an action (or a global forward), compiled once when the
+ * configuration is loaded, so navigating to it costs no lookups and no parsing: its redirect
+ * flag is parsed upfront, and its redirect URL and request dispatcher are built on first use
+ * and reused by the following requests.
+ * 
+ * the redirect URL is kept for the last scheme, host, port and context path it was built for,
+ * which is the same for all the requests unless the application is served under several hosts.
+ * the request dispatcher is kept only for a context relative (starting with '/') path, as a
+ * relative path is resolved against the path of each request.
+ * 
+ * a navigation target is immutable (but for the objects it caches), and is shared by all requests.
+ * 
+ * @author asaf.peeri
+ *
+ */
+public class NavigationTarget
+{
+	private final MVCConfigForwardDescriptor mForwardDescriptor;
+	private final String mPath;
+	private final boolean mRedirect;
+	
+	private volatile RedirectURL mRedirectURL;
+	private volatile RequestDispatcher mRequestDispatcher;
+	
+	
+	/**
+	 * @param aForwardDescriptor the forward descriptor to compile
+	 */
+	public NavigationTarget(MVCConfigForwardDescriptor aForwardDescriptor)
+	{
+		mForwardDescriptor = aForwardDescriptor;
+		mPath = aForwardDescriptor.getPath();
+		mRedirect = Boolean.parseBoolean(aForwardDescriptor.getRedirect());
+	}
+	
+	
+	public MVCConfigForwardDescriptor getForwardDescriptor()
+	{
+		return mForwardDescriptor;
+	}
+	
+	
+	public String getName()
+	{
+		return mForwardDescriptor.getName();
+	}
+	
+	
+	public String getPath()
+	{
+		return mPath;
+	}
+	
+	
+	public boolean isRedirect()
+	{
+		return mRedirect;
+	}
+	
+	
+	public boolean isBackToCaller()
+	{
+		return mForwardDescriptor.isBackToCaller();
+	}
+	
+	
+	public boolean isAvoidHistorySave()
+	{
+		return mForwardDescriptor.isAvoidHistorySave();
+	}
+	
+	
+	public boolean isCustomURL()
+	{
+		return mForwardDescriptor.isCustomURL();
+	}
+	
+	
+	/**
+	 * returns the path of the action this target chains to, or null if it navigates to a page
+	 */
+	public String getChainedAction()
+	{
+		return mForwardDescriptor.getAction();
+	}
+	
+	
+	/**
+	 * returns the absolute URL redirecting the given request to the path of this target
+	 * 
+	 * @param aRequest the current request
+	 * 
+	 * @return the redirect URL
+	 */
+	public String getRedirectURL(HttpServletRequest aRequest)
+	{
+		String scheme = aRequest.getScheme();
+		String serverName = aRequest.getServerName();
+		int serverPort = aRequest.getServerPort();
+		String contextPath = aRequest.getContextPath();
+		
+		RedirectURL redirectURL = mRedirectURL;
+		if (redirectURL == null || !redirectURL.matches(scheme, serverName, serverPort, contextPath))
+		{
+			redirectURL = new RedirectURL(scheme, serverName, serverPort, contextPath, getRedirectURL(aRequest, mPath));
+			mRedirectURL = redirectURL;
+		}
+		
+		return redirectURL.mURL;
+	}
+	
+	
+	/**
+	 * returns the absolute URL redirecting the given request to the given path
+	 * 
+	 * @param aRequest the current request
+	 * @param aPath the path to redirect to
+	 * 
+	 * @return the redirect URL
+	 */
+	public static String getRedirectURL(HttpServletRequest aRequest, String aPath)
+	{
+		return aRequest.getScheme() + "://" + aRequest.getServerName() + ":" + aRequest.getServerPort() + aRequest.getContextPath() + aPath;
+	}
+	
+	
+	/**
+	 * returns the request dispatcher forwarding the given request to the path of this target
+	 * 
+	 * @param aRequest the current request
+	 * 
+	 * @return the request dispatcher
+	 */
+	public RequestDispatcher getRequestDispatcher(HttpServletRequest aRequest)
+	{
+		if (!mPath.startsWith("/"))
+		{
+			return aRequest.getRequestDispatcher(mPath);
+		}
+		
+		RequestDispatcher requestDispatcher = mRequestDispatcher;
+		if (requestDispatcher == null)
+		{
+			requestDispatcher = aRequest.getRequestDispatcher(mPath);
+			mRequestDispatcher = requestDispatcher;
+		}
+		
+		return requestDispatcher;
+	}
+	
+	
+	public String toString()
+	{
+		return "NavigationTarget[" + getName() + " -> " + mPath + (mRedirect ? ", redirect]" : "]");
+	}
+	
+	
+	
+	/**
+	 * a redirect URL, along with the scheme, host, port and context path it was built for
+	 */
+	protected static class RedirectURL
+	{
+		private final String mScheme;
+		private final String mServerName;
+		private final int mServerPort;
+		private final String mContextPath;
+		private final String mURL;
+		
+		
+		protected RedirectURL(String aScheme, String aServerName, int aServerPort, String aContextPath, String aURL)
+		{
+			mScheme = aScheme;
+			mServerName = aServerName;
+			mServerPort = aServerPort;
+			mContextPath = aContextPath;
+			mURL = aURL;
+		}
+		
+		
+		protected boolean matches(String aScheme, String aServerName, int aServerPort, String aContextPath)
+		{
+			return mServerPort == aServerPort && mServerName.equals(aServerName) && mScheme.equals(aScheme) && mContextPath.equals(aContextPath);
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package com.tinyj.mvc.config;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+
+/**
+ * the critical resources (css and js bundles, fonts, images) of the pages an action forwards
+ * to, compiled into the value of a Link header preloading them:
+ * <pre>
+ *     &lt;/app/css/app.css&gt;; rel=preload; as=style, &lt;/app/js/app.js&gt;; rel=preload; as=script
+ * </pre>
+ * a resource starting with '/' is relative to the context of the application (like the path
+ * of a forward), and any other resource is taken as is (like the URL of a CDN). the kind of
+ * each resource (its "as" destination) is inferred from its extension.
+ * 
+ * the header value is built on first use, for the context path of the application, and is then
+ * reused by all requests.
+ * 
+ * @author asaf.peeri
+ *
+ */
+public class PreloadLinks
+{
+	private final String[] mResources;
+	private volatile CompiledLinks mCompiledLinks;
+	
+	
+	/**
+	 * @param aResources the resources to preload, in order of importance
+	 */
+	public PreloadLinks(Collection<String> aResources)
+	{
+		mResources = aResources.toArray(new String[aResources.size()]);
+	}
+	
+	
+	public String[] getResources()
+	{
+		return mResources.clone();
+	}
+	
+	
+	public boolean isEmpty()
+	{
+		return mResources.length == 0;
+	}
+	
+	
+	/**
+	 * returns the value of the Link header preloading the resources
+	 * 
+	 * @param aContextPath the context path of the application
+	 * 
+	 * @return the Link header value
+	 */
+	public String getLinkHeader(String aContextPath)
+	{
+		CompiledLinks compiledLinks = mCompiledLinks;
+		if (compiledLinks == null || !compiledLinks.mContextPath.equals(aContextPath))
+		{
+			compiledLinks = new CompiledLinks(aContextPath, compile(aContextPath));
+			mCompiledLinks = compiledLinks;
+		}
+		
+		return compiledLinks.mLinkHeader;
+	}
+	
+	
+	protected String compile(String aContextPath)
+	{
+		StringBuilder linkHeader = new StringBuilder(64 * mResources.length);
+		for (String resource : mResources)
+		{
+			if (linkHeader.length() > 0)
+			{
+				linkHeader.append(", ");
+			}
+			
+			linkHeader.append('<');
+			if (resource.startsWith("/") && !resource.startsWith("//"))
+			{
+				linkHeader.append(aContextPath);
+			}
+			linkHeader.append(resource).append(">; rel=preload");
+			
+			String destination = getDestination(resource);
+			if (destination != null)
+			{
+				linkHeader.append("; as=").append(destination);
+			}
+			if ("font".equals(destination))
+			{
+				//fonts are always fetched in cors mode
+				linkHeader.append("; crossorigin");
+			}
+		}
+		
+		return linkHeader.toString();
+	}
+	
+	
+	/**
+	 * returns the destination (the "as" attribute) of a preloaded resource, by its extension
+	 * 
+	 * @param aResource the resource
+	 * 
+	 * @return the destination, or null if unknown
+	 */
+	protected static String getDestination(String aResource)
+	{
+		String path = aResource;
+		int queryStart = path.indexOf('?');
+		if (queryStart >= 0)
+		{
+			path = path.substring(0, queryStart);
+		}
+		
+		String extension = path.substring(path.lastIndexOf('.') + 1).toLowerCase();
+		if ("css".equals(extension))
+		{
+			return "style";
+		}
+		else if ("js".equals(extension) || "mjs".equals(extension))
+		{
+			return "script";
+		}
+		else if ("woff2".equals(extension) || "woff".equals(extension) || "ttf".equals(extension) || "otf".equals(extension))
+		{
+			return "font";
+		}
+		else if ("png".equals(extension) || "jpg".equals(extension) || "jpeg".equals(extension) || "gif".equals(extension) ||
+				 "webp".equals(extension) || "avif".equals(extension) || "svg".equals(extension))
+		{
+			return "image";
+		}
+		
+		return null;
+	}
+	
+	
+	public String toString()
+	{
+		return "PreloadLinks" + Arrays.toString(mResources);
+	}
+	
+	
+	
+	/**
+	 * the Link header value, along with the context path it was built for
+	 */
+	protected static class CompiledLinks
+	{
+		private final String mContextPath;
+		private final String mLinkHeader;
+		
+		
+		protected CompiledLinks(String aContextPath, String aLinkHeader)
+		{
+			mContextPath = aContextPath;
+			mLinkHeader = aLinkHeader;
+		}
+	}
+}
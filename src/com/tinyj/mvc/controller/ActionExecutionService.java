@@ -0,0 +1,320 @@
+package com.tinyj.mvc.controller;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.tinyj.mvc.config.MVCConfigurationManager;
+import com.tinyj.mvc.exception.ActionExecutionException;
+import com.tinyj.mvc.exception.MVCExceptionCodes;
+
+
+/**
+ * The ActionExecutionService executes actions configured with execution="virtual" off the
+ * container thread. when running on java 21 or later, every action is executed on its own 
+ * virtual thread, so thousands of actions blocking on JDBC or remote calls are carried by a few
+ * OS threads. on older java versions, a bounded pool of platform threads is used instead.
+ * 
+ * the number of actions executing at once is bounded by the max-concurrency of the 
+ * &lt;execution&gt; element. an action waits for a free slot up to its async timeout, and then
+ * fails with MVC_ACTION_EXECUTION_CONCURRENCY_LIMIT_REACHED. on platform threads, the pool has
+ * max-concurrency threads, and the actions waiting for a slot wait in a queue of up to 
+ * max-concurrency actions (holding no thread). an action arriving when the queue is full fails
+ * right away, so the number of threads never grows with the load.
+ * 
+ * the subtasks forked by executing actions (see FanOut) run on a pool of their own, bounded the
+ * same way. when it is saturated, a subtask runs on the thread forking it.
+ * 
+ * combined with the async servlet support (see AsyncActionHandler), the container thread is
+ * released while the action executes.
+ * 
+ * @author asaf.peeri
+ *
+ */
+public class ActionExecutionService
+{
+	protected static volatile ActionExecutionService sInstance;
+	private static final ReentrantLock sInstanceLock = new ReentrantLock();
+	
+	private final ExecutorService mExecutorService;
+	private final ExecutorService mSubtaskExecutorService;
+	private final Semaphore mConcurrencyGuard;
+	private final boolean mVirtualThreads;
+	
+	
+	protected ActionExecutionService(int aMaxConcurrency)
+	{
+		ExecutorService virtualThreadExecutor = createVirtualThreadExecutor();
+		mVirtualThreads = virtualThreadExecutor != null;
+		if (mVirtualThreads)
+		{
+			mExecutorService = virtualThreadExecutor;
+			mSubtaskExecutorService = virtualThreadExecutor;
+		}
+		else
+		{
+			mExecutorService = createPlatformThreadExecutor("tinyj-action-", aMaxConcurrency, new ThreadPoolExecutor.AbortPolicy());
+			mSubtaskExecutorService = createPlatformThreadExecutor("tinyj-subtask-", aMaxConcurrency, new ThreadPoolExecutor.CallerRunsPolicy());
+		}
+		mConcurrencyGuard = new Semaphore(aMaxConcurrency);
+	}
+	
+	
+	/**
+	 * gets the instance of the ActionExecutionService, configured by the &lt;execution&gt; 
+	 * element of the configuration
+	 * 
+	 * @return the instance of the ActionExecutionService
+	 */
+	public static ActionExecutionService getInstance()
+	{
+		ActionExecutionService instance = sInstance;
+		if (instance != null)
+		{
+			return instance;
+		}
+		
+		sInstanceLock.lock();
+		try
+		{
+			if (sInstance == null)
+			{
+				sInstance = new ActionExecutionService(MVCConfigurationManager.getInstance().getExecutionMaxConcurrency());
+				System.out.println("executing actions on " + (sInstance.mVirtualThreads ? "virtual threads" : "a platform thread pool"));
+			}
+			
+			return sInstance;
+		}
+		finally
+		{
+			sInstanceLock.unlock();
+		}
+	}
+	
+	
+	/**
+	 * creates an executor starting a virtual thread per task, through reflection, so this class
+	 * still runs on java versions without virtual threads
+	 * 
+	 * @return the virtual thread executor, or null if virtual threads are not supported
+	 */
+	protected static ExecutorService createVirtualThreadExecutor()
+	{
+		try
+		{
+			return (ExecutorService)MethodHandles.publicLookup()
+							.findStatic(Executors.class, "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class))
+							.invoke();
+		}
+		catch (Throwable t)
+		{
+			return null;
+		}
+	}
+	
+	
+	/**
+	 * creates a pool of up to the given number of platform threads, with a queue of up to the 
+	 * same number of waiting tasks
+	 * 
+	 * @param aThreadNamePrefix the prefix of the names of the pool threads
+	 * @param aMaxThreads the maximal number of threads (and of waiting tasks)
+	 * @param aRejectedExecutionHandler the handler of a task submitted when the queue is full
+	 * 
+	 * @return the platform thread executor
+	 */
+	protected static ExecutorService createPlatformThreadExecutor(final String aThreadNamePrefix, int aMaxThreads, RejectedExecutionHandler aRejectedExecutionHandler)
+	{
+		final AtomicInteger threadCount = new AtomicInteger();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(aMaxThreads, aMaxThreads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(aMaxThreads), new ThreadFactory()
+		{
+			public Thread newThread(Runnable aRunnable)
+			{
+				Thread thread = new Thread(aRunnable, aThreadNamePrefix + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		}, aRejectedExecutionHandler);
+		executor.allowCoreThreadTimeOut(true);
+		
+		return executor;
+	}
+	
+	
+	/**
+	 * returns whether the actions are executed on virtual threads
+	 */
+	public boolean isVirtualThreads()
+	{
+		return mVirtualThreads;
+	}
+	
+	
+	/**
+	 * returns the number of actions which can start executing right now
+	 */
+	public int getAvailableConcurrency()
+	{
+		return mConcurrencyGuard.availablePermits();
+	}
+	
+	
+	/**
+	 * submits the given task for execution, once a concurrency slot is free. when the returned 
+	 * future is failed by someone else (like when the deadline of the request expires), the 
+	 * thread executing the task is interrupted
+	 * 
+	 * @param aTask the task to execute
+	 * @param aActionPath the path of the executed action, for the error message
+	 * @param aMaxWaitMillis the maximal time to wait for a concurrency slot
+	 * 
+	 * @return the future result of the task
+	 */
+	public <T> CompletableFuture<T> submit(final Callable<T> aTask, final String aActionPath, final long aMaxWaitMillis)
+	{
+		final CompletableFuture<T> futureResult = new CompletableFuture<T>();
+		final long submitNanos = System.nanoTime();
+		
+		Runnable runnable = () ->
+		{
+			//a task failed while it was queued (like when its deadline expired) is not executed
+			if (futureResult.isDone())
+			{
+				return;
+			}
+			
+			boolean acquired = false;
+			try
+			{
+				//the time spent in the queue of the pool counts as waiting for a slot
+				long waitMillis = aMaxWaitMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - submitNanos);
+				acquired = waitMillis >= 0 && mConcurrencyGuard.tryAcquire(waitMillis, TimeUnit.MILLISECONDS);
+				if (!acquired)
+				{
+					futureResult.completeExceptionally(new ActionExecutionException("too many actions are executing, could not execute: ", aActionPath, MVCExceptionCodes.MVC_ACTION_EXECUTION_CONCURRENCY_LIMIT_REACHED));
+					return;
+				}
+				
+				futureResult.complete(aTask.call());
+			}
+			catch (InterruptedException ie)
+			{
+				Thread.currentThread().interrupt();
+				futureResult.completeExceptionally(ie);
+			}
+			catch (Throwable t)
+			{
+				futureResult.completeExceptionally(t);
+			}
+			finally
+			{
+				if (acquired)
+				{
+					mConcurrencyGuard.release();
+				}
+			}
+		};
+		
+		try
+		{
+			final Future<?> task = mExecutorService.submit(runnable);
+			futureResult.whenComplete((result, failure) -> 
+			{
+				if (failure != null)
+				{
+					task.cancel(true);
+				}
+			});
+		}
+		catch (RejectedExecutionException ree)
+		{
+			if (mExecutorService.isShutdown())
+			{
+				futureResult.completeExceptionally(ree);
+			}
+			else
+			{
+				//the queue of the platform thread pool is full
+				futureResult.completeExceptionally(new ActionExecutionException("too many actions are waiting to execute, could not execute: ", aActionPath, MVCExceptionCodes.MVC_ACTION_EXECUTION_CONCURRENCY_LIMIT_REACHED));
+			}
+		}
+		
+		return futureResult;
+	}
+	
+	
+	/**
+	 * executes the given subtask of an executing action right away, without waiting for a 
+	 * concurrency slot (the action already holds one). see FanOut. when the subtask pool is 
+	 * saturated, the subtask is executed on the calling thread
+	 * 
+	 * @param aSubtask the subtask to execute
+	 * 
+	 * @return the future of the subtask, to cancel it
+	 */
+	public Future<?> fork(Runnable aSubtask)
+	{
+		return mSubtaskExecutorService.submit(aSubtask);
+	}
+	
+	
+	/**
+	 * executes the given task on the action threads, without waiting for a concurrency slot. 
+	 * unlike <i>fork()</i>, the task is never executed on the calling thread, so a thread which 
+	 * must not block (like the deadline timer) can hand over a task calling a backend
+	 * 
+	 * @param aTask the task to execute
+	 * 
+	 * @throws RejectedExecutionException when the queue of the platform thread pool is full, or
+	 * the service was shut down
+	 */
+	public void execute(Runnable aTask)
+	{
+		mExecutorService.execute(aTask);
+	}
+	
+	
+	/**
+	 * stops accepting new actions. actions already executing are completed
+	 */
+	public void shutdown()
+	{
+		mExecutorService.shutdown();
+		mSubtaskExecutorService.shutdown();
+	}
+	
+	
+	/**
+	 * shuts down the instance of the ActionExecutionService, if it was created, so its threads do
+	 * not outlive the web application. called by the destroy() of the controllers
+	 */
+	public static void shutdownInstance()
+	{
+		sInstanceLock.lock();
+		try
+		{
+			if (sInstance != null)
+			{
+				sInstance.shutdown();
+				sInstance = null;
+			}
+		}
+		finally
+		{
+			sInstanceLock.unlock();
+		}
+	}
+}
@@ -0,0 +1,697 @@
+package com.tinyj.mvc.controller;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import javax.servlet.http.HttpServletResponse;
+
+import com.tinyj.mvc.config.AjaxConfigActionDescriptor;
+import com.tinyj.mvc.config.BaseConfigActionDescriptor;
+import com.tinyj.mvc.config.MVCConfigActionDescriptor;
+import com.tinyj.mvc.config.MVCConfigurationManager;
+import com.tinyj.mvc.config.NavigationTarget;
+import com.tinyj.mvc.config.PreloadLinks;
+import com.tinyj.mvc.exception.ActionExecutionException;
+import com.tinyj.mvc.exception.HandleNavigationException;
+import com.tinyj.mvc.exception.HandleRequestException;
+import com.tinyj.mvc.exception.MVCExceptionCodes;
+import com.tinyj.mvc.model.Action;
+import com.tinyj.mvc.model.ActionExecutionMode;
+import com.tinyj.mvc.model.ActionResolver;
+import com.tinyj.mvc.model.ActionResponse;
+import com.tinyj.mvc.model.AjaxActionResponse;
+import com.tinyj.mvc.model.AsyncAction;
+import com.tinyj.mvc.model.BatchAjaxAction;
+import com.tinyj.mvc.model.JavaBeanPopulator;
+import com.tinyj.mvc.model.RouteMatch;
+
+
+/**
+ * the ActionExecutor runs the part of the MVC lifecycle shared by the mvc and the ajax 
+ * controllers, from the resolved route of an action up to its action response:
+ * 
+ * Start the deadline of the request, by the timeout of the action
+ * |
+ * Shed the request when over the concurrency limit of the action
+ * |
+ * Wait for an execution slot by the priority class of the action (when scheduled by priority)
+ * |
+ * Interceptors before populate
+ * |
+ * Replay of a repeated (idempotent) submission, coalescing of identical ajax requests, or 
+ * superseding the older in flight ajax request of the session (latest wins)
+ * |
+ * Populate java beans from request parameters (mvc only)
+ * |
+ * Instantiate the action
+ * |
+ * Interceptors before execute
+ * |
+ * Send the critical resources of the pages of the action to the browser (early hints)
+ * |
+ * Take the fallback of the action when its circuit breaker is open
+ * |
+ * Execute the action (an AsyncAction, or an action in virtual execution mode, completes later),
+ * unless the deadline of the request expired. an action completing after its deadline is abandoned.
+ * a micro batched ajax action is executed along with the other requests of its batch
+ * |
+ * Interceptors after execute
+ * 
+ * the navigation according to the action response is made by <i>navigate()</i>, followed by 
+ * the background tasks the action enqueued by <i>MVCContext.runAfterResponse()</i>. a forward
+ * chaining to another action executes it in process, through the same lifecycle (without 
+ * populating the java beans again).
+ * 
+ * @author asaf.peeri
+ *
+ */
+public class ActionExecutor
+{
+	/**
+	 * executes the action of the given route and navigates according to its action response.
+	 * the response of an AsyncAction is navigated by on an AsyncContext, when it completes
+	 * 
+	 * @param aRouteMatch the resolved route of the action
+	 * @param aMVCContext the mvc context of the current request, already holding the route
+	 * @param aInterceptorChain the interceptor chain of the action
+	 * @param aPopulateJavaBeans whether to populate the java beans from the request parameters
+	 */
+	public static void executeAndNavigate(RouteMatch<? extends BaseConfigActionDescriptor> aRouteMatch,
+										  MVCContext aMVCContext,
+										  ActionInterceptorChain aInterceptorChain,
+										  boolean aPopulateJavaBeans)
+		throws HandleRequestException
+	{
+		//the time budget of the request starts before it waits for any slot
+		startDeadline(aMVCContext, aRouteMatch.getValue());
+		
+		try
+		{
+			executeAndNavigateWithinDeadline(aRouteMatch, aMVCContext, aInterceptorChain, aPopulateJavaBeans);
+		}
+		catch (HandleRequestException hre)
+		{
+			if (hre.mErrorCode != MVCExceptionCodes.MVC_ACTION_DEADLINE_EXCEEDED)
+			{
+				throw hre;
+			}
+			
+			//an action which exceeded its deadline is mapped to the timeout forward, or http 504
+			AsyncActionHandler.handleFailure(hre, aMVCContext);
+		}
+	}
+	
+	
+	protected static void executeAndNavigateWithinDeadline(RouteMatch<? extends BaseConfigActionDescriptor> aRouteMatch,
+														   MVCContext aMVCContext,
+														   ActionInterceptorChain aInterceptorChain,
+														   boolean aPopulateJavaBeans)
+		throws HandleRequestException
+	{
+		BaseConfigActionDescriptor actionDescriptor = aRouteMatch.getValue();
+		MVCConfigurationManager configurationManager = MVCConfigurationManager.getInstance();
+		final AdaptiveConcurrencyLimit concurrencyLimit = actionDescriptor.getConcurrencyLimit();
+		final PriorityScheduler priorityScheduler = configurationManager.getPriorityScheduler();
+		if (concurrencyLimit == null && priorityScheduler == null)
+		{
+			CompletableFuture<ActionResponse> futureResponse = executeActionAsync(aRouteMatch, aMVCContext, aInterceptorChain, aPopulateJavaBeans);
+			AsyncActionHandler.handleResponse(futureResponse, aMVCContext, aInterceptorChain);
+			return;
+		}
+		
+		//a request over the concurrency limit of the action is shed right away, so a slow action 
+		//does not take all the container threads
+		if (concurrencyLimit != null && !concurrencyLimit.tryAcquire())
+		{
+			NavigationHandler.handleRejection(aMVCContext, configurationManager.getLoadSheddingForward(), HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+			return;
+		}
+		
+		//under overload, the priority scheduler executes the higher priority classes first,
+		//and drops the lowest priority class first. a dropped request was never executed, so it 
+		//does not adapt the concurrency limit
+		boolean admitted = false;
+		try
+		{
+			admitted = priorityScheduler == null || priorityScheduler.acquire(configurationManager.getActionPriority(actionDescriptor), aMVCContext.getDeadline().remainingMillis());
+		}
+		finally
+		{
+			if (!admitted && concurrencyLimit != null)
+			{
+				concurrencyLimit.releaseUnexecuted();
+			}
+		}
+		if (!admitted)
+		{
+			//a request whose deadline expired while it waited is a timeout (http 504), not a rejection
+			aMVCContext.getDeadline().check(actionDescriptor.getPath());
+			NavigationHandler.handleRejection(aMVCContext, configurationManager.getLoadSheddingForward(), HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+			return;
+		}
+		
+		//the latency of the action is timed from its admission, so the time spent waiting for the
+		//priority scheduler does not count as the latency of the action
+		final long startNanos = System.nanoTime();
+		CompletableFuture<ActionResponse> futureResponse = null;
+		try
+		{
+			try
+			{
+				futureResponse = executeActionAsync(aRouteMatch, aMVCContext, aInterceptorChain, aPopulateJavaBeans);
+			}
+			finally
+			{
+				if (futureResponse == null && priorityScheduler != null)
+				{
+					priorityScheduler.release();
+				}
+			}
+		}
+		finally
+		{
+			if (futureResponse == null && concurrencyLimit != null)
+			{
+				concurrencyLimit.release(System.nanoTime() - startNanos, false);
+			}
+		}
+		
+		//the slots are held until the action completes, which may be after this thread is released
+		futureResponse.whenComplete((response, failure) -> 
+		{
+			if (priorityScheduler != null)
+			{
+				priorityScheduler.release();
+			}
+			if (concurrencyLimit != null)
+			{
+				concurrencyLimit.release(System.nanoTime() - startNanos, failure == null);
+			}
+		});
+		
+		AsyncActionHandler.handleResponse(futureResponse, aMVCContext, aInterceptorChain);
+	}
+	
+	
+	/**
+	 * executes the action of the given route, with the given interceptor chain, and waits for
+	 * its response if it is an AsyncAction
+	 * 
+	 * @param aRouteMatch the resolved route of the action
+	 * @param aMVCContext the mvc context of the current request, already holding the route
+	 * @param aInterceptorChain the interceptor chain of the action
+	 * @param aPopulateJavaBeans whether to populate the java beans from the request parameters
+	 * 
+	 * @return the action response to navigate by
+	 */
+	public static ActionResponse executeAction(RouteMatch<? extends BaseConfigActionDescriptor> aRouteMatch,
+											   MVCContext aMVCContext,
+											   ActionInterceptorChain aInterceptorChain,
+											   boolean aPopulateJavaBeans)
+		throws HandleRequestException
+	{
+		CompletableFuture<ActionResponse> futureResponse = executeActionAsync(aRouteMatch, aMVCContext, aInterceptorChain, aPopulateJavaBeans);
+		return AsyncAction.join(futureResponse, aRouteMatch.getValue().getPath());
+	}
+	
+	
+	/**
+	 * executes the action of the given route, with the given interceptor chain. all the stages
+	 * up to the execution of the action are run on the calling thread, and any failure in them
+	 * is thrown. the returned future is already completed, unless the action is an AsyncAction
+	 * 
+	 * @param aRouteMatch the resolved route of the action
+	 * @param aMVCContext the mvc context of the current request, already holding the route
+	 * @param aInterceptorChain the interceptor chain of the action
+	 * @param aPopulateJavaBeans whether to populate the java beans from the request parameters
+	 * 
+	 * @return the future action response to navigate by
+	 */
+	public static CompletableFuture<ActionResponse> executeActionAsync(RouteMatch<? extends BaseConfigActionDescriptor> aRouteMatch,
+																	   MVCContext aMVCContext,
+																	   ActionInterceptorChain aInterceptorChain,
+																	   boolean aPopulateJavaBeans)
+		throws HandleRequestException
+	{
+		if (!aMVCContext.isDeadlineStarted())
+		{
+			startDeadline(aMVCContext, aRouteMatch.getValue());
+		}
+		
+		//an interceptor may return an action response of its own, in which case the action is not executed
+		ActionResponse actionResponse = aInterceptorChain.beforePopulate(aMVCContext);
+		if (actionResponse != null)
+		{
+			return CompletableFuture.completedFuture(actionResponse);
+		}
+		
+		//a request carrying an idempotency token replays the response stored for that token, 
+		//if the action was already executed with it
+		String idempotencyToken = IdempotencyStore.getRequestToken(aMVCContext);
+		if (idempotencyToken == null)
+		{
+			BaseConfigActionDescriptor actionDescriptor = aRouteMatch.getValue();
+			if (actionDescriptor instanceof AjaxConfigActionDescriptor && ((AjaxConfigActionDescriptor)actionDescriptor).getSingleFlightGroup() != null)
+			{
+				return coalesceAndExecute(((AjaxConfigActionDescriptor)actionDescriptor).getSingleFlightGroup(), aRouteMatch, aMVCContext, aInterceptorChain, aPopulateJavaBeans);
+			}
+			if (actionDescriptor instanceof AjaxConfigActionDescriptor && ((AjaxConfigActionDescriptor)actionDescriptor).getLatestWinsRegistry() != null)
+			{
+				return supersedeAndExecute(((AjaxConfigActionDescriptor)actionDescriptor).getLatestWinsRegistry(), aRouteMatch, aMVCContext, aInterceptorChain, aPopulateJavaBeans);
+			}
+			
+			return populateAndExecute(aRouteMatch, aMVCContext, aInterceptorChain, aPopulateJavaBeans);
+		}
+		
+		final IdempotencyStore.Execution execution = IdempotencyStore.getInstance().begin(aRouteMatch.getValue().getPath(), idempotencyToken);
+		if (!execution.isOwner())
+		{
+			return CompletableFuture.completedFuture(execution.awaitResponse());
+		}
+		
+		CompletableFuture<ActionResponse> futureResponse = null;
+		try
+		{
+			futureResponse = populateAndExecute(aRouteMatch, aMVCContext, aInterceptorChain, aPopulateJavaBeans);
+		}
+		finally
+		{
+			if (futureResponse == null)
+			{
+				execution.abort();
+			}
+		}
+		
+		futureResponse.whenComplete((response, failure) -> 
+		{
+			if (failure == null)
+			{
+				execution.complete(response);
+			}
+			else
+			{
+				execution.abort();
+			}
+		});
+		
+		return futureResponse;
+	}
+	
+	
+	/**
+	 * executes the action only if there is no identical request in flight. otherwise, the 
+	 * future response of the identical request is returned
+	 */
+	protected static CompletableFuture<ActionResponse> coalesceAndExecute(final SingleFlightGroup aSingleFlightGroup,
+																		  RouteMatch<? extends BaseConfigActionDescriptor> aRouteMatch,
+																		  MVCContext aMVCContext,
+																		  ActionInterceptorChain aInterceptorChain,
+																		  boolean aPopulateJavaBeans)
+		throws HandleRequestException
+	{
+		final String key = aSingleFlightGroup.createKey(aMVCContext);
+		final CompletableFuture<ActionResponse> leaderResponse = new CompletableFuture<ActionResponse>();
+		
+		CompletableFuture<ActionResponse> inFlightResponse = aSingleFlightGroup.join(key, leaderResponse);
+		if (inFlightResponse != null)
+		{
+			//a follower gives up on its own deadline, without failing the shared execution
+			return aMVCContext.getDeadline().bound(inFlightResponse, aRouteMatch.getValue().getPath());
+		}
+		
+		CompletableFuture<ActionResponse> futureResponse = null;
+		try
+		{
+			futureResponse = populateAndExecute(aRouteMatch, aMVCContext, aInterceptorChain, aPopulateJavaBeans);
+		}
+		catch (HandleRequestException hre)
+		{
+			//the followers fail with the failure of the leader
+			aSingleFlightGroup.complete(key, leaderResponse, null, hre);
+			throw hre;
+		}
+		catch (RuntimeException re)
+		{
+			aSingleFlightGroup.complete(key, leaderResponse, null, re);
+			throw re;
+		}
+		
+		futureResponse.whenComplete((response, failure) -> aSingleFlightGroup.complete(key, leaderResponse, response, failure));
+		
+		return leaderResponse;
+	}
+	
+	
+	/**
+	 * executes the action as the latest request of its session, superseding (cancelling) the 
+	 * in flight execution of an older request of the session, see LatestWinsRegistry
+	 */
+	protected static CompletableFuture<ActionResponse> supersedeAndExecute(LatestWinsRegistry aLatestWinsRegistry,
+																		   RouteMatch<? extends BaseConfigActionDescriptor> aRouteMatch,
+																		   MVCContext aMVCContext,
+																		   ActionInterceptorChain aInterceptorChain,
+																		   boolean aPopulateJavaBeans)
+		throws HandleRequestException
+	{
+		//only the requested session is used, so no session is created for it
+		String sessionId = aMVCContext.getOriginalRequest().getRequestedSessionId();
+		if (sessionId == null)
+		{
+			return populateAndExecute(aRouteMatch, aMVCContext, aInterceptorChain, aPopulateJavaBeans);
+		}
+		
+		LatestWinsRegistry.Execution execution = aLatestWinsRegistry.begin(sessionId, aMVCContext);
+		CompletableFuture<ActionResponse> futureResponse = null;
+		try
+		{
+			futureResponse = populateAndExecute(aRouteMatch, aMVCContext, aInterceptorChain, aPopulateJavaBeans);
+		}
+		finally
+		{
+			if (futureResponse == null)
+			{
+				execution.abort();
+			}
+		}
+		
+		return execution.attach(futureResponse);
+	}
+	
+	
+	protected static CompletableFuture<ActionResponse> populateAndExecute(RouteMatch<? extends BaseConfigActionDescriptor> aRouteMatch,
+																		  final MVCContext aMVCContext,
+																		  final ActionInterceptorChain aInterceptorChain,
+																		  boolean aPopulateJavaBeans)
+		throws HandleRequestException
+	{
+		if (aPopulateJavaBeans)
+		{
+			//validate request parameters according to validation-rules.xml
+			//ValidationManager.validateParamsByAction(mvcContext);
+			
+			//populate javaBeans that are attached to request parameters
+			JavaBeanPopulator.populateJavaBeansFromParameters(aMVCContext);
+		}
+		
+		//instantiate the action that should execute
+		final Action action = ActionResolver.resolveAction(aRouteMatch, aMVCContext);
+		
+		ActionResponse actionResponse = aInterceptorChain.beforeExecute(action, aMVCContext);
+		if (actionResponse != null)
+		{
+			return CompletableFuture.completedFuture(actionResponse);
+		}
+		
+		//the browser fetches the critical resources of the next page while the action executes
+		BaseConfigActionDescriptor actionDescriptor = aRouteMatch.getValue();
+		if (actionDescriptor instanceof MVCConfigActionDescriptor)
+		{
+			PreloadLinks preloadLinks = MVCConfigurationManager.getInstance().getPreloadLinks((MVCConfigActionDescriptor)actionDescriptor);
+			if (preloadLinks != null)
+			{
+				EarlyHints.send(aMVCContext, preloadLinks);
+			}
+		}
+		
+		//an action behind an open circuit breaker takes its fallback without being executed
+		final CircuitBreaker circuitBreaker = actionDescriptor.getCircuitBreaker();
+		if (circuitBreaker == null)
+		{
+			return executeResolvedAction(action, actionDescriptor, aMVCContext, aInterceptorChain);
+		}
+		
+		if (!circuitBreaker.allowRequest())
+		{
+			return CompletableFuture.completedFuture(getFallbackResponse(action, actionDescriptor));
+		}
+		
+		CompletableFuture<ActionResponse> futureResponse = null;
+		try
+		{
+			futureResponse = executeResolvedAction(action, actionDescriptor, aMVCContext, aInterceptorChain);
+		}
+		catch (HandleRequestException hre)
+		{
+			circuitBreaker.onResult(false);
+			throw hre;
+		}
+		catch (RuntimeException re)
+		{
+			circuitBreaker.onResult(false);
+			throw re;
+		}
+		
+		//a cancelled execution does not count as a failure of the action
+		futureResponse.whenComplete((response, failure) -> circuitBreaker.onResult(failure == null || aMVCContext.isCancelled()));
+		
+		return futureResponse;
+	}
+	
+	
+	/**
+	 * executes the given (resolved) action, followed by the after execute interceptors
+	 * 
+	 * @param aAction the action to execute
+	 * @param aActionDescriptor the descriptor of the action
+	 * @param aMVCContext the mvc context of the current request
+	 * @param aInterceptorChain the interceptor chain of the action
+	 * 
+	 * @return the future action response
+	 */
+	protected static CompletableFuture<ActionResponse> executeResolvedAction(final Action aAction,
+																			 final BaseConfigActionDescriptor aActionDescriptor,
+																			 final MVCContext aMVCContext,
+																			 final ActionInterceptorChain aInterceptorChain)
+		throws HandleRequestException
+	{
+		//an action whose request already exceeded its deadline (like while it was queued) is not executed
+		final Deadline deadline = aMVCContext.getDeadline();
+		deadline.check(aActionDescriptor.getPath());
+		
+		//a request superseded by a newer one (while it was populated or queued) is not executed
+		if (aMVCContext.isCancelled())
+		{
+			return CompletableFuture.completedFuture(LatestWinsRegistry.SUPERSEDED_RESPONSE);
+		}
+		
+		//a micro batched ajax action is executed along with the concurrent requests of its batch
+		MicroBatcher microBatcher = (aActionDescriptor instanceof AjaxConfigActionDescriptor) ? ((AjaxConfigActionDescriptor)aActionDescriptor).getMicroBatcher() : null;
+		if (microBatcher != null)
+		{
+			if (!(aAction instanceof BatchAjaxAction))
+			{
+				throw new ActionExecutionException("action configured with batch-window-ms is not a BatchAjaxAction: ", aActionDescriptor.getPath(), MVCExceptionCodes.MVC_BATCHED_ACTION_IS_NOT_BATCH_AJAX_ACTION);
+			}
+			
+			//the request waiting for its batch is abandoned when its deadline expires, and is left 
+			//out of the batch
+			return afterExecuteOnCompletion(deadline.bound(microBatcher.submit((BatchAjaxAction)aAction, aMVCContext), aActionDescriptor.getPath(), true), aAction, aMVCContext, aInterceptorChain);
+		}
+		
+		if (aAction instanceof AsyncAction)
+		{
+			//the action is abandoned when its deadline expires
+			return afterExecuteOnCompletion(deadline.bound(((AsyncAction)aAction).executeAsync(aMVCContext), aActionDescriptor.getPath()), aAction, aMVCContext, aInterceptorChain);
+		}
+		
+		//an action in virtual execution mode is executed off the container thread, which is 
+		//released while it executes (when the request supports async)
+		MVCConfigurationManager configurationManager = MVCConfigurationManager.getInstance();
+		if (configurationManager.getExecutionMode(aActionDescriptor) == ActionExecutionMode.virtual && aMVCContext.getOriginalRequest().isAsyncSupported())
+		{
+			//the action is interrupted when its deadline expires
+			CompletableFuture<ActionResponse> futureResponse = ActionExecutionService.getInstance().submit(() ->
+			{
+				deadline.check(aActionDescriptor.getPath());
+				ActionResponse response = aAction.execute(aMVCContext);
+				aInterceptorChain.afterExecute(aAction, response, aMVCContext);
+				return response;
+			}, aActionDescriptor.getPath(), deadline.bound(configurationManager.getAsyncTimeoutMillis(aActionDescriptor)));
+			
+			return deadline.bound(futureResponse, aActionDescriptor.getPath(), true);
+		}
+		
+		//execute the action
+		ActionResponse actionResponse = aAction.execute(aMVCContext);
+		
+		aInterceptorChain.afterExecute(aAction, actionResponse, aMVCContext);
+		
+		return CompletableFuture.completedFuture(actionResponse);
+	}
+	
+	
+	/**
+	 * runs the after execute interceptors on the thread completing the given future response
+	 * 
+	 * @return the future action response, completed after the interceptors
+	 */
+	protected static CompletableFuture<ActionResponse> afterExecuteOnCompletion(CompletableFuture<ActionResponse> aFutureResponse,
+																				final Action aAction,
+																				final MVCContext aMVCContext,
+																				final ActionInterceptorChain aInterceptorChain)
+	{
+		return aFutureResponse.thenApply(response -> 
+		{
+			try
+			{
+				aInterceptorChain.afterExecute(aAction, response, aMVCContext);
+				return response;
+			}
+			catch (HandleRequestException hre)
+			{
+				throw new CompletionException(hre);
+			}
+		});
+	}
+	
+	
+	/**
+	 * starts the deadline of the request by the timeout of its action, and keeps it on the 
+	 * mvc context
+	 * 
+	 * @param aMVCContext the mvc context of the current request
+	 * @param aActionDescriptor the descriptor of the action
+	 */
+	protected static void startDeadline(MVCContext aMVCContext, BaseConfigActionDescriptor aActionDescriptor)
+	{
+		aMVCContext.setDeadline(Deadline.after(MVCConfigurationManager.getInstance().getTimeoutMillis(aActionDescriptor)));
+	}
+	
+	
+	/**
+	 * returns the response of a request to an action whose circuit breaker is open: the 
+	 * fallback forward of an mvc action, or the canned response of an ajax action
+	 * 
+	 * @param aAction the action which was not executed
+	 * @param aActionDescriptor the descriptor of the action
+	 * 
+	 * @return the fallback response of the action
+	 * 
+	 * @throws ActionExecutionException when the action has no fallback
+	 */
+	protected static ActionResponse getFallbackResponse(Action aAction, BaseConfigActionDescriptor aActionDescriptor)
+		throws ActionExecutionException
+	{
+		if (aActionDescriptor instanceof MVCConfigActionDescriptor)
+		{
+			String fallbackForward = ((MVCConfigActionDescriptor)aActionDescriptor).getFallbackForward();
+			if (fallbackForward != null)
+			{
+				return new ActionResponse(aAction, fallbackForward);
+			}
+		}
+		else if (aActionDescriptor instanceof AjaxConfigActionDescriptor)
+		{
+			AjaxActionResponse fallbackResponse = ((AjaxConfigActionDescriptor)aActionDescriptor).getFallbackResponse();
+			if (fallbackResponse != null)
+			{
+				return fallbackResponse;
+			}
+		}
+		
+		throw new ActionExecutionException("circuit breaker is open for action: ", aActionDescriptor.getPath(), MVCExceptionCodes.MVC_CIRCUIT_BREAKER_IS_OPEN);
+	}
+	
+	
+	/**
+	 * navigates according to the given action response: an ajax action response is written
+	 * back to the caller, and any other action response is navigated to its forward
+	 * 
+	 * @param aActionResponse the action response to navigate by
+	 * @param aMVCContext the mvc context of the current request
+	 * @param aInterceptorChain the interceptor chain of the action
+	 */
+	public static void navigate(ActionResponse aActionResponse, MVCContext aMVCContext, ActionInterceptorChain aInterceptorChain)
+		throws HandleRequestException
+	{
+		aInterceptorChain.onNavigate(aActionResponse, aMVCContext);
+		
+		if (aActionResponse instanceof AjaxActionResponse)
+		{
+			//write the response string back to the caller 
+			NavigationHandler.writeBackAjaxResponse((AjaxActionResponse)aActionResponse, aMVCContext);
+		}
+		else if (chainAndNavigate(aActionResponse, aMVCContext))
+		{
+			//the chained action may still be executing, and the last action of the chain submits
+			//the after response tasks of all the actions once it navigated
+			return;
+		}
+		else
+		{
+			//the keys queued for the page are loaded before it reads them
+			aMVCContext.dispatchDataLoaders();
+			
+			//navigate to the next page according to the action response
+			NavigationHandler.handleNavigation(aActionResponse, aMVCContext);
+		}
+		
+		//the tasks the actions left for after the response run in the background
+		aMVCContext.submitAfterResponseTasks();
+		
+		//the last action of an asynchronously handled request completes it (unless it was dispatched)
+		aMVCContext.completeAsync();
+	}
+	
+	
+	/**
+	 * executes the next action in process, when the forward of the given action response chains
+	 * to an action (has an action attribute), and navigates according to its action response.
+	 * the next action reuses the MVCContext of the request, with its populated java beans and
+	 * deadline, and is executed with its own interceptor chain, but is not admitted again (by
+	 * the concurrency limit or the priority scheduler of its action).
+	 * 
+	 * @param aActionResponse the action response of the current action
+	 * @param aMVCContext the mvc context of the current request
+	 * 
+	 * @return false if the forward does not chain to an action, and should be navigated to
+	 */
+	protected static boolean chainAndNavigate(ActionResponse aActionResponse, MVCContext aMVCContext)
+		throws HandleRequestException
+	{
+		if (aMVCContext.getRouteMatch() == null || !(aMVCContext.getRouteMatch().getValue() instanceof MVCConfigActionDescriptor))
+		{
+			return false;
+		}
+		
+		MVCConfigurationManager configurationManager = MVCConfigurationManager.getInstance();
+		MVCConfigActionDescriptor actionDescriptor = (MVCConfigActionDescriptor)aMVCContext.getRouteMatch().getValue();
+		NavigationTarget navigationTarget = configurationManager.getNavigationTarget(actionDescriptor, aActionResponse.getResponse());
+		if (navigationTarget == null || navigationTarget.getChainedAction() == null)
+		{
+			return false;
+		}
+		
+		//actions forwarding to each other would otherwise chain forever
+		int chainDepth = aMVCContext.getChainDepth() + 1;
+		if (chainDepth > configurationManager.getMaxChainDepth())
+		{
+			throw new HandleNavigationException("action chain is deeper than " + configurationManager.getMaxChainDepth() + " actions, at action: ", actionDescriptor.getPath(), MVCExceptionCodes.MVC_ACTION_CHAIN_TOO_DEEP);
+		}
+		
+		MVCConfigActionDescriptor chainedActionDescriptor = configurationManager.getMVCAction(navigationTarget.getChainedAction());
+		if (chainedActionDescriptor == null)
+		{
+			throw new HandleNavigationException("could not find chained action path: ", navigationTarget.getChainedAction(), MVCExceptionCodes.MVC_CANT_FIND_ACTION_PATH);
+		}
+		
+		RouteMatch<MVCConfigActionDescriptor> chainedRouteMatch = new RouteMatch<MVCConfigActionDescriptor>(chainedActionDescriptor);
+		aMVCContext.setRouteMatch(chainedRouteMatch);
+		aMVCContext.setChainDepth(chainDepth);
+		
+		ActionInterceptorChain interceptorChain = configurationManager.getInterceptorChain(chainedActionDescriptor);
+		CompletableFuture<ActionResponse> futureResponse = executeActionAsync(chainedRouteMatch, aMVCContext, interceptorChain, false);
+		if (aMVCContext.getAsyncContext() == null)
+		{
+			AsyncActionHandler.handleResponse(futureResponse, aMVCContext, interceptorChain);
+		}
+		else
+		{
+			//an AsyncContext is started once per request, so the chained action navigates on it 
+			//when it completes, without blocking the thread completing the previous action
+			AsyncActionHandler.continueAsync(futureResponse, aMVCContext, interceptorChain);
+		}
+		
+		return true;
+	}
+}
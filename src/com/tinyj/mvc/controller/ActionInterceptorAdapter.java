@@ -0,0 +1,42 @@
+package com.tinyj.mvc.controller;
+
+import com.tinyj.mvc.exception.HandleRequestException;
+import com.tinyj.mvc.model.Action;
+import com.tinyj.mvc.model.ActionResponse;
+
+
+/**
+ * an empty implementation of IActionInterceptor. users should extend this class and override 
+ * only the hooks they need.
+ * 
+ * @author asaf.peeri
+ *
+ */
+public abstract class ActionInterceptorAdapter implements IActionInterceptor
+{
+	
+	public ActionResponse beforePopulate(MVCContext aMVCContext)
+		throws HandleRequestException
+	{
+		return null;
+	}
+	
+	
+	public ActionResponse beforeExecute(Action aAction, MVCContext aMVCContext)
+		throws HandleRequestException
+	{
+		return null;
+	}
+	
+	
+	public void afterExecute(Action aAction, ActionResponse aActionResponse, MVCContext aMVCContext)
+		throws HandleRequestException
+	{
+	}
+	
+	
+	public void onNavigate(ActionResponse aActionResponse, MVCContext aMVCContext)
+		throws HandleRequestException
+	{
+	}
+}
@@ -0,0 +1,109 @@
+package com.tinyj.mvc.controller;
+
+import com.tinyj.mvc.exception.HandleRequestException;
+import com.tinyj.mvc.model.Action;
+import com.tinyj.mvc.model.ActionResponse;
+
+
+/**
+ * an immutable chain of interceptors, compiled once per action upon configuration load out 
+ * of the global interceptors and the interceptors declared on the action.
+ * running the chain is a plain loop over a fixed array, and does not allocate.
+ * 
+ * @author asaf.peeri
+ *
+ */
+public final class ActionInterceptorChain
+{
+	public static final ActionInterceptorChain EMPTY = new ActionInterceptorChain(new IActionInterceptor[0]);
+	
+	private final IActionInterceptor[] mInterceptors;
+	
+	
+	public ActionInterceptorChain(IActionInterceptor[] aInterceptors)
+	{
+		mInterceptors = aInterceptors.clone();
+	}
+	
+	
+	public boolean isEmpty()
+	{
+		return mInterceptors.length == 0;
+	}
+	
+	
+	public int size()
+	{
+		return mInterceptors.length;
+	}
+	
+	
+	/**
+	 * runs the beforePopulate hook of every interceptor in the chain, in order, until one of
+	 * them returns an ActionResponse
+	 * 
+	 * @return the ActionResponse returned by an interceptor, or null if all of them continued
+	 */
+	public ActionResponse beforePopulate(MVCContext aMVCContext)
+		throws HandleRequestException
+	{
+		for (int i=0 ; i<mInterceptors.length ; ++i)
+		{
+			ActionResponse actionResponse = mInterceptors[i].beforePopulate(aMVCContext);
+			if (actionResponse != null)
+			{
+				return actionResponse;
+			}
+		}
+		
+		return null;
+	}
+	
+	
+	/**
+	 * runs the beforeExecute hook of every interceptor in the chain, in order, until one of
+	 * them returns an ActionResponse
+	 * 
+	 * @return the ActionResponse returned by an interceptor, or null if all of them continued
+	 */
+	public ActionResponse beforeExecute(Action aAction, MVCContext aMVCContext)
+		throws HandleRequestException
+	{
+		for (int i=0 ; i<mInterceptors.length ; ++i)
+		{
+			ActionResponse actionResponse = mInterceptors[i].beforeExecute(aAction, aMVCContext);
+			if (actionResponse != null)
+			{
+				return actionResponse;
+			}
+		}
+		
+		return null;
+	}
+	
+	
+	/**
+	 * runs the afterExecute hook of every interceptor in the chain, in reverse order
+	 */
+	public void afterExecute(Action aAction, ActionResponse aActionResponse, MVCContext aMVCContext)
+		throws HandleRequestException
+	{
+		for (int i=mInterceptors.length-1 ; i>=0 ; --i)
+		{
+			mInterceptors[i].afterExecute(aAction, aActionResponse, aMVCContext);
+		}
+	}
+	
+	
+	/**
+	 * runs the onNavigate hook of every interceptor in the chain, in reverse order
+	 */
+	public void onNavigate(ActionResponse aActionResponse, MVCContext aMVCContext)
+		throws HandleRequestException
+	{
+		for (int i=mInterceptors.length-1 ; i>=0 ; --i)
+		{
+			mInterceptors[i].onNavigate(aActionResponse, aMVCContext);
+		}
+	}
+}
@@ -0,0 +1,174 @@
+package com.tinyj.mvc.controller;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * an adaptive limit of the requests an action executes at once. a request over the limit is 
+ * rejected (shed) immediately, without waiting for a free slot.
+ * 
+ * the limit adapts to the observed latency of the action (AIMD - additive increase, 
+ * multiplicative decrease): a request completing within the target latency raises the limit by
+ * 1/limit (about 1 per limit of completed requests), and a request exceeding the target latency
+ * cuts the limit by the backoff ratio. the limit stays between 1 and the max limit.
+ * 
+ * the limit is lock free, and its current state is observable through its getters.
+ * 
+ * @author asaf.peeri
+ *
+ */
+public class AdaptiveConcurrencyLimit
+{
+	private static final double BACKOFF_RATIO = 0.9;
+	private static final double MIN_LIMIT = 1;
+	
+	private final double mMaxLimit;
+	private final long mTargetLatencyNanos;
+	
+	//the current limit, as the bits of a double
+	private final AtomicLong mLimitBits;
+	private final AtomicInteger mInFlight = new AtomicInteger();
+	private final LongAdder mAcceptedCount = new LongAdder();
+	private final LongAdder mRejectedCount = new LongAdder();
+	
+	
+	/**
+	 * @param aInitialLimit the initial limit
+	 * @param aMaxLimit the maximal limit
+	 * @param aTargetLatencyMillis the latency above which the limit is decreased
+	 */
+	public AdaptiveConcurrencyLimit(int aInitialLimit, int aMaxLimit, long aTargetLatencyMillis)
+	{
+		mMaxLimit = Math.max(aMaxLimit, aInitialLimit);
+		mTargetLatencyNanos = aTargetLatencyMillis * 1000000L;
+		mLimitBits = new AtomicLong(Double.doubleToLongBits(Math.max(MIN_LIMIT, aInitialLimit)));
+	}
+	
+	
+	/**
+	 * tries to acquire a slot for a request
+	 * 
+	 * @return true if the request may execute, false if it should be shed
+	 */
+	public boolean tryAcquire()
+	{
+		int limit = getLimit();
+		while (true)
+		{
+			int inFlight = mInFlight.get();
+			if (inFlight >= limit)
+			{
+				mRejectedCount.increment();
+				return false;
+			}
+			
+			if (mInFlight.compareAndSet(inFlight, inFlight + 1))
+			{
+				mAcceptedCount.increment();
+				return true;
+			}
+		}
+	}
+	
+	
+	/**
+	 * releases the slot of a request, and adapts the limit to its latency
+	 * 
+	 * @param aLatencyNanos the time the request took, in nanoseconds
+	 * @param aSucceeded whether the request succeeded. a failed request never raises the limit
+	 */
+	public void release(long aLatencyNanos, boolean aSucceeded)
+	{
+		int inFlight = mInFlight.getAndDecrement();
+		
+		while (true)
+		{
+			long limitBits = mLimitBits.get();
+			double limit = Double.longBitsToDouble(limitBits);
+			double newLimit;
+			
+			if (aLatencyNanos > mTargetLatencyNanos)
+			{
+				newLimit = Math.max(MIN_LIMIT, limit * BACKOFF_RATIO);
+			}
+			else if (aSucceeded && inFlight * 2 >= limit)
+			{
+				//the limit is only raised while it is actually used, so it does not grow unbounded when idle
+				newLimit = Math.min(mMaxLimit, limit + 1 / limit);
+			}
+			else
+			{
+				return;
+			}
+			
+			if (newLimit == limit || mLimitBits.compareAndSet(limitBits, Double.doubleToLongBits(newLimit)))
+			{
+				return;
+			}
+		}
+	}
+	
+	
+	/**
+	 * releases the slot of a request which was not executed (like a request dropped while 
+	 * waiting for another slot), without adapting the limit
+	 */
+	public void releaseUnexecuted()
+	{
+		mInFlight.decrementAndGet();
+	}
+	
+	
+	/**
+	 * returns the current limit
+	 */
+	public int getLimit()
+	{
+		return (int)Double.longBitsToDouble(mLimitBits.get());
+	}
+	
+	
+	/**
+	 * returns the maximal limit
+	 */
+	public int getMaxLimit()
+	{
+		return (int)mMaxLimit;
+	}
+	
+	
+	/**
+	 * returns the number of requests currently executing
+	 */
+	public int getInFlight()
+	{
+		return mInFlight.get();
+	}
+	
+	
+	/**
+	 * returns the number of requests accepted since startup
+	 */
+	public long getAcceptedCount()
+	{
+		return mAcceptedCount.sum();
+	}
+	
+	
+	/**
+	 * returns the number of requests rejected (shed) since startup
+	 */
+	public long getRejectedCount()
+	{
+		return mRejectedCount.sum();
+	}
+	
+	
+	@Override
+	public String toString()
+	{
+		return "limit=" + getLimit() + ", inFlight=" + getInFlight() + ", accepted=" + getAcceptedCount() + ", rejected=" + getRejectedCount();
+	}
+}
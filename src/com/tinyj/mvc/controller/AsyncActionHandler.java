@@ -0,0 +1,209 @@
+package com.tinyj.mvc.controller;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.tinyj.mvc.config.MVCConfigActionDescriptor;
+import com.tinyj.mvc.config.MVCConfigurationManager;
+import com.tinyj.mvc.exception.ActionExecutionException;
+import com.tinyj.mvc.exception.HandleRequestException;
+import com.tinyj.mvc.exception.MVCExceptionCodes;
+import com.tinyj.mvc.model.ActionResponse;
+import com.tinyj.mvc.model.AsyncAction;
+
+
+/**
+ * The AsyncActionHandler completes the requests of AsyncActions on a Servlet 3 AsyncContext.
+ * the container thread is released as soon as the action returns its future response, and 
+ * the navigation (or the ajax write back) is made by the thread completing the future.
+ * 
+ * an async request that does not complete within its timeout (the async-timeout-seconds of 
+ * the action, or the timeout-seconds of the &lt;async&gt; element) or its deadline (see 
+ * Deadline), or that fails, is mapped to:
+ * - for an mvc action, the timeout-forward or error-forward of the &lt;async&gt; element, if 
+ *   configured and defined for the action (or globally). the error is set as the lastError on
+ *   the session.
+ * - otherwise, an http 504 (timeout) or 500 (failure) error status.
+ * 
+ * @author asaf.peeri
+ *
+ */
+public class AsyncActionHandler
+{
+	
+	/**
+	 * navigates according to the given future action response. when the future is not done yet
+	 * and the request supports async, an AsyncContext is started and the navigation is made
+	 * when the future completes. otherwise, the calling thread waits for the future.
+	 * 
+	 * @param aFutureResponse the future action response
+	 * @param aMVCContext the mvc context of the current request
+	 * @param aInterceptorChain the interceptor chain of the action
+	 */
+	public static void handleResponse(CompletableFuture<ActionResponse> aFutureResponse, MVCContext aMVCContext, ActionInterceptorChain aInterceptorChain)
+		throws HandleRequestException
+	{
+		HttpServletRequest request = aMVCContext.getOriginalRequest();
+		if (aFutureResponse.isDone() || !request.isAsyncSupported())
+		{
+			ActionResponse actionResponse = AsyncAction.join(aFutureResponse, getActionPath(aMVCContext));
+			ActionExecutor.navigate(actionResponse, aMVCContext, aInterceptorChain);
+			return;
+		}
+		
+		startAsync(aFutureResponse, aMVCContext, aInterceptorChain);
+	}
+	
+	
+	/**
+	 * starts an AsyncContext for the request, and completes it when the future response completes
+	 * or the timeout expires, whichever comes first
+	 */
+	protected static void startAsync(CompletableFuture<ActionResponse> aFutureResponse, final MVCContext aMVCContext, final ActionInterceptorChain aInterceptorChain)
+	{
+		AsyncContext asyncContext = aMVCContext.getOriginalRequest().startAsync(aMVCContext.getOriginalRequest(), aMVCContext.getOriginalResposne());
+		asyncContext.setTimeout(MVCConfigurationManager.getInstance().getAsyncTimeoutMillis(aMVCContext.getRouteMatch().getValue()));
+		aMVCContext.setAsyncContext(asyncContext);
+		
+		asyncContext.addListener(new AsyncListener()
+		{
+			public void onTimeout(AsyncEvent aEvent) throws IOException
+			{
+				if (aMVCContext.claimAsyncHandling())
+				{
+					handleFailure(new ActionExecutionException("async action timed out: ", getActionPath(aMVCContext), MVCExceptionCodes.MVC_ASYNC_ACTION_TIMED_OUT), aMVCContext);
+				}
+			}
+			
+			public void onError(AsyncEvent aEvent) throws IOException
+			{
+				if (aMVCContext.claimAsyncHandling())
+				{
+					handleFailure(toHandleRequestException(aEvent.getThrowable(), getActionPath(aMVCContext)), aMVCContext);
+				}
+			}
+			
+			public void onComplete(AsyncEvent aEvent) throws IOException
+			{
+			}
+			
+			public void onStartAsync(AsyncEvent aEvent) throws IOException
+			{
+			}
+		});
+		
+		navigateOnCompletion(aFutureResponse, aMVCContext, aInterceptorChain);
+	}
+	
+	
+	/**
+	 * navigates according to the future response of an action chained by a request which is
+	 * already handled asynchronously, once the future completes. the thread completing the 
+	 * previous action does not wait for it
+	 * 
+	 * @param aFutureResponse the future action response of the chained action
+	 * @param aMVCContext the mvc context of the current request
+	 * @param aInterceptorChain the interceptor chain of the chained action
+	 */
+	public static void continueAsync(CompletableFuture<ActionResponse> aFutureResponse, MVCContext aMVCContext, ActionInterceptorChain aInterceptorChain)
+	{
+		//the request is handed over to the chained action, so its timeout is mapped again
+		aMVCContext.releaseAsyncHandling();
+		navigateOnCompletion(aFutureResponse, aMVCContext, aInterceptorChain);
+	}
+	
+	
+	/**
+	 * navigates when the given future response completes, unless the request was already 
+	 * answered (when it timed out). the AsyncContext is completed by the navigation of the last
+	 * action of the request, see ActionExecutor.navigate()
+	 */
+	protected static void navigateOnCompletion(CompletableFuture<ActionResponse> aFutureResponse, final MVCContext aMVCContext, final ActionInterceptorChain aInterceptorChain)
+	{
+		final String actionPath = getActionPath(aMVCContext);
+		aFutureResponse.whenComplete((actionResponse, failure) -> 
+		{
+			//the request was already answered, when it timed out
+			if (!aMVCContext.claimAsyncHandling())
+			{
+				return;
+			}
+			
+			if (failure != null)
+			{
+				handleFailure(toHandleRequestException(failure, actionPath), aMVCContext);
+				return;
+			}
+			
+			try
+			{
+				ActionExecutor.navigate(actionResponse, aMVCContext, aInterceptorChain);
+			}
+			catch (HandleRequestException hre)
+			{
+				handleFailure(hre, aMVCContext);
+			}
+			catch (RuntimeException re)
+			{
+				handleFailure(toHandleRequestException(re, actionPath), aMVCContext);
+			}
+		});
+	}
+	
+	
+	/**
+	 * maps the failure of an asynchronously handled request (or of any request which exceeded 
+	 * its deadline) to the configured forward, or to an http error status, and completes the 
+	 * request
+	 */
+	protected static void handleFailure(HandleRequestException aException, MVCContext aMVCContext)
+	{
+		boolean timedOut = aException.mErrorCode == MVCExceptionCodes.MVC_ASYNC_ACTION_TIMED_OUT || aException.mErrorCode == MVCExceptionCodes.MVC_ACTION_DEADLINE_EXCEEDED;
+		System.out.println("could not complete request: " + aException.getMessage());
+		
+		try
+		{
+			MVCConfigurationManager configurationManager = MVCConfigurationManager.getInstance();
+			String forwardName = timedOut ? configurationManager.getAsyncTimeoutForward() : configurationManager.getAsyncErrorForward();
+			if (forwardName != null && aMVCContext.getRouteMatch().getValue() instanceof MVCConfigActionDescriptor)
+			{
+				aMVCContext.setLastErrorOnSession(aException.getMessage());
+			}
+			
+			NavigationHandler.handleRejection(aMVCContext, forwardName, timedOut ? HttpServletResponse.SC_GATEWAY_TIMEOUT : HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+		}
+		catch (Exception e)
+		{
+			System.out.println("could not map the failure of async request: " + e.toString());
+		}
+		finally
+		{
+			aMVCContext.completeAsync();
+		}
+	}
+	
+	
+	protected static HandleRequestException toHandleRequestException(Throwable aThrowable, String aActionPath)
+	{
+		try
+		{
+			return AsyncAction.toActionExecutionException(aThrowable, aActionPath);
+		}
+		catch (HandleRequestException hre)
+		{
+			return hre;
+		}
+	}
+	
+	
+	protected static String getActionPath(MVCContext aMVCContext)
+	{
+		return aMVCContext.getRouteMatch().getValue().getPath();
+	}
+}
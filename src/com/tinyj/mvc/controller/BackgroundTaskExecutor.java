@@ -0,0 +1,321 @@
+package com.tinyj.mvc.controller;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.tinyj.mvc.config.MVCConfigurationManager;
+
+
+/**
+ * The BackgroundTaskExecutor runs the tasks actions enqueue by <i>MVCContext.runAfterResponse()</i>
+ * (like audit writes, cache refreshes and notifications), once the response of their request
+ * was navigated, so the user does not wait for them.
+ * 
+ * the tasks run on a bounded pool of threads, configured by the &lt;background-tasks&gt; element,
+ * and wait for a thread in a bounded queue. when the queue is full, the overflow policy decides
+ * what is dropped:
+ * - discard: the new task is dropped
+ * - discard-oldest: the oldest queued task is dropped, and the new task is queued instead
+ * - caller-runs: the new task runs on the thread which completed the request
+ * 
+ * on <i>shutdown()</i> (called by the destroy() of the controllers, or when the JVM exits if
+ * they were not destroyed), the queued tasks are drained for up to the configured drain time.
+ * 
+ * @author asaf.peeri
+ *
+ */
+public class BackgroundTaskExecutor
+{
+	public static final String OVERFLOW_DISCARD = "discard";
+	public static final String OVERFLOW_DISCARD_OLDEST = "discard-oldest";
+	public static final String OVERFLOW_CALLER_RUNS = "caller-runs";
+	
+	protected static volatile BackgroundTaskExecutor sInstance;
+	private static final ReentrantLock sInstanceLock = new ReentrantLock();
+	
+	private final ThreadPoolExecutor mExecutor;
+	private final String mOverflowPolicy;
+	private final long mDrainMillis;
+	private volatile Thread mShutdownHook;
+	
+	private final LongAdder mSubmittedCount = new LongAdder();
+	private final LongAdder mCompletedCount = new LongAdder();
+	private final LongAdder mFailedCount = new LongAdder();
+	private final LongAdder mDiscardedCount = new LongAdder();
+	
+	
+	/**
+	 * @param aThreads the number of threads running the tasks
+	 * @param aQueueSize the maximal number of tasks waiting for a thread
+	 * @param aOverflowPolicy the policy applied when the queue is full
+	 * @param aDrainMillis the maximal time to wait for the queued tasks on shutdown
+	 */
+	public BackgroundTaskExecutor(int aThreads, int aQueueSize, String aOverflowPolicy, long aDrainMillis)
+	{
+		mOverflowPolicy = aOverflowPolicy;
+		mDrainMillis = aDrainMillis;
+		
+		final AtomicInteger threadCount = new AtomicInteger();
+		mExecutor = new ThreadPoolExecutor(aThreads, aThreads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(aQueueSize), new ThreadFactory()
+		{
+			public Thread newThread(Runnable aRunnable)
+			{
+				Thread thread = new Thread(aRunnable, "tinyj-background-" + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		}, new RejectedExecutionHandler()
+		{
+			public void rejectedExecution(Runnable aTask, ThreadPoolExecutor aExecutor)
+			{
+				overflow(aTask, aExecutor);
+			}
+		});
+		mExecutor.allowCoreThreadTimeOut(true);
+	}
+	
+	
+	/**
+	 * gets the instance of the BackgroundTaskExecutor, configured by the &lt;background-tasks&gt;
+	 * element of the configuration
+	 * 
+	 * @return the instance of the BackgroundTaskExecutor
+	 */
+	public static BackgroundTaskExecutor getInstance()
+	{
+		BackgroundTaskExecutor instance = sInstance;
+		if (instance != null)
+		{
+			return instance;
+		}
+		
+		sInstanceLock.lock();
+		try
+		{
+			if (sInstance == null)
+			{
+				MVCConfigurationManager configurationManager = MVCConfigurationManager.getInstance();
+				BackgroundTaskExecutor executor = new BackgroundTaskExecutor(configurationManager.getBackgroundTaskThreads(),
+																			 configurationManager.getBackgroundTaskQueueSize(),
+																			 configurationManager.getBackgroundTaskOverflowPolicy(),
+																			 configurationManager.getBackgroundTaskDrainSeconds() * 1000L);
+				
+				executor.addShutdownHook();
+				sInstance = executor;
+			}
+			
+			return sInstance;
+		}
+		finally
+		{
+			sInstanceLock.unlock();
+		}
+	}
+	
+	
+	/**
+	 * drains the queued tasks when the JVM exits, unless shut down before
+	 */
+	protected void addShutdownHook()
+	{
+		mShutdownHook = new Thread(() -> shutdown(), "tinyj-background-drain");
+		Runtime.getRuntime().addShutdownHook(mShutdownHook);
+	}
+	
+	
+	/**
+	 * submits the given task to run in the background
+	 * 
+	 * @param aTask the task to run
+	 */
+	public void submit(final Runnable aTask)
+	{
+		mSubmittedCount.increment();
+		mExecutor.execute(new Runnable()
+		{
+			public void run()
+			{
+				try
+				{
+					aTask.run();
+					mCompletedCount.increment();
+				}
+				catch (Throwable t)
+				{
+					mFailedCount.increment();
+					System.out.println("background task failed: " + t.toString());
+				}
+			}
+		});
+	}
+	
+	
+	/**
+	 * applies the overflow policy on a task which could not be queued
+	 */
+	protected void overflow(Runnable aTask, ThreadPoolExecutor aExecutor)
+	{
+		if (aExecutor.isShutdown())
+		{
+			mDiscardedCount.increment();
+			return;
+		}
+		
+		if (OVERFLOW_CALLER_RUNS.equals(mOverflowPolicy))
+		{
+			aTask.run();
+			return;
+		}
+		
+		if (OVERFLOW_DISCARD_OLDEST.equals(mOverflowPolicy))
+		{
+			if (aExecutor.getQueue().poll() != null)
+			{
+				mDiscardedCount.increment();
+			}
+			aExecutor.execute(aTask);
+			return;
+		}
+		
+		mDiscardedCount.increment();
+	}
+	
+	
+	/**
+	 * stops accepting new tasks, and waits up to the drain time for the queued and running tasks
+	 * to complete. the tasks left after it are dropped
+	 */
+	public void shutdown()
+	{
+		if (mExecutor.isShutdown())
+		{
+			return;
+		}
+		
+		//a shut down executor no longer needs the hook (which would keep a redeployed web app loaded)
+		Thread shutdownHook = mShutdownHook;
+		if (shutdownHook != null && shutdownHook != Thread.currentThread())
+		{
+			try
+			{
+				Runtime.getRuntime().removeShutdownHook(shutdownHook);
+			}
+			catch (IllegalStateException ise)
+			{
+				//the JVM is already exiting
+			}
+		}
+		
+		mExecutor.shutdown();
+		try
+		{
+			if (!mExecutor.awaitTermination(mDrainMillis, TimeUnit.MILLISECONDS))
+			{
+				int dropped = mExecutor.shutdownNow().size();
+				mDiscardedCount.add(dropped);
+				System.out.println("background tasks were not drained, dropped " + dropped + " queued tasks");
+			}
+		}
+		catch (InterruptedException ie)
+		{
+			mExecutor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	
+	/**
+	 * shuts down the instance of the BackgroundTaskExecutor, if it was created, draining its 
+	 * queued tasks, so its threads and its shutdown hook do not outlive the web application. 
+	 * called by the destroy() of the controllers
+	 */
+	public static void shutdownInstance()
+	{
+		BackgroundTaskExecutor instance = null;
+		sInstanceLock.lock();
+		try
+		{
+			instance = sInstance;
+			sInstance = null;
+		}
+		finally
+		{
+			sInstanceLock.unlock();
+		}
+		
+		//drained outside of the lock, so a request completing meanwhile is not blocked on it
+		if (instance != null)
+		{
+			instance.shutdown();
+		}
+	}
+	
+	
+	/**
+	 * returns the number of tasks submitted so far
+	 */
+	public long getSubmittedCount()
+	{
+		return mSubmittedCount.sum();
+	}
+	
+	
+	/**
+	 * returns the number of tasks which completed successfully so far
+	 */
+	public long getCompletedCount()
+	{
+		return mCompletedCount.sum();
+	}
+	
+	
+	/**
+	 * returns the number of tasks which failed so far
+	 */
+	public long getFailedCount()
+	{
+		return mFailedCount.sum();
+	}
+	
+	
+	/**
+	 * returns the number of tasks dropped so far, by the overflow policy or on shutdown
+	 */
+	public long getDiscardedCount()
+	{
+		return mDiscardedCount.sum();
+	}
+	
+	
+	/**
+	 * returns the number of tasks waiting for a thread
+	 */
+	public int getQueuedCount()
+	{
+		return mExecutor.getQueue().size();
+	}
+	
+	
+	/**
+	 * returns the number of tasks running right now
+	 */
+	public int getActiveCount()
+	{
+		return mExecutor.getActiveCount();
+	}
+	
+	
+	@Override
+	public String toString()
+	{
+		return "BackgroundTaskExecutor[submitted=" + getSubmittedCount() + ", completed=" + getCompletedCount() +
+			   ", failed=" + getFailedCount() + ", discarded=" + getDiscardedCount() + ", queued=" + getQueuedCount() +
+			   ", active=" + getActiveCount() + "]";
+	}
+}
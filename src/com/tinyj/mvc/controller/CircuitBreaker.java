@@ -0,0 +1,242 @@
+package com.tinyj.mvc.controller;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * a CircuitBreaker stops executing an action whose executions keep failing (like when a 
+ * downstream dependency is down), so requests do not wait for their own timeout to fail.
+ * 
+ * the breaker is closed while the failure rate of the action, over a rolling window of 
+ * one second buckets, is below the configured rate. once enough requests were executed within
+ * the window and the failure rate reaches the configured rate, the breaker opens, and requests 
+ * take the fallback of the action (a fallback forward, or a canned ajax response) without 
+ * executing it. after the open duration, the breaker is half open, and lets a few trial 
+ * requests execute: if they all succeed, the breaker closes, and if any of them fails, it opens
+ * again.
+ * 
+ * the breaker is lock free.
+ * 
+ * @author asaf.peeri
+ *
+ */
+public class CircuitBreaker
+{
+	public static final int CLOSED = 0;
+	public static final int OPEN = 1;
+	public static final int HALF_OPEN = 2;
+	
+	private final int mFailureRatePercent;
+	private final int mMinRequests;
+	private final long mOpenNanos;
+	private final int mHalfOpenRequests;
+	
+	private final AtomicInteger mState = new AtomicInteger(CLOSED);
+	private volatile long mOpenedAtNanos;
+	private final AtomicInteger mHalfOpenPermits = new AtomicInteger();
+	private final AtomicInteger mHalfOpenSuccesses = new AtomicInteger();
+	
+	//the rolling window, a bucket per second
+	private final AtomicReferenceArray<Bucket> mBuckets;
+	
+	private final LongAdder mRejectedCount = new LongAdder();
+	
+	
+	/**
+	 * @param aFailureRatePercent the failure rate (in percents) opening the breaker
+	 * @param aWindowSeconds the length of the rolling window the failure rate is measured over
+	 * @param aMinRequests the minimal number of requests within the window to measure the failure rate
+	 * @param aOpenSeconds the time the breaker stays open before letting trial requests execute
+	 * @param aHalfOpenRequests the number of trial requests which should succeed to close the breaker
+	 */
+	public CircuitBreaker(int aFailureRatePercent, int aWindowSeconds, int aMinRequests, int aOpenSeconds, int aHalfOpenRequests)
+	{
+		mFailureRatePercent = aFailureRatePercent;
+		mMinRequests = aMinRequests;
+		mOpenNanos = aOpenSeconds * 1000000000L;
+		mHalfOpenRequests = aHalfOpenRequests;
+		mBuckets = new AtomicReferenceArray<Bucket>(aWindowSeconds);
+	}
+	
+	
+	/**
+	 * decides whether a request may execute the action. a request which was allowed must report
+	 * its result by calling <i>onResult()</i>
+	 * 
+	 * @return true if the action may be executed, false if the request should take the fallback
+	 */
+	public boolean allowRequest()
+	{
+		int state = mState.get();
+		if (state == CLOSED)
+		{
+			return true;
+		}
+		
+		if (state == OPEN)
+		{
+			if (System.nanoTime() - mOpenedAtNanos < mOpenNanos || !mState.compareAndSet(OPEN, HALF_OPEN))
+			{
+				//still open, or another request just moved the breaker to half open
+				return allowHalfOpenRequest();
+			}
+			
+			mHalfOpenSuccesses.set(0);
+			mHalfOpenPermits.set(mHalfOpenRequests);
+		}
+		
+		return allowHalfOpenRequest();
+	}
+	
+	
+	protected boolean allowHalfOpenRequest()
+	{
+		if (mState.get() == HALF_OPEN)
+		{
+			while (true)
+			{
+				int permits = mHalfOpenPermits.get();
+				if (permits <= 0)
+				{
+					break;
+				}
+				if (mHalfOpenPermits.compareAndSet(permits, permits - 1))
+				{
+					return true;
+				}
+			}
+		}
+		
+		mRejectedCount.increment();
+		return false;
+	}
+	
+	
+	/**
+	 * reports the result of a request which was allowed to execute the action
+	 * 
+	 * @param aSucceeded whether the execution succeeded
+	 */
+	public void onResult(boolean aSucceeded)
+	{
+		int state = mState.get();
+		if (state == HALF_OPEN)
+		{
+			if (!aSucceeded)
+			{
+				open(HALF_OPEN);
+			}
+			else if (mHalfOpenSuccesses.incrementAndGet() >= mHalfOpenRequests && mState.compareAndSet(HALF_OPEN, CLOSED))
+			{
+				//start measuring the failure rate from scratch
+				for (int i=0 ; i<mBuckets.length() ; ++i)
+				{
+					mBuckets.set(i, null);
+				}
+			}
+			return;
+		}
+		
+		if (state != CLOSED)
+		{
+			return;
+		}
+		
+		long nowSeconds = System.nanoTime() / 1000000000L;
+		Bucket bucket = getBucket(nowSeconds);
+		(aSucceeded ? bucket.mSuccesses : bucket.mFailures).increment();
+		
+		if (!aSucceeded)
+		{
+			long successes = 0;
+			long failures = 0;
+			for (int i=0 ; i<mBuckets.length() ; ++i)
+			{
+				Bucket windowBucket = mBuckets.get(i);
+				if (windowBucket != null && nowSeconds - windowBucket.mEpochSecond < mBuckets.length())
+				{
+					successes += windowBucket.mSuccesses.sum();
+					failures += windowBucket.mFailures.sum();
+				}
+			}
+			
+			long requests = successes + failures;
+			if (requests >= mMinRequests && failures * 100 >= requests * mFailureRatePercent)
+			{
+				open(CLOSED);
+			}
+		}
+	}
+	
+	
+	protected void open(int aFromState)
+	{
+		//the open time is set first, so a request seeing the breaker open never sees a stale open time
+		mOpenedAtNanos = System.nanoTime();
+		mState.compareAndSet(aFromState, OPEN);
+	}
+	
+	
+	protected Bucket getBucket(long aEpochSecond)
+	{
+		int index = (int)Math.floorMod(aEpochSecond, (long)mBuckets.length());
+		while (true)
+		{
+			Bucket bucket = mBuckets.get(index);
+			if (bucket != null && bucket.mEpochSecond == aEpochSecond)
+			{
+				return bucket;
+			}
+			
+			//the bucket is of an older second, so it is replaced
+			Bucket newBucket = new Bucket(aEpochSecond);
+			if (mBuckets.compareAndSet(index, bucket, newBucket))
+			{
+				return newBucket;
+			}
+		}
+	}
+	
+	
+	/**
+	 * returns the state of the breaker: CLOSED, OPEN or HALF_OPEN
+	 */
+	public int getState()
+	{
+		return mState.get();
+	}
+	
+	
+	/**
+	 * returns the number of requests which took the fallback since startup
+	 */
+	public long getRejectedCount()
+	{
+		return mRejectedCount.sum();
+	}
+	
+	
+	@Override
+	public String toString()
+	{
+		int state = getState();
+		return (state == CLOSED ? "closed" : state == OPEN ? "open" : "half open") + ", rejected=" + getRejectedCount();
+	}
+	
+	
+	
+	private static class Bucket
+	{
+		private final long mEpochSecond;
+		private final LongAdder mSuccesses = new LongAdder();
+		private final LongAdder mFailures = new LongAdder();
+		
+		
+		private Bucket(long aEpochSecond)
+		{
+			mEpochSecond = aEpochSecond;
+		}
+	}
+}
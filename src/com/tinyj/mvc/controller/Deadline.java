@@ -0,0 +1,264 @@
+package com.tinyj.mvc.controller;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.tinyj.mvc.exception.ActionExecutionException;
+import com.tinyj.mvc.exception.MVCExceptionCodes;
+
+
+/**
+ * a Deadline is the time by which the handling of a request should be done. it is started
+ * when the request enters the ActionExecutor, from the timeout-ms of its action (or the
+ * default timeout-ms of the &lt;execution&gt; element), and is kept on the MVCContext, so it
+ * holds across the threads executing the request (the container thread, a virtual thread, or
+ * the thread completing an AsyncAction).
+ * 
+ * the framework checks the deadline before executing the action, and abandons an action which
+ * completes too late: a virtual action is interrupted, and the future response of an
+ * AsyncAction is failed. either way, the request is mapped to the timeout-forward of the
+ * &lt;async&gt; element, or to http 504.
+ * 
+ * actions should check the deadline (or pass its remaining time as the timeout of their JDBC
+ * and remote calls), so they do not keep working for a client that has already given up:
+ * <pre>
+ *     statement.setQueryTimeout((int)aMVCContext.getDeadline().remaining(TimeUnit.SECONDS));
+ * </pre>
+ * 
+ * @author asaf.peeri
+ *
+ */
+public class Deadline
+{
+	/**
+	 * the deadline of a request whose action has no timeout
+	 */
+	public static final Deadline NONE = new Deadline(Long.MAX_VALUE);
+	
+	private static volatile ScheduledThreadPoolExecutor sTimer;
+	private static final ReentrantLock sTimerLock = new ReentrantLock();
+	
+	private final long mTimeoutNanos;
+	private final long mDeadlineNanos;
+	
+	
+	protected Deadline(long aTimeoutNanos)
+	{
+		mTimeoutNanos = aTimeoutNanos;
+		mDeadlineNanos = (aTimeoutNanos == Long.MAX_VALUE) ? Long.MAX_VALUE : System.nanoTime() + aTimeoutNanos;
+	}
+	
+	
+	/**
+	 * creates a deadline expiring after the given timeout
+	 * 
+	 * @param aTimeoutMillis the timeout in milliseconds, 0 for no deadline
+	 * 
+	 * @return the deadline
+	 */
+	public static Deadline after(long aTimeoutMillis)
+	{
+		if (aTimeoutMillis <= 0)
+		{
+			return NONE;
+		}
+		
+		return new Deadline(TimeUnit.MILLISECONDS.toNanos(aTimeoutMillis));
+	}
+	
+	
+	/**
+	 * returns whether this deadline ever expires
+	 */
+	public boolean isBounded()
+	{
+		return this != NONE;
+	}
+	
+	
+	/**
+	 * returns whether this deadline has already expired
+	 */
+	public boolean isExpired()
+	{
+		return isBounded() && System.nanoTime() - mDeadlineNanos >= 0;
+	}
+	
+	
+	/**
+	 * returns the time left until this deadline expires
+	 * 
+	 * @param aTimeUnit the unit of the returned time
+	 * 
+	 * @return the time left (0 if already expired), or Long.MAX_VALUE for no deadline
+	 */
+	public long remaining(TimeUnit aTimeUnit)
+	{
+		if (!isBounded())
+		{
+			return Long.MAX_VALUE;
+		}
+		
+		long remainingNanos = mDeadlineNanos - System.nanoTime();
+		return (remainingNanos <= 0) ? 0 : aTimeUnit.convert(remainingNanos, TimeUnit.NANOSECONDS);
+	}
+	
+	
+	/**
+	 * returns the time left until this deadline expires, in milliseconds
+	 */
+	public long remainingMillis()
+	{
+		return remaining(TimeUnit.MILLISECONDS);
+	}
+	
+	
+	/**
+	 * returns the given wait bounded by the time left until this deadline expires
+	 * 
+	 * @param aMaxWaitMillis the wait in milliseconds
+	 * 
+	 * @return the bounded wait in milliseconds
+	 */
+	public long bound(long aMaxWaitMillis)
+	{
+		return Math.min(aMaxWaitMillis, remainingMillis());
+	}
+	
+	
+	/**
+	 * throws when this deadline has expired. actions may call it between the steps of a long
+	 * work, to stop it once the client has given up
+	 * 
+	 * @param aActionPath the path of the action, for the error message
+	 * 
+	 * @throws ActionExecutionException with MVC_ACTION_DEADLINE_EXCEEDED, when expired
+	 */
+	public void check(String aActionPath)
+		throws ActionExecutionException
+	{
+		if (isExpired())
+		{
+			throw newDeadlineExceededException(aActionPath);
+		}
+	}
+	
+	
+	/**
+	 * returns a future response failing with MVC_ACTION_DEADLINE_EXCEEDED, if the given future
+	 * response is not done by this deadline. the given future itself is left as is, since it may
+	 * be shared by other requests (like a memoised backend call of an AsyncAction).
+	 * 
+	 * @param aFutureResponse the future to bound
+	 * @param aActionPath the path of the action, for the error message
+	 * 
+	 * @return the bounded future, or the given future if this deadline is not bounded
+	 */
+	public <T> CompletableFuture<T> bound(CompletableFuture<T> aFutureResponse, String aActionPath)
+	{
+		return bound(aFutureResponse, aActionPath, false);
+	}
+	
+	
+	/**
+	 * returns a future response failing with MVC_ACTION_DEADLINE_EXCEEDED, if the given future
+	 * response is not done by this deadline. when the given future is owned by the request (like 
+	 * the future of a virtual action, see ActionExecutionService), it may be cancelled along with 
+	 * the bounded future, which interrupts the thread executing it.
+	 * 
+	 * @param aFutureResponse the future to bound
+	 * @param aActionPath the path of the action, for the error message
+	 * @param aCancelSource true to cancel the given future when the bounded future fails
+	 * 
+	 * @return the bounded future, or the given future if this deadline is not bounded
+	 */
+	public <T> CompletableFuture<T> bound(final CompletableFuture<T> aFutureResponse, final String aActionPath, final boolean aCancelSource)
+	{
+		if (!isBounded() || aFutureResponse.isDone())
+		{
+			return aFutureResponse;
+		}
+		
+		final CompletableFuture<T> boundedResponse = aFutureResponse.thenApply(response -> response);
+		try
+		{
+			final ScheduledFuture<?> expiry = getTimer().schedule(() ->
+			{
+				boundedResponse.completeExceptionally(newDeadlineExceededException(aActionPath));
+			}, mDeadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+			
+			//the expiry task is removed from the timer as soon as the future completes
+			boundedResponse.whenComplete((response, failure) -> 
+			{
+				expiry.cancel(false);
+				if (failure != null && aCancelSource)
+				{
+					aFutureResponse.cancel(true);
+				}
+			});
+		}
+		catch (RejectedExecutionException ree)
+		{
+			//the timer was shut down, the future is left unbounded
+		}
+		
+		return boundedResponse;
+	}
+	
+	
+	protected ActionExecutionException newDeadlineExceededException(String aActionPath)
+	{
+		return new ActionExecutionException("action exceeded its deadline of " + TimeUnit.NANOSECONDS.toMillis(mTimeoutNanos) + "ms: ", aActionPath, MVCExceptionCodes.MVC_ACTION_DEADLINE_EXCEEDED);
+	}
+	
+	
+	/**
+	 * returns the timer expiring the deadlines of future responses. a single daemon thread
+	 * serves all of them
+	 */
+	protected static ScheduledThreadPoolExecutor getTimer()
+	{
+		ScheduledThreadPoolExecutor timer = sTimer;
+		if (timer != null)
+		{
+			return timer;
+		}
+		
+		sTimerLock.lock();
+		try
+		{
+			if (sTimer == null)
+			{
+				timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory()
+				{
+					public Thread newThread(Runnable aRunnable)
+					{
+						Thread thread = new Thread(aRunnable, "tinyj-deadline-timer");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+				timer.setRemoveOnCancelPolicy(true);
+				sTimer = timer;
+			}
+			
+			return sTimer;
+		}
+		finally
+		{
+			sTimerLock.unlock();
+		}
+	}
+	
+	
+	@Override
+	public String toString()
+	{
+		return isBounded() ? ("Deadline[" + remainingMillis() + "ms left]") : "Deadline[none]";
+	}
+}
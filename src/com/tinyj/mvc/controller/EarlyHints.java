@@ -0,0 +1,104 @@
+package com.tinyj.mvc.controller;
+
+import java.lang.reflect.Method;
+
+import javax.servlet.http.HttpServletResponse;
+
+import com.tinyj.mvc.config.PreloadLinks;
+
+
+/**
+ * EarlyHints tells the browser about the critical resources of the page a request is about to
+ * be forwarded to (see the preload attribute of a forward), before the action executes, so the
+ * browser fetches them while the server is still working.
+ * 
+ * the resources are added to the response as a Link preload header. the servlet 3.0 API has no
+ * way of sending an informational response, so when the response of the container has a public
+ * <i>sendEarlyHints()</i> method, the headers are also sent right away as an http 103 Early
+ * Hints response. otherwise, the Link header goes out with the response itself (which a proxy
+ * or a CDN in front of the container may turn into 103 Early Hints).
+ * 
+ * the hints are sent once per request: the actions a request chains to do not add a Link 
+ * header of their own.
+ * 
+ * @author asaf.peeri
+ *
+ */
+public class EarlyHints
+{
+	//the sendEarlyHints() method of the last response class seen, looked up once per class
+	private static volatile EarlyHintsMethod sEarlyHintsMethod;
+	
+	
+	/**
+	 * sends the given preload links to the browser
+	 * 
+	 * @param aMVCContext the mvc context of the current request
+	 * @param aPreloadLinks the resources to preload
+	 */
+	public static void send(MVCContext aMVCContext, PreloadLinks aPreloadLinks)
+	{
+		//the hints are sent once per request, by the first action of a chain
+		HttpServletResponse response = aMVCContext.getOriginalResposne();
+		if (response.isCommitted() || !aMVCContext.markEarlyHintsSent())
+		{
+			return;
+		}
+		
+		response.addHeader("Link", aPreloadLinks.getLinkHeader(aMVCContext.getOriginalRequest().getContextPath()));
+		
+		Method sendEarlyHints = getSendEarlyHintsMethod(response.getClass());
+		if (sendEarlyHints != null)
+		{
+			try
+			{
+				sendEarlyHints.invoke(response);
+			}
+			catch (Exception e)
+			{
+				//the hints still go out with the response
+			}
+		}
+	}
+	
+	
+	protected static Method getSendEarlyHintsMethod(Class<?> aResponseClass)
+	{
+		EarlyHintsMethod earlyHintsMethod = sEarlyHintsMethod;
+		if (earlyHintsMethod == null || earlyHintsMethod.mResponseClass != aResponseClass)
+		{
+			Method method = null;
+			try
+			{
+				method = aResponseClass.getMethod("sendEarlyHints");
+			}
+			catch (Exception e)
+			{
+				//the container can't send informational responses
+			}
+			
+			earlyHintsMethod = new EarlyHintsMethod(aResponseClass, method);
+			sEarlyHintsMethod = earlyHintsMethod;
+		}
+		
+		return earlyHintsMethod.mMethod;
+	}
+	
+	
+	
+	/**
+	 * the sendEarlyHints() method of a response class, or null if it has none
+	 */
+	protected static class EarlyHintsMethod
+	{
+		private final Class<?> mResponseClass;
+		private final Method mMethod;
+		
+		
+		protected EarlyHintsMethod(Class<?> aResponseClass, Method aMethod)
+		{
+			mResponseClass = aResponseClass;
+			mMethod = aMethod;
+		}
+	}
+}
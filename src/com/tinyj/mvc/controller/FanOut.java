@@ -0,0 +1,275 @@
+package com.tinyj.mvc.controller;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.tinyj.mvc.exception.ActionExecutionException;
+import com.tinyj.mvc.exception.HandleRequestException;
+import com.tinyj.mvc.exception.MVCExceptionCodes;
+
+
+/**
+ * a FanOut lets an action call several independent services in parallel, instead of one after
+ * another. it is a structured scope: the subtasks forked in it are joined (or cancelled) before
+ * the scope is closed, so none of them outlives the action.
+ * <pre>
+ *     FanOut fanOut = aMVCContext.fanOut();
+ *     try
+ *     {
+ *         FanOut.Subtask&lt;User&gt; user = fanOut.fork("user", () -&gt; userService.getUser(id));
+ *         FanOut.Subtask&lt;List&lt;Order&gt;&gt; orders = fanOut.fork("orders", () -&gt; orderService.getOrders(id));
+ *         fanOut.join();
+ * 
+ *         aMVCContext.getOriginalRequest().setAttribute("user", user.get());
+ *         ...
+ *     }
+ *     finally
+ *     {
+ *         fanOut.close();
+ *     }
+ * </pre>
+ * 
+ * the subtasks run on the ActionExecutionService threads (virtual threads, on java 21 or later),
+ * and are not bounded by its max-concurrency, so an action holding a slot never waits for its own
+ * subtasks to get one. they inherit the deadline of the request: <i>join()</i> waits for them
+ * up to the deadline, and a subtask is not started once it expired. the first subtask to fail
+ * cancels (and interrupts) all the others.
+ * 
+ * the time each subtask took is recorded on the MVCContext (see <i>MVCContext.getTimings()</i>),
+ * under the name it was forked with.
+ * 
+ * subtasks are forked and joined by the thread executing the action.
+ * 
+ * @author asaf.peeri
+ *
+ */
+public class FanOut implements AutoCloseable
+{
+	private final MVCContext mMVCContext;
+	private final String mActionPath;
+	private final List<Subtask<?>> mSubtasks = new CopyOnWriteArrayList<Subtask<?>>();
+	private final AtomicReference<Throwable> mFailure = new AtomicReference<Throwable>();
+	
+	
+	protected FanOut(MVCContext aMVCContext)
+	{
+		mMVCContext = aMVCContext;
+		mActionPath = (aMVCContext.getRouteMatch() == null) ? null : aMVCContext.getRouteMatch().getValue().getPath();
+	}
+	
+	
+	/**
+	 * forks a subtask, which starts executing right away
+	 * 
+	 * @param aName the name of the subtask, under which its timing is recorded
+	 * @param aTask the subtask
+	 * 
+	 * @return the subtask, whose result is available after <i>join()</i>
+	 */
+	public <T> Subtask<T> fork(final String aName, final Callable<T> aTask)
+	{
+		final Subtask<T> subtask = new Subtask<T>(aName);
+		mSubtasks.add(subtask);
+		
+		if (mFailure.get() != null)
+		{
+			//a subtask already failed, so there is no point in starting another one
+			subtask.mResult.cancel(false);
+			return subtask;
+		}
+		
+		final Deadline deadline = mMVCContext.getDeadline();
+		subtask.mTask = ActionExecutionService.getInstance().fork(() ->
+		{
+			//a subtask cancelled before it started is not executed
+			if (subtask.mResult.isDone())
+			{
+				return;
+			}
+			
+			long startNanos = System.nanoTime();
+			try
+			{
+				deadline.check(mActionPath);
+				subtask.mResult.complete(aTask.call());
+			}
+			catch (Throwable t)
+			{
+				//the failure of a cancelled subtask (like its interruption) is not a failure of the fan out
+				if (subtask.mResult.completeExceptionally(t))
+				{
+					fail(t);
+				}
+			}
+			finally
+			{
+				mMVCContext.recordTiming(aName, System.nanoTime() - startNanos);
+			}
+		});
+		
+		return subtask;
+	}
+	
+	
+	/**
+	 * waits for all the forked subtasks to complete, up to the deadline of the request
+	 * 
+	 * @throws ActionExecutionException with the failure of the first failed subtask, or with
+	 * MVC_ACTION_DEADLINE_EXCEEDED when the deadline expired first
+	 */
+	public void join()
+		throws ActionExecutionException
+	{
+		Deadline deadline = mMVCContext.getDeadline();
+		try
+		{
+			for (Subtask<?> subtask : mSubtasks)
+			{
+				try
+				{
+					if (deadline.isBounded())
+					{
+						subtask.mResult.get(deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+					}
+					else
+					{
+						subtask.mResult.get();
+					}
+				}
+				catch (ExecutionException ee)
+				{
+					//the failure is thrown below, as the first failure of the fan out
+				}
+				catch (CancellationException ce)
+				{
+					//cancelled by the failure of another subtask
+				}
+			}
+		}
+		catch (TimeoutException te)
+		{
+			cancelAll();
+			throw deadline.newDeadlineExceededException(mActionPath);
+		}
+		catch (InterruptedException ie)
+		{
+			cancelAll();
+			Thread.currentThread().interrupt();
+			throw new ActionExecutionException("interrupted while waiting for the subtasks of action: ", mActionPath, MVCExceptionCodes.MVC_FAN_OUT_SUBTASK_FAILED);
+		}
+		
+		Throwable failure = mFailure.get();
+		if (failure != null)
+		{
+			throw toActionExecutionException(failure);
+		}
+	}
+	
+	
+	/**
+	 * cancels the subtasks which did not complete. called when leaving the scope of the fan out
+	 */
+	public void close()
+	{
+		cancelAll();
+	}
+	
+	
+	protected void fail(Throwable aFailure)
+	{
+		if (mFailure.compareAndSet(null, aFailure))
+		{
+			cancelAll();
+		}
+	}
+	
+	
+	protected void cancelAll()
+	{
+		for (Subtask<?> subtask : mSubtasks)
+		{
+			subtask.cancel();
+		}
+	}
+	
+	
+	protected ActionExecutionException toActionExecutionException(Throwable aFailure)
+	{
+		if (aFailure instanceof ActionExecutionException)
+		{
+			return (ActionExecutionException)aFailure;
+		}
+		else if (aFailure instanceof HandleRequestException)
+		{
+			HandleRequestException hre = (HandleRequestException)aFailure;
+			return new ActionExecutionException(hre.getMessage(), hre.mErrorCode);
+		}
+		
+		ActionExecutionException aee = new ActionExecutionException("subtask of action failed: " + mActionPath + ": " + aFailure, MVCExceptionCodes.MVC_FAN_OUT_SUBTASK_FAILED);
+		aee.initCause(aFailure);
+		return aee;
+	}
+	
+	
+	
+	/**
+	 * a subtask forked by a FanOut
+	 */
+	public static class Subtask<T>
+	{
+		private final String mName;
+		private final CompletableFuture<T> mResult = new CompletableFuture<T>();
+		private volatile Future<?> mTask;
+		
+		
+		protected Subtask(String aName)
+		{
+			mName = aName;
+		}
+		
+		
+		public String getName()
+		{
+			return mName;
+		}
+		
+		
+		/**
+		 * returns the result of the subtask, once the fan out was joined
+		 * 
+		 * @return the result of the subtask
+		 * 
+		 * @throws IllegalStateException when the subtask did not complete successfully
+		 */
+		public T get()
+		{
+			if (!mResult.isDone() || mResult.isCompletedExceptionally())
+			{
+				throw new IllegalStateException("subtask " + mName + " did not complete successfully");
+			}
+			
+			return mResult.join();
+		}
+		
+		
+		protected void cancel()
+		{
+			if (mResult.cancel(false))
+			{
+				Future<?> task = mTask;
+				if (task != null)
+				{
+					task.cancel(true);
+				}
+			}
+		}
+	}
+}
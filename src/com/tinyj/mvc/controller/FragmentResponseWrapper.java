@@ -0,0 +1,107 @@
+package com.tinyj.mvc.controller;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+
+/**
+ * a FragmentResponseWrapper captures the content a page (like a JSP) writes when it is
+ * included, instead of writing it to the client, so the content can be sent as a fragment of
+ * a client side navigation instruction (see NavigationHandler).
+ * 
+ * @author asaf.peeri
+ *
+ */
+public class FragmentResponseWrapper extends HttpServletResponseWrapper
+{
+	private final ByteArrayOutputStream mBytes = new ByteArrayOutputStream();
+	private final StringWriter mChars = new StringWriter();
+	private ServletOutputStream mOutputStream;
+	private PrintWriter mWriter;
+	
+	
+	public FragmentResponseWrapper(HttpServletResponse aResponse)
+	{
+		super(aResponse);
+	}
+	
+	
+	@Override
+	public ServletOutputStream getOutputStream()
+		throws IOException
+	{
+		if (mOutputStream == null)
+		{
+			mOutputStream = new ServletOutputStream()
+			{
+				@Override
+				public void write(int aByte)
+				{
+					mBytes.write(aByte);
+				}
+				
+				@Override
+				public void write(byte[] aBytes, int aOffset, int aLength)
+				{
+					mBytes.write(aBytes, aOffset, aLength);
+				}
+			};
+		}
+		
+		return mOutputStream;
+	}
+	
+	
+	@Override
+	public PrintWriter getWriter()
+		throws IOException
+	{
+		if (mWriter == null)
+		{
+			mWriter = new PrintWriter(mChars);
+		}
+		
+		return mWriter;
+	}
+	
+	
+	@Override
+	public void setContentLength(int aLength)
+	{
+		//the length of the fragment is not the length of the response
+	}
+	
+	
+	@Override
+	public void flushBuffer()
+	{
+		//nothing is written to the client
+	}
+	
+	
+	/**
+	 * returns the captured content: the characters written to the writer, or the bytes written
+	 * to the output stream, decoded by the character encoding of the response
+	 * 
+	 * @return the captured content
+	 */
+	public String getContent()
+		throws UnsupportedEncodingException
+	{
+		if (mWriter != null)
+		{
+			mWriter.flush();
+			return mChars.toString();
+		}
+		
+		String characterEncoding = getCharacterEncoding();
+		return mBytes.toString((characterEncoding == null) ? "UTF-8" : characterEncoding);
+	}
+}
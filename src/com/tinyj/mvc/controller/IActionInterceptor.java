@@ -0,0 +1,58 @@
+package com.tinyj.mvc.controller;
+
+import com.tinyj.mvc.exception.HandleRequestException;
+import com.tinyj.mvc.model.Action;
+import com.tinyj.mvc.model.ActionResponse;
+
+
+/**
+ * an interface defining an interceptor around the MVC lifecycle of an action (auth, timing, 
+ * auditing etc). interceptors are declared in the &lt;interceptors&gt; section of the configuration, 
+ * either globally (applied to all the actions) or by name on an action, and are compiled into 
+ * a fixed chain per action upon configuration load.
+ * 
+ * a single interceptor instance is shared by all requests, therefore it must be thread safe.
+ * all the hooks get the already built MVCContext of the request, so there is no need to 
+ * parse the request or look up the session again.
+ * 
+ * users may extend the ActionInterceptorAdapter and override only the needed hooks.
+ * 
+ * @author asaf.peeri
+ *
+ */
+public interface IActionInterceptor
+{
+	/**
+	 * called after the MVCContext is created, before the java beans are populated from the 
+	 * request parameters
+	 * 
+	 * @return null to continue the lifecycle, or an ActionResponse to navigate with, without
+	 * 			populating the java beans or executing the action
+	 */
+	public ActionResponse beforePopulate(MVCContext aMVCContext)
+		throws HandleRequestException;
+	
+	
+	/**
+	 * called right before the action is executed
+	 * 
+	 * @return null to continue the lifecycle, or an ActionResponse to navigate with, without
+	 * 			executing the action
+	 */
+	public ActionResponse beforeExecute(Action aAction, MVCContext aMVCContext)
+		throws HandleRequestException;
+	
+	
+	/**
+	 * called after the action was executed successfully
+	 */
+	public void afterExecute(Action aAction, ActionResponse aActionResponse, MVCContext aMVCContext)
+		throws HandleRequestException;
+	
+	
+	/**
+	 * called right before navigating to the next page (or writing back the ajax response)
+	 */
+	public void onNavigate(ActionResponse aActionResponse, MVCContext aMVCContext)
+		throws HandleRequestException;
+}
@@ -0,0 +1,382 @@
+package com.tinyj.mvc.controller;
+
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.tinyj.mvc.config.MVCConfigurationManager;
+import com.tinyj.mvc.exception.ActionExecutionException;
+import com.tinyj.mvc.exception.MVCExceptionCodes;
+import com.tinyj.mvc.model.ActionResponse;
+import com.tinyj.mvc.model.AjaxActionResponse;
+import com.tinyj.mvc.model.CustomURLActionResponse;
+
+
+/**
+ * the IdempotencyStore suppresses duplicate submissions of the same form (like a double 
+ * clicked submit button). 
+ * 
+ * a page issues an idempotency token per form (using MVCContext.issueIdempotencyToken()), 
+ * and sends it in a hidden field named <i>_tinyjIdempotencyKey</i> (or, for ajax requests, in
+ * an <i>X-Idempotency-Key</i> header). the first request with a token executes the action, and 
+ * its ActionResponse (the forward name, custom URL or ajax payload) is stored. any repeated 
+ * request with the same token to the same action replays the stored ActionResponse instead of 
+ * executing the action again. if the first request is still executing, the repeated request 
+ * waits for it (up to the configured wait time).
+ * 
+ * a failed execution is not stored, so the same token can be submitted again.
+ * the store is bounded (the least recently used completed tokens are evicted) and expires old 
+ * tokens. a token whose execution is still running is never evicted, so a repeated request 
+ * always finds it, and the store may exceed its bound by the number of running executions.
+ * 
+ * @author asaf.peeri
+ *
+ */
+public class IdempotencyStore
+{
+	public static final String IDEMPOTENCY_TOKEN_PARAM_NAME = "_tinyjIdempotencyKey";
+	public static final String IDEMPOTENCY_TOKEN_HEADER_NAME = "X-Idempotency-Key";
+	
+	private static final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
+	private static final SecureRandom sRandom = new SecureRandom();
+	
+	protected static volatile IdempotencyStore sInstance;
+	private static final ReentrantLock sInstanceLock = new ReentrantLock();
+	
+	private final int mMaxEntries;
+	private final long mTTLMillis;
+	private final long mWaitMillis;
+	private final ReentrantLock mLock = new ReentrantLock();
+	private final LinkedHashMap<String, Execution> mExecutions;
+	
+	
+	protected IdempotencyStore(int aMaxEntries, long aTTLMillis, long aWaitMillis)
+	{
+		mMaxEntries = aMaxEntries;
+		mTTLMillis = aTTLMillis;
+		mWaitMillis = aWaitMillis;
+		
+		//access ordered, so the eldest entry is the least recently used one
+		mExecutions = new LinkedHashMap<String, Execution>(16, 0.75f, true);
+	}
+	
+	
+	/**
+	 * gets the instance of the IdempotencyStore, configured by the &lt;idempotency&gt; element of
+	 * the mvc configuration
+	 * 
+	 * @return the instance of the IdempotencyStore
+	 */
+	public static IdempotencyStore getInstance()
+	{
+		if (sInstance != null)
+		{
+			return sInstance;
+		}
+		
+		sInstanceLock.lock();
+		try
+		{
+			if (sInstance == null)
+			{
+				MVCConfigurationManager configurationManager = MVCConfigurationManager.getInstance();
+				sInstance = new IdempotencyStore(configurationManager.getIdempotencyMaxEntries(), 
+												 configurationManager.getIdempotencyTTLSeconds() * 1000L, 
+												 configurationManager.getIdempotencyWaitSeconds() * 1000L);
+			}
+			
+			return sInstance;
+		}
+		finally
+		{
+			sInstanceLock.unlock();
+		}
+	}
+	
+	
+	/**
+	 * generates a new, unguessable, idempotency token to be put in a form
+	 * 
+	 * @return a new idempotency token
+	 */
+	public static String generateToken()
+	{
+		byte[] bytes = new byte[16];
+		sRandom.nextBytes(bytes);
+		
+		char[] chars = new char[bytes.length * 2];
+		for (int i=0 ; i<bytes.length ; ++i)
+		{
+			chars[i * 2] = HEX_CHARS[(bytes[i] >> 4) & 0x0f];
+			chars[i * 2 + 1] = HEX_CHARS[bytes[i] & 0x0f];
+		}
+		
+		return new String(chars);
+	}
+	
+	
+	/**
+	 * returns the idempotency token sent with the request, either as a request parameter or
+	 * as a request header
+	 * 
+	 * @param aMVCContext the mvc context of the current request
+	 * 
+	 * @return the idempotency token, null if the request does not have one
+	 */
+	public static String getRequestToken(MVCContext aMVCContext)
+	{
+		String token = aMVCContext.getParameter(IDEMPOTENCY_TOKEN_PARAM_NAME);
+		if (token == null || "".equals(token))
+		{
+			token = aMVCContext.getOriginalRequest().getHeader(IDEMPOTENCY_TOKEN_HEADER_NAME);
+		}
+		
+		if (token == null || "".equals(token))
+		{
+			return null;
+		}
+		
+		return token;
+	}
+	
+	
+	/**
+	 * begins an execution of the given action with the given token. if there is already an
+	 * execution (running or completed) for the same action and token, it is returned, and the
+	 * caller is not its owner. otherwise, a new execution is registered and the caller is its
+	 * owner, which must either complete or abort it.
+	 * 
+	 * @param aActionPath the path of the action
+	 * @param aToken the idempotency token of the request
+	 * 
+	 * @return the execution of the action for this token
+	 */
+	public Execution begin(String aActionPath, String aToken)
+	{
+		String key = aActionPath + "|" + aToken;
+		long now = System.currentTimeMillis();
+		
+		mLock.lock();
+		try
+		{
+			Execution execution = mExecutions.get(key);
+			if (execution != null && !execution.isExpired(now))
+			{
+				return execution;
+			}
+			
+			removeExpired(now);
+			evictCompleted();
+			
+			execution = new Execution(this, key, now + mTTLMillis);
+			mExecutions.put(key, execution);
+			
+			//only this caller gets the owning view of the new execution
+			return new Execution(execution);
+		}
+		finally
+		{
+			mLock.unlock();
+		}
+	}
+	
+	
+	/**
+	 * removes the expired executions from the head of the store. since the store is access 
+	 * ordered, this is only a best effort, and expired executions are also skipped on lookup
+	 */
+	protected void removeExpired(long aNow)
+	{
+		Iterator<Execution> iter = mExecutions.values().iterator();
+		while (iter.hasNext())
+		{
+			Execution execution = iter.next();
+			if (!execution.isExpired(aNow))
+			{
+				break;
+			}
+			iter.remove();
+		}
+	}
+	
+	
+	/**
+	 * evicts the least recently used completed executions, to make room for a new one. a running
+	 * execution is skipped, since evicting it would let a repeated request execute the action again
+	 */
+	protected void evictCompleted()
+	{
+		Iterator<Execution> iter = mExecutions.values().iterator();
+		while (mExecutions.size() >= mMaxEntries && iter.hasNext())
+		{
+			if (iter.next().mResponse.isDone())
+			{
+				iter.remove();
+			}
+		}
+	}
+	
+	
+	protected void remove(Execution aExecution)
+	{
+		mLock.lock();
+		try
+		{
+			Execution execution = mExecutions.get(aExecution.mKey);
+			if (execution != null && execution.mResponse == aExecution.mResponse)
+			{
+				mExecutions.remove(aExecution.mKey);
+			}
+		}
+		finally
+		{
+			mLock.unlock();
+		}
+	}
+	
+	
+	/**
+	 * returns the number of tokens currently held by the store
+	 */
+	public int size()
+	{
+		mLock.lock();
+		try
+		{
+			return mExecutions.size();
+		}
+		finally
+		{
+			mLock.unlock();
+		}
+	}
+	
+	
+	/**
+	 * creates a copy of the given action response which does not reference the executed action
+	 * (and through it, the request it was executed for), so it can be stored and replayed
+	 */
+	protected static ActionResponse detach(ActionResponse aActionResponse)
+	{
+		if (aActionResponse instanceof AjaxActionResponse)
+		{
+			AjaxActionResponse ajaxActionResponse = (AjaxActionResponse)aActionResponse;
+			return new AjaxActionResponse(null, ajaxActionResponse.getResponse(), ajaxActionResponse.getResponseContentType());
+		}
+		else if (aActionResponse instanceof CustomURLActionResponse)
+		{
+			CustomURLActionResponse customURLActionResponse = (CustomURLActionResponse)aActionResponse;
+			return new CustomURLActionResponse(null, customURLActionResponse.getResponse(), customURLActionResponse.getCustomURL());
+		}
+		
+		return new ActionResponse(null, aActionResponse.getResponse());
+	}
+	
+	
+	
+	/**
+	 * a single execution of an action for an idempotency token
+	 */
+	public static class Execution
+	{
+		private final IdempotencyStore mStore;
+		private final String mKey;
+		private final long mExpiresAt;
+		private final CompletableFuture<ActionResponse> mResponse;
+		private final boolean mOwner;
+		
+		
+		protected Execution(IdempotencyStore aStore, String aKey, long aExpiresAt)
+		{
+			mStore = aStore;
+			mKey = aKey;
+			mExpiresAt = aExpiresAt;
+			mResponse = new CompletableFuture<ActionResponse>();
+			mOwner = false;
+		}
+		
+		
+		/**
+		 * creates the view of the owner on a stored execution
+		 */
+		protected Execution(Execution aStoredExecution)
+		{
+			mStore = aStoredExecution.mStore;
+			mKey = aStoredExecution.mKey;
+			mExpiresAt = aStoredExecution.mExpiresAt;
+			mResponse = aStoredExecution.mResponse;
+			mOwner = true;
+		}
+		
+		
+		protected boolean isExpired(long aNow)
+		{
+			return aNow > mExpiresAt;
+		}
+		
+		
+		/**
+		 * returns whether the caller of IdempotencyStore.begin() owns this execution, meaning it 
+		 * should execute the action and then complete or abort this execution
+		 */
+		public boolean isOwner()
+		{
+			return mOwner;
+		}
+		
+		
+		/**
+		 * stores the response of the action, to be replayed for repeated requests
+		 */
+		public void complete(ActionResponse aActionResponse)
+		{
+			mResponse.complete(detach(aActionResponse));
+		}
+		
+		
+		/**
+		 * removes this execution from the store, after the action failed, so the same token
+		 * can be submitted again
+		 */
+		public void abort()
+		{
+			mStore.remove(this);
+			mResponse.completeExceptionally(new IllegalStateException("idempotent execution was aborted"));
+		}
+		
+		
+		/**
+		 * waits for the owner of this execution to complete it, and returns the stored response
+		 * 
+		 * @return the stored response of the action
+		 * 
+		 * @throws ActionExecutionException when the execution failed or did not complete in time
+		 */
+		public ActionResponse awaitResponse()
+			throws ActionExecutionException
+		{
+			try
+			{
+				return mResponse.get(mStore.mWaitMillis, TimeUnit.MILLISECONDS);
+			}
+			catch (TimeoutException te)
+			{
+				throw new ActionExecutionException("idempotent request is still in progress: ", mKey, MVCExceptionCodes.MVC_IDEMPOTENT_REQUEST_STILL_IN_PROGRESS);
+			}
+			catch (ExecutionException ee)
+			{
+				throw new ActionExecutionException("idempotent request failed: ", mKey, MVCExceptionCodes.MVC_IDEMPOTENT_REQUEST_FAILED);
+			}
+			catch (InterruptedException ie)
+			{
+				Thread.currentThread().interrupt();
+				throw new ActionExecutionException("interrupted while waiting for idempotent request: ", mKey, MVCExceptionCodes.MVC_IDEMPOTENT_REQUEST_STILL_IN_PROGRESS);
+			}
+		}
+	}
+}
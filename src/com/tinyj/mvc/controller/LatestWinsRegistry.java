@@ -0,0 +1,188 @@
+package com.tinyj.mvc.controller;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.tinyj.mvc.exception.ActionExecutionException;
+import com.tinyj.mvc.exception.MVCExceptionCodes;
+import com.tinyj.mvc.model.ActionResponse;
+import com.tinyj.mvc.model.AjaxActionResponse;
+
+
+/**
+ * a LatestWinsRegistry keeps the in flight execution of an ajax action (configured with
+ * latest-wins="true") per session, so a newer request of the session to the action supersedes
+ * the older one, like in type-ahead and filter UIs sending a request on every keystroke.
+ * 
+ * a superseded execution is cancelled: its MVCContext is marked cancelled (see
+ * <i>MVCContext.isCancelled()</i>, which long actions should check), a virtual action is
+ * interrupted, and an AsyncAction is abandoned. the superseded request is answered with an
+ * empty response, which the browser discards anyway.
+ * 
+ * requests without a session are never superseded.
+ * 
+ * @author asaf.peeri
+ *
+ */
+public class LatestWinsRegistry
+{
+	/**
+	 * the response of a superseded request
+	 */
+	public static final AjaxActionResponse SUPERSEDED_RESPONSE = new AjaxActionResponse(null, "", null);
+	
+	private final ConcurrentHashMap<String, Execution> mInFlight = new ConcurrentHashMap<String, Execution>();
+	private final String mActionPath;
+	private final LongAdder mSupersededCount = new LongAdder();
+	
+	
+	/**
+	 * @param aActionPath the path of the ajax action, for the error message
+	 */
+	public LatestWinsRegistry(String aActionPath)
+	{
+		mActionPath = aActionPath;
+	}
+	
+	
+	/**
+	 * registers the execution of the request of the given MVCContext as the latest one of its
+	 * session, superseding the in flight execution of an older request
+	 * 
+	 * @param aSessionId the id of the session of the request
+	 * @param aMVCContext the mvc context of the request
+	 * 
+	 * @return the execution of the request, to attach the future response of its action to
+	 */
+	public Execution begin(String aSessionId, MVCContext aMVCContext)
+	{
+		Execution execution = new Execution(aSessionId, aMVCContext);
+		Execution supersededExecution = mInFlight.put(aSessionId, execution);
+		if (supersededExecution != null && supersededExecution.supersede())
+		{
+			mSupersededCount.increment();
+		}
+		
+		return execution;
+	}
+	
+	
+	/**
+	 * returns the number of requests superseded since startup
+	 */
+	public long getSupersededCount()
+	{
+		return mSupersededCount.sum();
+	}
+	
+	
+	/**
+	 * returns the number of executions currently in flight
+	 */
+	public int getInFlightCount()
+	{
+		return mInFlight.size();
+	}
+	
+	
+	
+	/**
+	 * the in flight execution of a request
+	 */
+	public class Execution
+	{
+		private final String mSessionId;
+		private final MVCContext mMVCContext;
+		private final AtomicBoolean mSuperseded = new AtomicBoolean();
+		private volatile CompletableFuture<ActionResponse> mFutureResponse;
+		
+		
+		protected Execution(String aSessionId, MVCContext aMVCContext)
+		{
+			mSessionId = aSessionId;
+			mMVCContext = aMVCContext;
+		}
+		
+		
+		/**
+		 * attaches the future response of the action, so it is cancelled when superseded. the
+		 * future response is owned by the request (see ActionExecutor), so cancelling it
+		 * interrupts a virtual action, and leaves the future of an AsyncAction as is
+		 * 
+		 * @param aFutureResponse the future response of the action
+		 * 
+		 * @return the future response of the request: the action response, or the empty response
+		 * 		   when the request was superseded
+		 */
+		public CompletableFuture<ActionResponse> attach(final CompletableFuture<ActionResponse> aFutureResponse)
+		{
+			//the request gives up on a copy of the future, and cancels the future explicitly
+			CompletableFuture<ActionResponse> futureResponse = aFutureResponse.thenApply(response -> response);
+			futureResponse.whenComplete((response, failure) ->
+			{
+				if (failure != null)
+				{
+					aFutureResponse.cancel(true);
+				}
+			});
+			
+			mFutureResponse = futureResponse;
+			if (mSuperseded.get())
+			{
+				cancel(futureResponse);
+			}
+			
+			return futureResponse.handle((response, failure) ->
+			{
+				mInFlight.remove(mSessionId, this);
+				
+				if (mSuperseded.get())
+				{
+					return SUPERSEDED_RESPONSE;
+				}
+				if (failure != null)
+				{
+					throw (failure instanceof CompletionException) ? (CompletionException)failure : new CompletionException(failure);
+				}
+				return response;
+			});
+		}
+		
+		
+		/**
+		 * ends an execution which failed before its action was executed
+		 */
+		public void abort()
+		{
+			mInFlight.remove(mSessionId, this);
+		}
+		
+		
+		protected boolean supersede()
+		{
+			if (!mSuperseded.compareAndSet(false, true))
+			{
+				return false;
+			}
+			
+			mMVCContext.cancel();
+			CompletableFuture<ActionResponse> futureResponse = mFutureResponse;
+			if (futureResponse != null)
+			{
+				cancel(futureResponse);
+			}
+			
+			return true;
+		}
+		
+		
+		protected void cancel(CompletableFuture<ActionResponse> aFutureResponse)
+		{
+			//failing the copy of the future cancels the future of the action as well
+			aFutureResponse.completeExceptionally(new ActionExecutionException("ajax request was superseded by a newer request: ", mActionPath, MVCExceptionCodes.MVC_AJAX_REQUEST_SUPERSEDED));
+		}
+	}
+}
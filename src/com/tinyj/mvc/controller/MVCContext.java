@@ -6,8 +6,15 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.servlet.AsyncContext;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
@@ -20,12 +27,16 @@ import org.apache.commons.fileupload.util.Streams;
 import com.tinyj.infra.file.TempFilesManager;
 import com.tinyj.infra.stream.StreamUtils;
 import com.tinyj.infra.structures.LimitedSizeStack;
+import com.tinyj.mvc.config.BaseConfigActionDescriptor;
 import com.tinyj.mvc.config.MVCConfigurationManager;
 import com.tinyj.mvc.exception.FormParametersInitializationException;
 import com.tinyj.mvc.exception.MVCContextInstantiationException;
 import com.tinyj.mvc.exception.MVCExceptionCodes;
 import com.tinyj.mvc.exception.SessionExpiredException;
+import com.tinyj.mvc.model.DataLoader;
+import com.tinyj.mvc.model.IBatchLoadFunction;
 import com.tinyj.mvc.model.PageHistoryElement;
+import com.tinyj.mvc.model.RouteMatch;
 
 
 /**
@@ -58,6 +69,17 @@ public class MVCContext
 	private boolean mMultipartForm;
 	private Map<String, ArrayList<String>> mParametersMap = new HashMap<String, ArrayList<String>>();
 	private Map<String, String> mUploadedFileParametersMap = new HashMap<String, String>();
+	private RouteMatch<? extends BaseConfigActionDescriptor> mRouteMatch;
+	private AsyncContext mAsyncContext;
+	private boolean mAsyncDispatched;
+	private final AtomicBoolean mAsyncHandled = new AtomicBoolean();
+	private volatile Deadline mDeadline;
+	private volatile boolean mCancelled;
+	private volatile int mChainDepth;
+	private volatile boolean mEarlyHintsSent;
+	private final Queue<Runnable> mAfterResponseTasks = new ConcurrentLinkedQueue<Runnable>();
+	private final Map<String, Long> mTimings = new ConcurrentHashMap<String, Long>();
+	private final List<DataLoader<?, ?>> mDataLoaders = new CopyOnWriteArrayList<DataLoader<?, ?>>();
 
 	
 	/**
@@ -111,6 +133,401 @@ public class MVCContext
 	
 	
 	
+	/**
+	 * sets the route matched for this request by the ActionResolver
+	 * 
+	 * @param aRouteMatch the matched route
+	 */
+	public void setRouteMatch(RouteMatch<? extends BaseConfigActionDescriptor> aRouteMatch)
+	{
+		mRouteMatch = aRouteMatch;
+	}
+	
+	
+	/**
+	 * returns the route matched for this request, holding the descriptor of the action and
+	 * the captured path variables
+	 * 
+	 * @return the matched route, null if the action was not resolved yet
+	 */
+	public RouteMatch<? extends BaseConfigActionDescriptor> getRouteMatch()
+	{
+		return mRouteMatch;
+	}
+	
+	
+	/**
+	 * returns the value of a path variable of the action route. for ex, if the action 
+	 * path is <i>orders/{id}</i> and the request was <i>/orders/17.act</i>, the value
+	 * of the <i>id</i> path variable is <i>17</i>.
+	 * 
+	 * @param aVariableName the name of the path variable
+	 * 
+	 * @return the value of the path variable, null if there is no such variable
+	 */
+	public String getPathVariable(String aVariableName)
+	{
+		if (mRouteMatch == null)
+		{
+			return null;
+		}
+		
+		return mRouteMatch.getPathVariable(aVariableName);
+	}
+	
+	
+	/**
+	 * returns all the path variables of the action route
+	 * 
+	 * @return a Map of path variable names to their values
+	 */
+	public Map<String, String> getPathVariables()
+	{
+		if (mRouteMatch == null)
+		{
+			return Collections.emptyMap();
+		}
+		
+		return mRouteMatch.getPathVariables();
+	}
+	
+	
+	
+	/**
+	 * sets the AsyncContext started for this request, when it is handled asynchronously
+	 * 
+	 * @param aAsyncContext the started AsyncContext
+	 */
+	public void setAsyncContext(AsyncContext aAsyncContext)
+	{
+		mAsyncContext = aAsyncContext;
+	}
+	
+	
+	/**
+	 * returns the AsyncContext started for this request
+	 * 
+	 * @return the AsyncContext, or null if the request is handled synchronously
+	 */
+	public AsyncContext getAsyncContext()
+	{
+		return mAsyncContext;
+	}
+	
+	
+	/**
+	 * dispatches an asynchronously handled request to the given context relative path. the 
+	 * container completes the request once the dispatch target is done
+	 * 
+	 * @param aPath the context relative path to dispatch to
+	 */
+	public void dispatchAsync(String aPath)
+	{
+		mAsyncDispatched = true;
+		mAsyncContext.dispatch(aPath);
+	}
+	
+	
+	/**
+	 * claims the handling of the completion (or the timeout) of an asynchronously handled 
+	 * request, so it is answered once
+	 * 
+	 * @return true if the handling was not claimed already
+	 */
+	protected boolean claimAsyncHandling()
+	{
+		return mAsyncHandled.compareAndSet(false, true);
+	}
+	
+	
+	/**
+	 * releases the handling of an asynchronously handled request, when it is handed over to a
+	 * chained action
+	 */
+	protected void releaseAsyncHandling()
+	{
+		mAsyncHandled.set(false);
+	}
+	
+	
+	/**
+	 * completes an asynchronously handled request, unless it was dispatched
+	 */
+	public void completeAsync()
+	{
+		if (mAsyncContext != null && !mAsyncDispatched)
+		{
+			mAsyncContext.complete();
+		}
+	}
+	
+	
+	/**
+	 * sets the deadline of this request, by which the action should respond
+	 * 
+	 * @param aDeadline the deadline
+	 */
+	public void setDeadline(Deadline aDeadline)
+	{
+		mDeadline = aDeadline;
+	}
+	
+	
+	/**
+	 * returns the deadline of this request. long actions should check it, and bound the timeouts
+	 * of their JDBC and remote calls by its remaining time
+	 * 
+	 * @return the deadline, Deadline.NONE if the action has no timeout
+	 */
+	public Deadline getDeadline()
+	{
+		Deadline deadline = mDeadline;
+		return (deadline == null) ? Deadline.NONE : deadline;
+	}
+	
+	
+	/**
+	 * returns whether the deadline of this request was started (even if it never expires)
+	 */
+	public boolean isDeadlineStarted()
+	{
+		return mDeadline != null;
+	}
+	
+	
+	/**
+	 * marks this request as cancelled, like when it was superseded by a newer request (see 
+	 * LatestWinsRegistry)
+	 */
+	public void cancel()
+	{
+		mCancelled = true;
+	}
+	
+	
+	/**
+	 * returns whether this request was cancelled. a cancelled request is answered regardless of
+	 * its action response, so a long action should check it and stop working
+	 * 
+	 * @return true if the request was cancelled
+	 */
+	public boolean isCancelled()
+	{
+		return mCancelled;
+	}
+	
+	
+	/**
+	 * returns the number of actions this request chained to past its own action, through
+	 * forwards with an action attribute
+	 * 
+	 * @return the chain depth, 0 if the request was not chained
+	 */
+	public int getChainDepth()
+	{
+		return mChainDepth;
+	}
+	
+	
+	protected void setChainDepth(int aChainDepth)
+	{
+		mChainDepth = aChainDepth;
+	}
+	
+	
+	/**
+	 * marks the early hints of this request as sent (see EarlyHints)
+	 * 
+	 * @return true if they were not sent before
+	 */
+	protected boolean markEarlyHintsSent()
+	{
+		if (mEarlyHintsSent)
+		{
+			return false;
+		}
+		
+		mEarlyHintsSent = true;
+		return true;
+	}
+	
+	
+	/**
+	 * creates a structured scope for executing independent subtasks of the action in parallel,
+	 * within the deadline of this request (see FanOut)
+	 * 
+	 * @return a new fan out scope, which should be closed when done
+	 */
+	public FanOut fanOut()
+	{
+		return new FanOut(this);
+	}
+	
+	
+	/**
+	 * records the time a step of this request took (like a subtask of a fan out). a step 
+	 * recorded more than once accumulates its times
+	 * 
+	 * @param aName the name of the step
+	 * @param aNanos the time the step took, in nanoseconds
+	 */
+	public void recordTiming(String aName, long aNanos)
+	{
+		Long previousNanos = mTimings.putIfAbsent(aName, aNanos);
+		while (previousNanos != null && !mTimings.replace(aName, previousNanos, previousNanos + aNanos))
+		{
+			previousNanos = mTimings.get(aName);
+		}
+	}
+	
+	
+	/**
+	 * returns the times the recorded steps of this request took, by step name, so an interceptor
+	 * can report them (like in <i>onNavigate()</i>)
+	 * 
+	 * @return the recorded times in nanoseconds, by step name
+	 */
+	public Map<String, Long> getTimings()
+	{
+		return Collections.unmodifiableMap(mTimings);
+	}
+	
+	
+	/**
+	 * registers a request scoped DataLoader, which batches and memoises the loads of the given
+	 * batch load function within this request. the loader is also set as a request attribute
+	 * under the given name, so the JSP this request forwards to can read its values. 
+	 * registering a name again returns the loader already registered under it.
+	 * 
+	 * the keys the JSP reads should be queued by the action (with <i>loadLater()</i>): the 
+	 * queued keys of all the loaders are loaded together just before the request is forwarded
+	 * (see <i>dispatchDataLoaders()</i>), so the JSP reads memoised values. a key first read by
+	 * the JSP is loaded on its own.
+	 * 
+	 * @param aName the name of the loader
+	 * @param aBatchLoadFunction the function loading a batch of keys
+	 * 
+	 * @return the data loader
+	 * 
+	 * @throws IllegalArgumentException when the name is used by another request attribute
+	 */
+	public <K, V> DataLoader<K, V> registerDataLoader(String aName, IBatchLoadFunction<K, V> aBatchLoadFunction)
+	{
+		return registerDataLoader(aName, aBatchLoadFunction, 0);
+	}
+	
+	
+	/**
+	 * registers a request scoped DataLoader, loading at most the given number of keys in a 
+	 * single call to the given batch load function
+	 * 
+	 * @param aName the name of the loader
+	 * @param aBatchLoadFunction the function loading a batch of keys
+	 * @param aMaxBatchSize the maximal number of keys loaded in a single call, 0 for unlimited
+	 * 
+	 * @return the data loader
+	 * 
+	 * @throws IllegalArgumentException when the name is used by another request attribute
+	 */
+	public <K, V> DataLoader<K, V> registerDataLoader(String aName, IBatchLoadFunction<K, V> aBatchLoadFunction, int aMaxBatchSize)
+	{
+		DataLoader<K, V> dataLoader = getDataLoader(aName);
+		if (dataLoader == null)
+		{
+			if (mRequest.getAttribute(aName) != null)
+			{
+				throw new IllegalArgumentException("cannot register data loader: " + aName + " the name is used by a request attribute of type: " + mRequest.getAttribute(aName).getClass().getName());
+			}
+			
+			dataLoader = new DataLoader<K, V>(aName, aBatchLoadFunction, aMaxBatchSize, this);
+			mDataLoaders.add(dataLoader);
+			mRequest.setAttribute(aName, dataLoader);
+		}
+		
+		return dataLoader;
+	}
+	
+	
+	/**
+	 * returns the DataLoader registered under the given name for this request
+	 * 
+	 * @param aName the name of the loader
+	 * 
+	 * @return the data loader, or null if none was registered under the name
+	 */
+	@SuppressWarnings("unchecked")
+	public <K, V> DataLoader<K, V> getDataLoader(String aName)
+	{
+		Object dataLoader = mRequest.getAttribute(aName);
+		return (dataLoader instanceof DataLoader) ? (DataLoader<K, V>)dataLoader : null;
+	}
+	
+	
+	/**
+	 * loads the keys queued on all the data loaders of this request. called before the request
+	 * is forwarded, so the keys the action queued for the JSP are loaded in batches
+	 */
+	protected void dispatchDataLoaders()
+	{
+		//the batch load functions run outside of any lock, so a virtual thread does not pin its carrier
+		for (DataLoader<?, ?> dataLoader : mDataLoaders)
+		{
+			dataLoader.dispatch();
+		}
+	}
+	
+	
+	/**
+	 * enqueues a task to run in the background once the response of this request was navigated
+	 * (forwarded, redirected, or written back), like an audit write, a cache refresh or a 
+	 * notification the user should not wait for. the tasks run on the BackgroundTaskExecutor,
+	 * and are dropped if the action or its navigation fails.
+	 * 
+	 * a task runs after the request is done, so it must not use the request, the response, or
+	 * this context: whatever it needs should be copied beforehand.
+	 * 
+	 * @param aTask the task to run after the response
+	 */
+	public void runAfterResponse(Runnable aTask)
+	{
+		mAfterResponseTasks.add(aTask);
+	}
+	
+	
+	/**
+	 * submits the tasks enqueued by <i>runAfterResponse()</i> to the BackgroundTaskExecutor
+	 */
+	protected void submitAfterResponseTasks()
+	{
+		if (mAfterResponseTasks.isEmpty())
+		{
+			return;
+		}
+		
+		BackgroundTaskExecutor backgroundTaskExecutor = BackgroundTaskExecutor.getInstance();
+		Runnable task = null;
+		while ((task = mAfterResponseTasks.poll()) != null)
+		{
+			backgroundTaskExecutor.submit(task);
+		}
+	}
+	
+	
+	/**
+	 * issues a new idempotency token, to be put in a form in a hidden field named 
+	 * IdempotencyStore.IDEMPOTENCY_TOKEN_PARAM_NAME. a repeated submission of the form with 
+	 * the same token replays the response of the first submission instead of executing the 
+	 * action again.
+	 * 
+	 * @return a new idempotency token
+	 */
+	public String issueIdempotencyToken()
+	{
+		return IdempotencyStore.generateToken();
+	}
+	
+	
+	
 	/**
 	 * adds a value to the parameter's values list (usable for multiple values parameters
 	 * like <select multiple>.
@@ -0,0 +1,283 @@
+package com.tinyj.mvc.controller;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.tinyj.mvc.exception.ActionExecutionException;
+import com.tinyj.mvc.exception.MVCExceptionCodes;
+import com.tinyj.mvc.model.ActionResponse;
+import com.tinyj.mvc.model.AjaxActionResponse;
+import com.tinyj.mvc.model.BatchAjaxAction;
+
+
+/**
+ * a MicroBatcher collects the concurrent requests of an ajax action (configured with
+ * batch-window-ms), and hands them to its BatchAjaxAction together, so an action fronting a
+ * backend with a high per call overhead (like a lookup service) makes one call for many users.
+ * 
+ * the first request of a batch opens a window of batch-window-ms. the batch is executed when
+ * the window closes, or as soon as it holds batch-max-size requests, whichever comes first. the
+ * ajax action responses of the batch are split back to the requests, each to its own caller.
+ * when the batch fails, all its requests fail with the same failure.
+ * 
+ * a batch closed by its window is executed on the ActionExecutionService threads (and fails
+ * when they are all busy), and a full batch on the thread of the request which filled it. the waiting requests hold no thread:
+ * their future responses are completed by the thread executing the batch.
+ * 
+ * @author asaf.peeri
+ *
+ */
+public class MicroBatcher
+{
+	private final String mActionPath;
+	private final long mWindowMillis;
+	private final int mMaxBatchSize;
+	
+	private final ReentrantLock mBatchLock = new ReentrantLock();
+	private Batch mOpenBatch;
+	
+	private final LongAdder mBatchCount = new LongAdder();
+	private final LongAdder mBatchedRequestCount = new LongAdder();
+	
+	
+	/**
+	 * @param aActionPath the path of the ajax action, for the error messages
+	 * @param aWindowMillis the time a batch is open for more requests, from its first request
+	 * @param aMaxBatchSize the maximal number of requests in a batch
+	 */
+	public MicroBatcher(String aActionPath, long aWindowMillis, int aMaxBatchSize)
+	{
+		mActionPath = aActionPath;
+		mWindowMillis = aWindowMillis;
+		mMaxBatchSize = aMaxBatchSize;
+	}
+	
+	
+	/**
+	 * adds the request of the given MVCContext to the open batch (opening a new one if there is
+	 * none)
+	 * 
+	 * @param aAction the action of the request
+	 * @param aMVCContext the mvc context of the request
+	 * 
+	 * @return the future response of the request, completed once its batch was executed
+	 */
+	public CompletableFuture<ActionResponse> submit(BatchAjaxAction aAction, MVCContext aMVCContext)
+	{
+		CompletableFuture<ActionResponse> futureResponse = new CompletableFuture<ActionResponse>();
+		Batch fullBatch = null;
+		Batch newBatch = null;
+		
+		mBatchLock.lock();
+		try
+		{
+			if (mOpenBatch == null)
+			{
+				mOpenBatch = new Batch(aAction);
+				newBatch = mOpenBatch;
+			}
+			
+			mOpenBatch.add(aMVCContext, futureResponse);
+			if (mOpenBatch.size() >= mMaxBatchSize)
+			{
+				fullBatch = mOpenBatch;
+				mOpenBatch = null;
+			}
+		}
+		finally
+		{
+			mBatchLock.unlock();
+		}
+		
+		if (fullBatch != null)
+		{
+			fullBatch.execute();
+		}
+		else if (newBatch != null)
+		{
+			scheduleClose(newBatch);
+		}
+		
+		return futureResponse;
+	}
+	
+	
+	/**
+	 * closes the given batch once its window passes, unless it was already closed by getting full
+	 */
+	protected void scheduleClose(final Batch aBatch)
+	{
+		try
+		{
+			//the timer thread only hands the batch over, and never executes it itself
+			Deadline.getTimer().schedule(() ->
+			{
+				if (close(aBatch))
+				{
+					try
+					{
+						ActionExecutionService.getInstance().execute(() -> aBatch.execute());
+					}
+					catch (RejectedExecutionException ree)
+					{
+						aBatch.fail(new ActionExecutionException("too many actions are executing, could not execute batch: ", mActionPath, MVCExceptionCodes.MVC_ACTION_EXECUTION_CONCURRENCY_LIMIT_REACHED));
+					}
+				}
+			}, mWindowMillis, TimeUnit.MILLISECONDS);
+		}
+		catch (RejectedExecutionException ree)
+		{
+			//the timer was shut down, the batch is executed right away
+			if (close(aBatch))
+			{
+				aBatch.execute();
+			}
+		}
+	}
+	
+	
+	protected boolean close(Batch aBatch)
+	{
+		mBatchLock.lock();
+		try
+		{
+			if (mOpenBatch != aBatch)
+			{
+				return false;
+			}
+			
+			mOpenBatch = null;
+			return true;
+		}
+		finally
+		{
+			mBatchLock.unlock();
+		}
+	}
+	
+	
+	/**
+	 * returns the number of batches executed so far
+	 */
+	public long getBatchCount()
+	{
+		return mBatchCount.sum();
+	}
+	
+	
+	/**
+	 * returns the number of requests executed in batches so far
+	 */
+	public long getBatchedRequestCount()
+	{
+		return mBatchedRequestCount.sum();
+	}
+	
+	
+	@Override
+	public String toString()
+	{
+		return "MicroBatcher[" + mActionPath + ", batches=" + getBatchCount() + ", requests=" + getBatchedRequestCount() + "]";
+	}
+	
+	
+	
+	/**
+	 * the requests of a single batch
+	 */
+	protected class Batch
+	{
+		private final BatchAjaxAction mAction;
+		private final List<MVCContext> mMVCContexts = new ArrayList<MVCContext>();
+		private final List<CompletableFuture<ActionResponse>> mFutureResponses = new ArrayList<CompletableFuture<ActionResponse>>();
+		
+		
+		protected Batch(BatchAjaxAction aAction)
+		{
+			mAction = aAction;
+		}
+		
+		
+		protected void add(MVCContext aMVCContext, CompletableFuture<ActionResponse> aFutureResponse)
+		{
+			mMVCContexts.add(aMVCContext);
+			mFutureResponses.add(aFutureResponse);
+		}
+		
+		
+		protected int size()
+		{
+			return mMVCContexts.size();
+		}
+		
+		
+		/**
+		 * executes the batch, and splits its responses back to its requests. the requests which
+		 * were already answered (like when their deadline expired) are left out of the batch
+		 */
+		protected void execute()
+		{
+			List<MVCContext> mvcContexts = new ArrayList<MVCContext>(size());
+			List<CompletableFuture<ActionResponse>> futureResponses = new ArrayList<CompletableFuture<ActionResponse>>(size());
+			for (int i=0 ; i<size() ; i++)
+			{
+				//an answered request may already be recycled by the container
+				if (!mFutureResponses.get(i).isDone())
+				{
+					mvcContexts.add(mMVCContexts.get(i));
+					futureResponses.add(mFutureResponses.get(i));
+				}
+			}
+			
+			if (mvcContexts.isEmpty())
+			{
+				return;
+			}
+			
+			mBatchCount.increment();
+			mBatchedRequestCount.add(mvcContexts.size());
+			
+			try
+			{
+				List<AjaxActionResponse> responses = mAction.executeBatch(Collections.unmodifiableList(mvcContexts));
+				if (responses == null || responses.size() != mvcContexts.size())
+				{
+					throw new ActionExecutionException("batch ajax action returned " + ((responses == null) ? 0 : responses.size()) +
+													   " responses for " + mvcContexts.size() + " requests: ", mActionPath, MVCExceptionCodes.MVC_BATCH_AJAX_ACTION_FAILED);
+				}
+				
+				for (int i=0 ; i<responses.size() ; i++)
+				{
+					futureResponses.get(i).complete(responses.get(i));
+				}
+			}
+			catch (Throwable t)
+			{
+				for (CompletableFuture<ActionResponse> futureResponse : futureResponses)
+				{
+					futureResponse.completeExceptionally(t);
+				}
+			}
+		}
+		
+		
+		/**
+		 * fails the requests of a batch which could not be executed
+		 * 
+		 * @param aFailure the failure of the requests
+		 */
+		protected void fail(Throwable aFailure)
+		{
+			for (CompletableFuture<ActionResponse> futureResponse : mFutureResponses)
+			{
+				futureResponse.completeExceptionally(aFailure);
+			}
+		}
+	}
+}
@@ -6,11 +6,14 @@ import java.io.Writer;
 
 import javax.servlet.RequestDispatcher;
 import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import com.tinyj.mvc.config.BaseConfigActionDescriptor;
 import com.tinyj.mvc.config.MVCConfigActionDescriptor;
 import com.tinyj.mvc.config.MVCConfigForwardDescriptor;
 import com.tinyj.mvc.config.MVCConfigurationManager;
+import com.tinyj.mvc.config.NavigationTarget;
 import com.tinyj.mvc.exception.HandleNavigationException;
 import com.tinyj.mvc.exception.MVCExceptionCodes;
 import com.tinyj.mvc.model.ActionResolver;
@@ -26,11 +29,32 @@ import com.tinyj.mvc.model.PageHistoryElement;
  * if there is a forward name existing both in the Action's forward list and in the global
  * forwards mapping, the forward in the Action's forward list takes precedence.
  * 
+ * a request with the header "X-Tinyj-Navigation: json" (sent by a client side router) is 
+ * answered with a json navigation instruction instead of a redirect or a forward:
+ * <pre>
+ *     {"path":"http://host:80/app/bla/bar.jsp","redirect":true}
+ *     {"path":"/app/bla/foo.jsp","redirect":false,"fragment":"...the content of the page..."}
+ * </pre>
+ * so the client navigates without the extra round trip of a redirect, or the reload of a full
+ * page. the fragment is the content of the forwarded page, included into the instruction. a 
+ * request handled asynchronously (an AsyncAction, or an action in virtual execution mode) is 
+ * forwarded to its page as usual instead, since the page can't be included from the thread 
+ * completing it.
+ * 
+ * the forwards are looked up as navigation targets, compiled per action and forward name when
+ * the configuration is loaded (see <i>MVCConfigurationManager.compileNavigationTargets()</i>).
+ * 
  * @author asaf.peeri
  *
  */
 public class NavigationHandler
 {
+	/**
+	 * the request header asking for a client side navigation instruction (with the value 
+	 * CLIENT_NAVIGATION_JSON) instead of a redirect or a forward
+	 */
+	public static final String CLIENT_NAVIGATION_HEADER_NAME = "X-Tinyj-Navigation";
+	public static final String CLIENT_NAVIGATION_JSON = "json";
 	
 	/**
 	 * gets the ActionResponse object and the current mvc context, resloves the forward page
@@ -44,38 +68,25 @@ public class NavigationHandler
 	public static void handleNavigation(ActionResponse aActionResponse, MVCContext aMVCContext)
 		throws HandleNavigationException
 	{
-		String actionPath = ActionResolver.getActionFromRequest(aMVCContext);
-		if (actionPath == null)
-		{
-			throw new HandleNavigationException("could not resolve action name from request", MVCExceptionCodes.MVC_CANT_RESOLVE_ACTION_NAME_FROM_REQUEST);
-		}
+		MVCConfigActionDescriptor actionDescriptor = getActionDescriptor(aMVCContext);
+		String actionPath = actionDescriptor.getPath();
 		
-		MVCConfigActionDescriptor actionDescriptor = MVCConfigurationManager.getInstance().getMVCAction(actionPath);
-		if (actionDescriptor == null)
+		//the forwards of the action and the global forwards are compiled into a single lookup
+		NavigationTarget navigationTarget = MVCConfigurationManager.getInstance().getNavigationTarget(actionDescriptor, aActionResponse.getResponse());
+		if (navigationTarget == null)
 		{
-			throw new HandleNavigationException("could not find action path: " + actionPath, MVCExceptionCodes.MVC_CANT_FIND_ACTION_PATH);
-		}
-		
-		MVCConfigForwardDescriptor forwardDescriptor = actionDescriptor.getForward(aActionResponse.getResponse());
-		if (forwardDescriptor == null)
-		{
-			//if this forward wasn't found in the actions forwards, it might be a global forward
-			forwardDescriptor = MVCConfigurationManager.getInstance().getGlobalForward(aActionResponse.getResponse());
-			if (forwardDescriptor == null)
-			{
-				throw new HandleNavigationException("could not resolve action response to a defined forward name:" + aActionResponse.getResponse(), MVCExceptionCodes.MVC_CANT_RESOLVE_ACTION_RESPONSE_TO_DEFINED_FORWARD_NAME);
-			}
+			throw new HandleNavigationException("could not resolve action response to a defined forward name:", aActionResponse.getResponse(), MVCExceptionCodes.MVC_CANT_RESOLVE_ACTION_RESPONSE_TO_DEFINED_FORWARD_NAME);
 		}
 		
 		//String pathToNavigateTo = aMVCContext.getBasePath() + "/" + forwardDescriptor.getPath();
 		String pathToNavigateTo = null;
 		String customURLToGoTo = null;
-		boolean redirect = Boolean.parseBoolean(forwardDescriptor.getRedirect());
+		boolean redirect = navigationTarget.isRedirect();
 		
 		//first check if this action descriptor was defined as custom URL
 		//if so, we need to extract the path to navigate to from the getCustomURL() method of the CustomURLActionResponse
 		//in the action itself the user is responsible to fill in this value for the navigation to take place
-		if (forwardDescriptor.isCustomURL())
+		if (navigationTarget.isCustomURL())
 		{
 			if (aActionResponse instanceof CustomURLActionResponse)
 			{
@@ -95,7 +106,7 @@ public class NavigationHandler
 		}
 		else
 		{
-			if (forwardDescriptor.isBackToCaller())
+			if (navigationTarget.isBackToCaller())
 			{
 				//according to the forward descriptor, it is needed to return to the caller page.
 				//this is actually the page that was last inserted to the page history stack
@@ -106,7 +117,7 @@ public class NavigationHandler
 			else
 			{
 				//navigate to the next page defined in the forward descriptor
-				pathToNavigateTo = forwardDescriptor.getPath();
+				pathToNavigateTo = navigationTarget.getPath();
 				if (pathToNavigateTo == null || "".equals(pathToNavigateTo))
 				{
 					throw new HandleNavigationException("forward path cannot be null or empty for action:" + actionPath, MVCExceptionCodes.MVC_FORWARD_PATH_FOR_ACTION_CANT_BE_NULL_OR_EMPTY);
@@ -139,7 +150,7 @@ public class NavigationHandler
 //				requestDispatcher.forward(aMVCContext.getOriginalRequest(), aMVCContext.getOriginalResposne());
 //			}
 			
-			navigate(aMVCContext, forwardDescriptor, customURLToGoTo);
+			navigate(aMVCContext, navigationTarget, customURLToGoTo);
 		}
 		catch(IOException ioe)
 		{
@@ -153,6 +164,73 @@ public class NavigationHandler
 	
 	
 	
+	/**
+	 * returns the descriptor of the action of the current request: the one it was routed to, 
+	 * or else the one resolved from its URI
+	 */
+	protected static MVCConfigActionDescriptor getActionDescriptor(MVCContext aMVCContext)
+		throws HandleNavigationException
+	{
+		if (aMVCContext.getRouteMatch() != null && aMVCContext.getRouteMatch().getValue() instanceof MVCConfigActionDescriptor)
+		{
+			return (MVCConfigActionDescriptor)aMVCContext.getRouteMatch().getValue();
+		}
+		
+		String actionPath = ActionResolver.getActionFromRequest(aMVCContext);
+		if (actionPath == null)
+		{
+			throw new HandleNavigationException("could not resolve action name from request", MVCExceptionCodes.MVC_CANT_RESOLVE_ACTION_NAME_FROM_REQUEST);
+		}
+		
+		MVCConfigActionDescriptor actionDescriptor = MVCConfigurationManager.getInstance().getMVCAction(actionPath);
+		if (actionDescriptor == null)
+		{
+			throw new HandleNavigationException("could not find action path: ", actionPath, MVCExceptionCodes.MVC_CANT_FIND_ACTION_PATH);
+		}
+		
+		return actionDescriptor;
+	}
+	
+	
+	
+	/**
+	 * answers a request which is not handled by its action (like a shed or a failed request). 
+	 * a page action is navigated to the given forward name, if it is defined for the action or 
+	 * globally. otherwise (and for an ajax action), the given http error status is sent.
+	 * 
+	 * @param aMVCContext the mvc context of the current request
+	 * @param aForwardName the forward name to navigate to, may be null
+	 * @param aErrorStatus the http error status to send when there is no forward to navigate to
+	 * 
+	 * @throws HandleNavigationException
+	 */
+	public static void handleRejection(MVCContext aMVCContext, String aForwardName, int aErrorStatus)
+		throws HandleNavigationException
+	{
+		BaseConfigActionDescriptor actionDescriptor = aMVCContext.getRouteMatch().getValue();
+		if (actionDescriptor instanceof MVCConfigActionDescriptor && 
+			MVCConfigurationManager.getInstance().getNavigationTarget((MVCConfigActionDescriptor)actionDescriptor, aForwardName) != null)
+		{
+			handleNavigation(new ActionResponse(null, aForwardName), aMVCContext);
+			return;
+		}
+		
+		try
+		{
+			HttpServletResponse response = aMVCContext.getOriginalResposne();
+			if (!response.isCommitted())
+			{
+				response.sendError(aErrorStatus);
+			}
+		}
+		catch(IOException ioe)
+		{
+			throw new HandleNavigationException("could not send error status " + aErrorStatus + ": " + ioe.toString(), MVCExceptionCodes.MVC_COULD_NOT_FORWARD_REQUEST_DUE_TO_IO_ERROR);
+		}
+	}
+	
+	
+	
 	/**
 	 * this method makes the actual navigation to the desired location using the forward descriptor
 	 * 
@@ -165,37 +243,206 @@ public class NavigationHandler
 	public static void navigate(MVCContext aMVCContext, MVCConfigForwardDescriptor aForwardDescriptor, String aCustomURLToGoTo)
 		throws IOException, ServletException
 	{
-		String pathToNavigateTo = aForwardDescriptor.getPath();
+		navigate(aMVCContext, new NavigationTarget(aForwardDescriptor), aCustomURLToGoTo);
+	}
+	
+	
+	/**
+	 * this method makes the actual navigation to the desired location using the compiled navigation target
+	 * 
+	 * @param aMVCContext the current MVCContext to use
+	 * @param aNavigationTarget the navigation target describing the location to navigate to
+	 * @param aCustomURLToGoTo in case the action is defined as customURL=true, this parameter holds the URL to go to. otherwise it is null.
+	 * @throws IOException
+	 * @throws ServletException
+	 */
+	public static void navigate(MVCContext aMVCContext, NavigationTarget aNavigationTarget, String aCustomURLToGoTo)
+		throws IOException, ServletException
+	{
+		String pathToNavigateTo = aNavigationTarget.getPath();
 		if (aCustomURLToGoTo != null)
 		{
 			pathToNavigateTo = aCustomURLToGoTo; 
 		}
-		boolean redirect = Boolean.parseBoolean(aForwardDescriptor.getRedirect());
+		boolean redirect = aNavigationTarget.isRedirect();
 		
 		//save the pathToNavigateTo, in the history stack, unless defined specifically not to save
-		if (aForwardDescriptor.isAvoidHistorySave() == false)
+		if (aNavigationTarget.isAvoidHistorySave() == false)
 		{
 			aMVCContext.pushPageToHistoryStack(pathToNavigateTo, redirect);
 		}
 		
+		//the same URL is answered differently to a client side router. the page can't be included
+		//from the thread completing an asynchronous request, so such a request is forwarded instead
+		aMVCContext.getOriginalResposne().addHeader("Vary", CLIENT_NAVIGATION_HEADER_NAME);
+		if (isClientNavigationRequested(aMVCContext) && (redirect || aMVCContext.getAsyncContext() == null))
+		{
+			navigateOnClient(aMVCContext, aNavigationTarget, aCustomURLToGoTo, pathToNavigateTo, redirect);
+			return;
+		}
+		
 		if ( redirect )
 		{
 			//redirect value is "true", so redirect the browser to the next page
-			String path = aMVCContext.getOriginalRequest().getContextPath();
-			String basePath = aMVCContext.getOriginalRequest().getScheme()+"://"+aMVCContext.getOriginalRequest().getServerName()+":"+aMVCContext.getOriginalRequest().getServerPort()+path;
-			
-			aMVCContext.getOriginalResposne().sendRedirect(basePath + pathToNavigateTo);
+			aMVCContext.getOriginalResposne().sendRedirect(getRedirectURL(aMVCContext, aNavigationTarget, aCustomURLToGoTo));
+		}
+		else if (aMVCContext.getAsyncContext() != null)
+		{
+			//an asynchronously handled request is forwarded by dispatching its AsyncContext
+			aMVCContext.dispatchAsync(toContextRelativePath(aMVCContext, pathToNavigateTo));
 		}
 		else
 		{
 			//redirect value IS NOT "true", therefore do a request forward
-			RequestDispatcher requestDispatcher = aMVCContext.getOriginalRequest().getRequestDispatcher(pathToNavigateTo);
+			RequestDispatcher requestDispatcher = getRequestDispatcher(aMVCContext, aNavigationTarget, aCustomURLToGoTo);
 				
 			requestDispatcher.forward(aMVCContext.getOriginalRequest(), aMVCContext.getOriginalResposne());
 		}
 	}
 	
 	
+	/**
+	 * returns whether the current request asked for a client side navigation instruction
+	 * 
+	 * @param aMVCContext the current MVCContext
+	 * 
+	 * @return true if the request has the X-Tinyj-Navigation: json header
+	 */
+	public static boolean isClientNavigationRequested(MVCContext aMVCContext)
+	{
+		return CLIENT_NAVIGATION_JSON.equals(aMVCContext.getOriginalRequest().getHeader(CLIENT_NAVIGATION_HEADER_NAME));
+	}
+	
+	
+	/**
+	 * writes a json navigation instruction to the client: the URL to redirect to, or the path of 
+	 * the forwarded page along with its content. must not be called for a forward of a request
+	 * handled asynchronously
+	 */
+	protected static void navigateOnClient(MVCContext aMVCContext, NavigationTarget aNavigationTarget, String aCustomURLToGoTo, String aPathToNavigateTo, boolean aRedirect)
+		throws IOException, ServletException
+	{
+		HttpServletRequest request = aMVCContext.getOriginalRequest();
+		StringBuilder instruction = new StringBuilder(256);
+		if (aRedirect)
+		{
+			instruction.append("{\"path\":");
+			appendJsonString(instruction, getRedirectURL(aMVCContext, aNavigationTarget, aCustomURLToGoTo));
+			instruction.append(",\"redirect\":true}");
+		}
+		else
+		{
+			instruction.append("{\"path\":");
+			appendJsonString(instruction, request.getContextPath() + toContextRelativePath(aMVCContext, aPathToNavigateTo));
+			instruction.append(",\"redirect\":false");
+			
+			FragmentResponseWrapper fragmentResponse = new FragmentResponseWrapper(aMVCContext.getOriginalResposne());
+			getRequestDispatcher(aMVCContext, aNavigationTarget, aCustomURLToGoTo).include(request, fragmentResponse);
+			
+			instruction.append(",\"fragment\":");
+			appendJsonString(instruction, fragmentResponse.getContent());
+			instruction.append('}');
+		}
+		
+		byte[] bytes = instruction.toString().getBytes("UTF-8");
+		HttpServletResponse response = aMVCContext.getOriginalResposne();
+		response.setContentType("application/json;charset=UTF-8");
+		response.setHeader("Cache-Control", "no-store");
+		response.setContentLength(bytes.length);
+		response.getOutputStream().write(bytes);
+		response.flushBuffer();
+	}
+	
+	
+	/**
+	 * appends the given string as a json string literal
+	 */
+	protected static void appendJsonString(StringBuilder aBuilder, String aValue)
+	{
+		aBuilder.append('"');
+		for (int i=0 ; i<aValue.length() ; ++i)
+		{
+			char c = aValue.charAt(i);
+			switch (c)
+			{
+				case '"':	aBuilder.append("\\\""); break;
+				case '\\':	aBuilder.append("\\\\"); break;
+				case '\n':	aBuilder.append("\\n"); break;
+				case '\r':	aBuilder.append("\\r"); break;
+				case '\t':	aBuilder.append("\\t"); break;
+				case '<':	aBuilder.append("\\u003c"); break;
+				default:
+					if (c < 0x20 || c == 0x2028 || c == 0x2029)
+					{
+						aBuilder.append(String.format("\\u%04x", (int)c));
+					}
+					else
+					{
+						aBuilder.append(c);
+					}
+			}
+		}
+		aBuilder.append('"');
+	}
+	
+	
+	/**
+	 * returns the URL redirecting to the navigation target. the redirect URL of the target is 
+	 * reused, unless it is a custom URL
+	 */
+	protected static String getRedirectURL(MVCContext aMVCContext, NavigationTarget aNavigationTarget, String aCustomURLToGoTo)
+	{
+		if (aCustomURLToGoTo != null)
+		{
+			return NavigationTarget.getRedirectURL(aMVCContext.getOriginalRequest(), aCustomURLToGoTo);
+		}
+		
+		return aNavigationTarget.getRedirectURL(aMVCContext.getOriginalRequest());
+	}
+	
+	
+	/**
+	 * returns the request dispatcher forwarding to the navigation target. the request dispatcher
+	 * of the target is reused, unless it is a custom URL
+	 */
+	protected static RequestDispatcher getRequestDispatcher(MVCContext aMVCContext, NavigationTarget aNavigationTarget, String aCustomURLToGoTo)
+	{
+		if (aCustomURLToGoTo != null)
+		{
+			return aMVCContext.getOriginalRequest().getRequestDispatcher(aCustomURLToGoTo);
+		}
+		
+		return aNavigationTarget.getRequestDispatcher(aMVCContext.getOriginalRequest());
+	}
+	
+	
+	/**
+	 * resolves a forward path, which may be relative to the requested action (like a path
+	 * given to a RequestDispatcher), into a context relative path (as needed by an AsyncContext)
+	 * 
+	 * @param aMVCContext the current MVCContext
+	 * @param aPath the forward path
+	 * 
+	 * @return the context relative path
+	 */
+	protected static String toContextRelativePath(MVCContext aMVCContext, String aPath)
+	{
+		if (aPath.startsWith("/"))
+		{
+			return aPath;
+		}
+		
+		String servletPath = aMVCContext.getOriginalRequest().getServletPath();
+		int lastSlash = (servletPath == null) ? -1 : servletPath.lastIndexOf('/');
+		if (lastSlash < 0)
+		{
+			return "/" + aPath;
+		}
+		
+		return servletPath.substring(0, lastSlash + 1) + aPath;
+	}
+	
+	
 	
 	/**
 	 * gets the ActionResponse object and the current mvc context, and writes the response
@@ -211,12 +458,13 @@ public class NavigationHandler
 	{
 		HttpServletResponse response = aMVCContext.getOriginalResposne();
 		OutputStream os = null;
-		String str = aAjaxActionResponse.getResponse();
+		byte[] bytes = aAjaxActionResponse.getResponseBytes();
 		response.setContentType(aAjaxActionResponse.getResponseContentType());
+		response.setContentLength(bytes.length);
 		try
 		{
 			os = response.getOutputStream();
-			os.write(str.getBytes());
+			os.write(bytes);
 			os.flush();
 		}
 		catch (Exception e)
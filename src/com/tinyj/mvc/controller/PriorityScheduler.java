@@ -0,0 +1,290 @@
+package com.tinyj.mvc.controller;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.tinyj.mvc.model.ActionPriority;
+
+
+/**
+ * The PriorityScheduler bounds the number of actions executing at once (configured by the 
+ * &lt;priority-scheduling&gt; element), and decides which request executes next by the 
+ * priority class of its action.
+ * 
+ * a request which can't execute right away is queued, and a freed slot is handed to the oldest
+ * queued request of the highest priority class. when the queue is full, a queued request of a 
+ * lower priority class than the arriving one (the newest of the lowest class) is dropped to 
+ * make room for it. otherwise the arriving request is dropped. a queued request which does not
+ * get a slot within the max wait is dropped as well.
+ * 
+ * the scheduler uses a lock rather than a monitor, so virtual threads waiting on it do not pin
+ * their carrier threads.
+ * 
+ * @author asaf.peeri
+ *
+ */
+public class PriorityScheduler
+{
+	private static final ActionPriority[] PRIORITIES = ActionPriority.values();
+	
+	private final int mMaxConcurrency;
+	private final int mQueueSize;
+	private final long mMaxWaitMillis;
+	
+	private final ReentrantLock mLock = new ReentrantLock();
+	private final ArrayDeque<CompletableFuture<Boolean>>[] mQueues;
+	private int mInUse;
+	private int mQueued;
+	
+	private final LongAdder[] mAdmittedCounts;
+	private final LongAdder[] mDroppedCounts;
+	
+	
+	/**
+	 * @param aMaxConcurrency the maximal number of actions executing at once
+	 * @param aQueueSize the maximal number of requests waiting for a slot
+	 * @param aMaxWaitMillis the maximal time a request waits for a slot
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public PriorityScheduler(int aMaxConcurrency, int aQueueSize, long aMaxWaitMillis)
+	{
+		mMaxConcurrency = aMaxConcurrency;
+		mQueueSize = aQueueSize;
+		mMaxWaitMillis = aMaxWaitMillis;
+		
+		mQueues = new ArrayDeque[PRIORITIES.length];
+		mAdmittedCounts = new LongAdder[PRIORITIES.length];
+		mDroppedCounts = new LongAdder[PRIORITIES.length];
+		for (int i=0 ; i<PRIORITIES.length ; ++i)
+		{
+			mQueues[i] = new ArrayDeque<CompletableFuture<Boolean>>();
+			mAdmittedCounts[i] = new LongAdder();
+			mDroppedCounts[i] = new LongAdder();
+		}
+	}
+	
+	
+	/**
+	 * acquires a slot for executing an action of the given priority class, waiting for it in 
+	 * the queue if needed. a caller getting a slot must release it when the action completes
+	 * 
+	 * @param aPriority the priority class of the action
+	 * 
+	 * @return true if a slot was acquired, false if the request was dropped
+	 */
+	public boolean acquire(ActionPriority aPriority)
+	{
+		return acquire(aPriority, mMaxWaitMillis);
+	}
+	
+	
+	/**
+	 * acquires a slot for executing an action of the given priority class, waiting for it up to
+	 * the given time (bounded by the configured max-wait-ms)
+	 * 
+	 * @param aPriority the priority class of the action
+	 * @param aMaxWaitMillis the maximal time to wait for a slot
+	 * 
+	 * @return true if a slot was acquired, false if the request was dropped
+	 */
+	public boolean acquire(ActionPriority aPriority, long aMaxWaitMillis)
+	{
+		int priority = aPriority.ordinal();
+		CompletableFuture<Boolean> waiter = null;
+		
+		mLock.lock();
+		try
+		{
+			//a free slot is only taken if no request of the same or a higher priority class is waiting
+			if (mInUse < mMaxConcurrency && !hasWaiters(priority))
+			{
+				++mInUse;
+				mAdmittedCounts[priority].increment();
+				return true;
+			}
+			
+			if (mQueued >= mQueueSize && !dropLowerPriorityWaiter(priority))
+			{
+				mDroppedCounts[priority].increment();
+				return false;
+			}
+			
+			waiter = new CompletableFuture<Boolean>();
+			mQueues[priority].addLast(waiter);
+			++mQueued;
+		}
+		finally
+		{
+			mLock.unlock();
+		}
+		
+		return await(waiter, priority, Math.min(aMaxWaitMillis, mMaxWaitMillis));
+	}
+	
+	
+	protected boolean await(CompletableFuture<Boolean> aWaiter, int aPriority, long aMaxWaitMillis)
+	{
+		try
+		{
+			boolean admitted = aWaiter.get(aMaxWaitMillis, TimeUnit.MILLISECONDS);
+			(admitted ? mAdmittedCounts : mDroppedCounts)[aPriority].increment();
+			return admitted;
+		}
+		catch (TimeoutException te)
+		{
+			//nothing to do, handled below
+		}
+		catch (InterruptedException ie)
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException ee)
+		{
+			//can't happen, a waiter is never completed exceptionally
+		}
+		
+		mLock.lock();
+		try
+		{
+			if (mQueues[aPriority].remove(aWaiter))
+			{
+				--mQueued;
+				mDroppedCounts[aPriority].increment();
+				return false;
+			}
+		}
+		finally
+		{
+			mLock.unlock();
+		}
+		
+		//the waiter was completed while timing out
+		boolean admitted = aWaiter.join();
+		(admitted ? mAdmittedCounts : mDroppedCounts)[aPriority].increment();
+		return admitted;
+	}
+	
+	
+	/**
+	 * releases a slot acquired by <i>acquire()</i>. the slot is handed to the oldest waiting 
+	 * request of the highest priority class, if any
+	 */
+	public void release()
+	{
+		mLock.lock();
+		try
+		{
+			for (ArrayDeque<CompletableFuture<Boolean>> queue : mQueues)
+			{
+				CompletableFuture<Boolean> waiter = queue.pollFirst();
+				if (waiter != null)
+				{
+					--mQueued;
+					waiter.complete(Boolean.TRUE);
+					return;
+				}
+			}
+			
+			--mInUse;
+		}
+		finally
+		{
+			mLock.unlock();
+		}
+	}
+	
+	
+	/**
+	 * must be called holding the lock
+	 */
+	protected boolean hasWaiters(int aUpToPriority)
+	{
+		for (int i=0 ; i<=aUpToPriority ; ++i)
+		{
+			if (!mQueues[i].isEmpty())
+			{
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	
+	/**
+	 * drops the newest waiting request of the lowest priority class, if it is lower than the 
+	 * given one. must be called holding the lock
+	 */
+	protected boolean dropLowerPriorityWaiter(int aPriority)
+	{
+		for (int i=PRIORITIES.length - 1 ; i>aPriority ; --i)
+		{
+			CompletableFuture<Boolean> waiter = mQueues[i].pollLast();
+			if (waiter != null)
+			{
+				--mQueued;
+				waiter.complete(Boolean.FALSE);
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	
+	/**
+	 * returns the number of requests of the given priority class which got a slot since startup
+	 */
+	public long getAdmittedCount(ActionPriority aPriority)
+	{
+		return mAdmittedCounts[aPriority.ordinal()].sum();
+	}
+	
+	
+	/**
+	 * returns the number of requests of the given priority class dropped since startup
+	 */
+	public long getDroppedCount(ActionPriority aPriority)
+	{
+		return mDroppedCounts[aPriority.ordinal()].sum();
+	}
+	
+	
+	/**
+	 * returns the number of requests currently waiting for a slot
+	 */
+	public int getQueuedCount()
+	{
+		mLock.lock();
+		try
+		{
+			return mQueued;
+		}
+		finally
+		{
+			mLock.unlock();
+		}
+	}
+	
+	
+	/**
+	 * returns the number of slots currently in use
+	 */
+	public int getInUseCount()
+	{
+		mLock.lock();
+		try
+		{
+			return mInUse;
+		}
+		finally
+		{
+			mLock.unlock();
+		}
+	}
+}
@@ -0,0 +1,267 @@
+package com.tinyj.mvc.controller;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.tinyj.mvc.config.BaseConfigActionDescriptor;
+import com.tinyj.mvc.exception.HandleNavigationException;
+import com.tinyj.mvc.exception.MVCExceptionCodes;
+import com.tinyj.mvc.helpers.cookie.CookiesHelper;
+
+
+/**
+ * a RateLimiter limits the rate of requests each client may send to an action (configured 
+ * with rate-limit="10/s" and rate-limit-burst="20"). a request over the rate is rejected with 
+ * http 429, before its request body is parsed.
+ * 
+ * the clients are identified by the key of the &lt;rate-limiting&gt; element of the 
+ * configuration file declaring the action: their session id, their ip address or the value of
+ * a cookie (clients without a valid session or the cookie are identified by their ip address,
+ * so a client cannot escape its limit by sending a made up session id with every request).
+ * 
+ * every client has a token bucket, kept as the theoretical arrival time of its next request 
+ * (GCRA) in a single AtomicLong, so it is updated lock free. the buckets are spread over 
+ * stripes, each bounded to its share of the max-clients. a full stripe evicts its idle buckets
+ * (which are full anyway, so evicting them does not change the limiting). the bucket of an active
+ * client is never evicted, so a client cannot reset its limit by making up new keys. when a full 
+ * stripe has no idle bucket, the request of a new client is rejected until one becomes idle.
+ * 
+ * @author asaf.peeri
+ *
+ */
+public class RateLimiter
+{
+	public static final int SC_TOO_MANY_REQUESTS = 429;
+	
+	public static final String KEY_SESSION = "session";
+	public static final String KEY_IP = "ip";
+	public static final String KEY_COOKIE = "cookie";
+	
+	private static final int STRIPES = 16;
+	
+	private final String mClientKey;
+	private final String mClientCookie;
+	private final long mEmissionIntervalNanos;
+	private final long mBurstToleranceNanos;
+	private final int mMaxClientsPerStripe;
+	private final ConcurrentHashMap<String, AtomicLong>[] mStripes;
+	private final LongAdder mRejectedCount = new LongAdder();
+	
+	
+	/**
+	 * @param aRequests the number of requests allowed per time unit
+	 * @param aTimeUnit the time unit of the rate
+	 * @param aBurst the number of requests a client may send at once
+	 * @param aMaxClients the maximal number of clients tracked at once
+	 * @param aClientKey the key identifying the clients: session, ip or cookie
+	 * @param aClientCookie the name of the cookie identifying the clients, when the key is cookie
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public RateLimiter(int aRequests, TimeUnit aTimeUnit, int aBurst, int aMaxClients, String aClientKey, String aClientCookie)
+	{
+		mClientKey = aClientKey;
+		mClientCookie = aClientCookie;
+		mEmissionIntervalNanos = Math.max(1, aTimeUnit.toNanos(1) / aRequests);
+		mBurstToleranceNanos = mEmissionIntervalNanos * (Math.max(1, aBurst) - 1);
+		mMaxClientsPerStripe = Math.max(1, aMaxClients / STRIPES);
+		
+		mStripes = new ConcurrentHashMap[STRIPES];
+		for (int i=0 ; i<STRIPES ; ++i)
+		{
+			mStripes[i] = new ConcurrentHashMap<String, AtomicLong>();
+		}
+	}
+	
+	
+	/**
+	 * admits or rejects the given request according to the rate limit of its action. a 
+	 * rejected request is answered with http 429 and a Retry-After header.
+	 * 
+	 * @param aActionDescriptor the descriptor of the requested action
+	 * @param aRequest the request
+	 * @param aResponse the response
+	 * 
+	 * @return true if the request may be handled, false if it was rejected
+	 */
+	public static boolean admit(BaseConfigActionDescriptor aActionDescriptor, HttpServletRequest aRequest, HttpServletResponse aResponse)
+		throws HandleNavigationException
+	{
+		RateLimiter rateLimiter = aActionDescriptor.getRateLimiter();
+		if (rateLimiter == null)
+		{
+			return true;
+		}
+		
+		long retryAfterNanos = rateLimiter.tryAcquire(rateLimiter.resolveClientKey(aRequest));
+		if (retryAfterNanos == 0)
+		{
+			return true;
+		}
+		
+		try
+		{
+			aResponse.setHeader("Retry-After", String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(retryAfterNanos + 999999999L))));
+			aResponse.sendError(SC_TOO_MANY_REQUESTS);
+		}
+		catch(IOException ioe)
+		{
+			throw new HandleNavigationException("could not send error status " + SC_TOO_MANY_REQUESTS + ": " + ioe.toString(), MVCExceptionCodes.MVC_COULD_NOT_FORWARD_REQUEST_DUE_TO_IO_ERROR);
+		}
+		
+		return false;
+	}
+	
+	
+	/**
+	 * resolves the key identifying the client of the given request, by the key of the 
+	 * &lt;rate-limiting&gt; element. the session is not created. a requested session id is only
+	 * used if it belongs to a valid session, as any client can send any session id
+	 * 
+	 * @param aRequest the request
+	 * 
+	 * @return the key of the client
+	 */
+	public String resolveClientKey(HttpServletRequest aRequest)
+	{
+		String clientKey = null;
+		
+		if (KEY_SESSION.equals(mClientKey))
+		{
+			if (aRequest.isRequestedSessionIdValid())
+			{
+				clientKey = aRequest.getRequestedSessionId();
+			}
+		}
+		else if (KEY_COOKIE.equals(mClientKey))
+		{
+			clientKey = CookiesHelper.getCookieValue(aRequest, mClientCookie);
+		}
+		
+		if (clientKey == null || "".equals(clientKey))
+		{
+			clientKey = aRequest.getRemoteAddr();
+		}
+		
+		return clientKey;
+	}
+	
+	
+	/**
+	 * tries to take a token out of the bucket of the given client
+	 * 
+	 * @param aClientKey the key of the client
+	 * 
+	 * @return 0 if the request is admitted, otherwise the number of nanoseconds until it would be
+	 */
+	public long tryAcquire(String aClientKey)
+	{
+		long now = System.nanoTime();
+		AtomicLong bucket = getBucket(aClientKey, now);
+		if (bucket == null)
+		{
+			//too many active clients are tracked to track another one
+			mRejectedCount.increment();
+			return mEmissionIntervalNanos;
+		}
+		
+		while (true)
+		{
+			long theoreticalArrival = bucket.get();
+			long nextArrival = Math.max(theoreticalArrival, now);
+			
+			long waitNanos = nextArrival - now - mBurstToleranceNanos;
+			if (waitNanos > 0)
+			{
+				mRejectedCount.increment();
+				return waitNanos;
+			}
+			
+			if (bucket.compareAndSet(theoreticalArrival, nextArrival + mEmissionIntervalNanos))
+			{
+				return 0;
+			}
+		}
+	}
+	
+	
+	/**
+	 * returns the bucket of the given client, creating it if needed
+	 * 
+	 * @return the bucket, or null if the stripe of the client is full of active clients
+	 */
+	protected AtomicLong getBucket(String aClientKey, long aNow)
+	{
+		int hash = aClientKey.hashCode();
+		ConcurrentHashMap<String, AtomicLong> stripe = mStripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+		
+		AtomicLong bucket = stripe.get(aClientKey);
+		if (bucket != null)
+		{
+			return bucket;
+		}
+		
+		if (stripe.size() >= mMaxClientsPerStripe)
+		{
+			evict(stripe, aNow);
+			if (stripe.size() >= mMaxClientsPerStripe)
+			{
+				return null;
+			}
+		}
+		
+		//a new bucket is full
+		bucket = new AtomicLong(aNow);
+		AtomicLong prevBucket = stripe.putIfAbsent(aClientKey, bucket);
+		
+		return (prevBucket != null) ? prevBucket : bucket;
+	}
+	
+	
+	/**
+	 * evicts the idle buckets of a full stripe. the buckets of active clients are kept, as 
+	 * evicting them would reset their limits
+	 */
+	protected void evict(ConcurrentHashMap<String, AtomicLong> aStripe, long aNow)
+	{
+		Iterator<AtomicLong> iter = aStripe.values().iterator();
+		while (iter.hasNext())
+		{
+			//the bucket of a client which did not send a request for a while is full
+			if (iter.next().get() <= aNow)
+			{
+				iter.remove();
+			}
+		}
+	}
+	
+	
+	/**
+	 * returns the number of clients currently tracked
+	 */
+	public int getClientCount()
+	{
+		int clientCount = 0;
+		for (ConcurrentHashMap<String, AtomicLong> stripe : mStripes)
+		{
+			clientCount += stripe.size();
+		}
+		
+		return clientCount;
+	}
+	
+	
+	/**
+	 * returns the number of requests rejected since startup
+	 */
+	public long getRejectedCount()
+	{
+		return mRejectedCount.sum();
+	}
+}
@@ -0,0 +1,169 @@
+package com.tinyj.mvc.controller;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.tinyj.mvc.model.ActionResponse;
+
+
+/**
+ * a SingleFlightGroup coalesces concurrent identical requests to an ajax action (configured 
+ * with coalesce="true") into a single execution of the action. the first request (the leader) 
+ * executes the action, and every identical request arriving while it executes (a follower) 
+ * waits for the leader's action response instead of executing the action again.
+ * 
+ * requests are identical when their request URI and their parameters (sorted by name, without 
+ * the ignored parameters, like a cache busting "_" parameter) are equal. the requests of 
+ * different users are coalesced as well, so only actions whose response does not depend on 
+ * the user or the session should be coalesced.
+ * 
+ * the interceptors before populate run for every request. the rest of the lifecycle (the 
+ * interceptors before and after execute, and the action itself) runs only for the leader.
+ * 
+ * @author asaf.peeri
+ *
+ */
+public class SingleFlightGroup
+{
+	private final ConcurrentHashMap<String, CompletableFuture<ActionResponse>> mInFlight = new ConcurrentHashMap<String, CompletableFuture<ActionResponse>>();
+	private final Set<String> mIgnoredParameters;
+	private final LongAdder mExecutionCount = new LongAdder();
+	private final LongAdder mCoalescedCount = new LongAdder();
+	
+	
+	/**
+	 * @param aIgnoredParameters the names of the parameters which do not take part in the 
+	 * 		  identity of a request
+	 */
+	public SingleFlightGroup(String[] aIgnoredParameters)
+	{
+		mIgnoredParameters = new HashSet<String>(Arrays.asList(aIgnoredParameters));
+	}
+	
+	
+	/**
+	 * creates the key identifying the request of the given MVCContext: its request URI and its
+	 * normalised parameters
+	 * 
+	 * @param aMVCContext the mvc context of the current request
+	 * 
+	 * @return the key of the request
+	 */
+	public String createKey(MVCContext aMVCContext)
+	{
+		List<String> paramNames = new ArrayList<String>();
+		Enumeration<?> paramNamesEnum = aMVCContext.getParameterNames();
+		while (paramNamesEnum != null && paramNamesEnum.hasMoreElements())
+		{
+			String paramName = (String)paramNamesEnum.nextElement();
+			if (!mIgnoredParameters.contains(paramName))
+			{
+				paramNames.add(paramName);
+			}
+		}
+		Collections.sort(paramNames);
+		
+		StringBuilder key = new StringBuilder(aMVCContext.getOriginalRequest().getRequestURI());
+		for (String paramName : paramNames)
+		{
+			//the separators can't be part of a decoded request parameter, so distinct parameter 
+			//sets never produce the same key
+			key.append('\u0000').append(paramName);
+			String[] paramValues = aMVCContext.getParameterValues(paramName);
+			if (paramValues != null)
+			{
+				for (String paramValue : paramValues)
+				{
+					key.append('\u0001').append(paramValue);
+				}
+			}
+		}
+		
+		return key.toString();
+	}
+	
+	
+	/**
+	 * registers the given future as the in flight execution of the given key, unless there is 
+	 * already one
+	 * 
+	 * @param aKey the key of the request
+	 * @param aLeaderResponse the future response of a new execution
+	 * 
+	 * @return the future response of the in flight execution to follow, or null if the caller 
+	 * 		   is the leader and should execute the action, and complete the given future
+	 */
+	public CompletableFuture<ActionResponse> join(String aKey, CompletableFuture<ActionResponse> aLeaderResponse)
+	{
+		CompletableFuture<ActionResponse> inFlightResponse = mInFlight.putIfAbsent(aKey, aLeaderResponse);
+		if (inFlightResponse == null)
+		{
+			mExecutionCount.increment();
+		}
+		else
+		{
+			mCoalescedCount.increment();
+		}
+		
+		return inFlightResponse;
+	}
+	
+	
+	/**
+	 * completes the in flight execution of the given key. it is removed first, so a request 
+	 * arriving after the completion executes the action again
+	 * 
+	 * @param aKey the key of the request
+	 * @param aLeaderResponse the future response registered by the leader
+	 * @param aActionResponse the action response, or null if the execution failed
+	 * @param aFailure the failure of the execution, or null if it succeeded
+	 */
+	public void complete(String aKey, CompletableFuture<ActionResponse> aLeaderResponse, ActionResponse aActionResponse, Throwable aFailure)
+	{
+		mInFlight.remove(aKey, aLeaderResponse);
+		
+		if (aFailure == null)
+		{
+			aLeaderResponse.complete(aActionResponse);
+		}
+		else
+		{
+			aLeaderResponse.completeExceptionally(aFailure);
+		}
+	}
+	
+	
+	/**
+	 * returns the number of executions of the action since startup
+	 */
+	public long getExecutionCount()
+	{
+		return mExecutionCount.sum();
+	}
+	
+	
+	/**
+	 * returns the number of requests which followed an in flight execution since startup
+	 */
+	public long getCoalescedCount()
+	{
+		return mCoalescedCount.sum();
+	}
+	
+	
+	/**
+	 * returns the number of executions currently in flight
+	 */
+	public int getInFlightCount()
+	{
+		return mInFlight.size();
+	}
+}
@@ -9,16 +9,14 @@ import javax.servlet.ServletConfig;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import com.tinyj.mvc.config.AjaxConfigActionDescriptor;
 import com.tinyj.mvc.config.MVCConfigurationManager;
 import com.tinyj.mvc.exception.AjaxInitializationException;
 import com.tinyj.mvc.exception.HandleRequestException;
 import com.tinyj.mvc.exception.MVCExceptionCodes;
-import com.tinyj.mvc.model.Action;
 import com.tinyj.mvc.model.ActionResolver;
-import com.tinyj.mvc.model.ActionResponse;
-import com.tinyj.mvc.model.AjaxActionResponse;
 import com.tinyj.mvc.model.JavaBeanManager;
-import com.tinyj.mvc.model.JavaBeanPopulator;
+import com.tinyj.mvc.model.RouteMatch;
 
 public class StandardAjaxController implements IAjaxController
 {
@@ -44,6 +42,16 @@ public class StandardAjaxController implements IAjaxController
 		//save the ServletConfig as a member variable
 		mServletConfig = aServletConfig;
 		
+		//if a route table was generated at compile time (by the TinyjRouteTableProcessor), and it 
+		//registered ajax actions, the ajax actions are taken from it, and the tinyj-ajax-config.xml 
+		//is not read. a route table of page actions only leaves the ajax actions to the config file
+		MVCConfigurationManager configurationManager = MVCConfigurationManager.getInstance();
+		if (configurationManager.loadRouteTables() && configurationManager.getAjaxActionMappings().hasNext())
+		{
+			System.out.println("using generated route table instead of ajax config file");
+			return;
+		}
+		
 		//extract the tinyj-ajax-config.xml file from the WEB-INF directory, and send its contents to
 		//the MVCConfigurationManager in order to instantiate ajax-action-mappings
 		String configFile = null;
@@ -87,19 +95,40 @@ public class StandardAjaxController implements IAjaxController
 	public void handleRequest(HttpServletRequest aRequest, HttpServletResponse aResponse)
 		throws HandleRequestException
 	{
+		//resolve the route of the ajax action from the request URI only, before the request body 
+		//is parsed, so a request to an unknown action is rejected without reading its body
+		RouteMatch<AjaxConfigActionDescriptor> routeMatch = ActionResolver.resolveAjaxRoute(aRequest);
+		
+		//reject a client over the rate limit of the action, before the request body is parsed
+		if (!RateLimiter.admit(routeMatch.getValue(), aRequest, aResponse))
+		{
+			return;
+		}
+		
 		//creating a context out of the original request and response. during initialization, 
 		//the context will analyze the request to see if it was a multipart form request. 
 		//if so, it will save the uploaded files onto the temporary folder using the TempFileManager
 		MVCContext mvcContext = new MVCContext(aRequest, aResponse);
+		mvcContext.setRouteMatch(routeMatch);
 		
-		//resolve the action that should execute
-		Action action = ActionResolver.resolveAjaxAction(mvcContext);
+		//the interceptor chain of the ajax action, compiled upon configuration load
+		ActionInterceptorChain interceptorChain = MVCConfigurationManager.getInstance().getInterceptorChain(routeMatch.getValue());
 		
-		//execute the action
-		ActionResponse actionResponse = action.execute();
-				
-		//return the response back to the caller according to the action response
-		NavigationHandler.writeBackAjaxResponse((AjaxActionResponse)actionResponse, mvcContext);
+		//run the interceptors and execute the ajax action, then navigate according to its action
+		//response (an AsyncAction releases this thread, and navigates when it completes)
+		ActionExecutor.executeAndNavigate(routeMatch, mvcContext, interceptorChain, false);
+	}
+	
+	
+	/**
+	 * shuts down the threads executing the actions and their background tasks (draining the 
+	 * queued tasks), so they do not outlive the web application. should be called by the 
+	 * destroy() of the controller servlet
+	 */
+	public void destroy()
+	{
+		ActionExecutionService.shutdownInstance();
+		BackgroundTaskExecutor.shutdownInstance();
 	}
 
 }
@@ -10,23 +10,25 @@ import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import com.tinyj.mvc.config.MVCConfigActionDescriptor;
 import com.tinyj.mvc.config.MVCConfigurationManager;
 import com.tinyj.mvc.exception.HandleRequestException;
 import com.tinyj.mvc.exception.MVCExceptionCodes;
 import com.tinyj.mvc.exception.MVCInitializationException;
-import com.tinyj.mvc.model.Action;
 import com.tinyj.mvc.model.ActionResolver;
-import com.tinyj.mvc.model.ActionResponse;
-import com.tinyj.mvc.model.AjaxActionResponse;
 import com.tinyj.mvc.model.JavaBeanManager;
-import com.tinyj.mvc.model.JavaBeanPopulator;
 import com.tinyj.mvc.model.JavaBeanScope;
+import com.tinyj.mvc.model.RouteMatch;
 
 /**
  * The standard MVC controller. upon construction, this class reads from the tinyj-mvc-config.xml
  * mvc configuration file, and initializes the MVCConfigurationManager.
  * when a request is issued, the standard MVC controller calls the basic lifecycle of MVC:
  * 
+ * Resolve the action from the request URI
+ * |
+ * Reject a client over the rate limit of the action
+ * |
  * Parse request parameters
  * |
  * Validate request parameters
@@ -130,6 +132,19 @@ public class StandardMVCController implements IMVCController
 		//save the ServletConfig as a member variable
 		mServletConfig = aServletConfig;
 		
+		//if a route table was generated at compile time (by the TinyjRouteTableProcessor), and it 
+		//registered page actions, it replaces the tinyj-mvc-config.xml, unless an mvc config file 
+		//was given in the c'tor. a route table of ajax actions only leaves the page actions to the 
+		//config file
+		MVCConfigurationManager configurationManager = MVCConfigurationManager.getInstance();
+		if (mMVCConfigFile == null && configurationManager.loadRouteTables() && configurationManager.getMVCActionMappings().hasNext())
+		{
+			System.out.println("using generated route table instead of mvc config file");
+			configurationManager.compileNavigationTargets();
+			JavaBeanManager.getInstance();
+			return;
+		}
+		
 		decideOnMVCConfigFile();
 		
 		//extract the mvc config xml file from it's path, and send its contents to
@@ -183,38 +198,44 @@ public class StandardMVCController implements IMVCController
 	public void handleRequest(HttpServletRequest aRequest, HttpServletResponse aResponse)
 		throws HandleRequestException
 	{
+		//resolve the route of the action from the request URI only, before the request body is
+		//parsed, so a request to an unknown action is rejected without reading its body
+		RouteMatch<MVCConfigActionDescriptor> routeMatch = ActionResolver.resolveMVCRoute(aRequest);
+		
+		//reject a client over the rate limit of the action, before the request body is parsed
+		if (!RateLimiter.admit(routeMatch.getValue(), aRequest, aResponse))
+		{
+			return;
+		}
+		
 		//creating a context out of the original request and response. during initialization, 
 		//the context will analyze the request to see if it was a multipart form request. 
 		//if so, it will save the uploaded files onto the temporary folder using the TempFileManager
 		MVCContext mvcContext = new MVCContext(aRequest, aResponse);
+		mvcContext.setRouteMatch(routeMatch);
 		
 		//attach the MVCContext to the Http request object so it will be available from response JSPs
 		//note that this creates a circular reference, as the MVCContext hold itself a reference
 		//to the Http request
 		aRequest.setAttribute("MVCContext", mvcContext);
 		
-		//validate request parameters according to validation-rules.xml
-		//ValidationManager.validateParamsByAction(mvcContext);
-		
-		//populate javaBeans that are attached to request parameters
-		JavaBeanPopulator.populateJavaBeansFromParameters(mvcContext);
-		
-		//resolve the action that should execute
-		Action action = ActionResolver.resolveMVCAction(mvcContext);
-		
-		//execute the action
-		ActionResponse actionResponse = action.execute();
+		//the interceptor chain of the action, compiled upon configuration load
+		ActionInterceptorChain interceptorChain = MVCConfigurationManager.getInstance().getInterceptorChain(routeMatch.getValue());
 		
-		
-		if (actionResponse instanceof AjaxActionResponse)
-		{
-			//write the response string back to the caller 
-			NavigationHandler.writeBackAjaxResponse((AjaxActionResponse)actionResponse, mvcContext);
-		}
-		else
-		{
-			//navigate to the next page according to the action response
-			NavigationHandler.handleNavigation(actionResponse, mvcContext);
-		}
+		//run the interceptors, populate the java beans and execute the action, then navigate according to its action
+		//response (an AsyncAction releases this thread, and navigates when it completes)
+		ActionExecutor.executeAndNavigate(routeMatch, mvcContext, interceptorChain, true);
+	}
+	
+	
+	/**
+	 * shuts down the threads executing the actions and their background tasks (draining the 
+	 * queued tasks), so they do not outlive the web application. should be called by the 
+	 * destroy() of the controller servlet
+	 */
+	public void destroy()
+	{
+		ActionExecutionService.shutdownInstance();
+		BackgroundTaskExecutor.shutdownInstance();
 	}
 }
@@ -7,5 +7,18 @@ public class ActionExecutionException extends HandleRequestException
 	{
 		super(msg, errorCode);
 	}
+	
+	
+	/**
+	 * creates a lightweight exception for an expected failure, without a stack trace
+	 * 
+	 * @param aMsgPrefix the constant part of the message
+	 * @param aMsgDetail the variable part of the message
+	 * @param aErrorCode the error code
+	 */
+	public ActionExecutionException(String aMsgPrefix, String aMsgDetail, int aErrorCode)
+	{
+		super(aMsgPrefix, aMsgDetail, aErrorCode);
+	}
 
 }
@@ -2,11 +2,53 @@ package com.tinyj.mvc.exception;
 
 public class CodedException extends Exception 
 {
+	/**
+	 * when the system property "tinyj.mvc.fullStackTraces" is set to true, expected failures
+	 * (like an unknown action) fill in their stack trace as well. useful for debugging only
+	 */
+	protected static final boolean FULL_STACK_TRACES = Boolean.getBoolean("tinyj.mvc.fullStackTraces");
+	
 	public int mErrorCode;
 	
+	private String mMsgPrefix;
+	private String mMsgDetail;
+	
 	public CodedException(String aMsg, int aErrorCode)
 	{
 		super(aMsg);
 		mErrorCode = aErrorCode;
+		MVCExceptionCounters.increment(aErrorCode);
+	}
+	
+	
+	/**
+	 * creates a lightweight exception for an expected failure (like a request to an unknown
+	 * action). such an exception does not fill in its stack trace, and its message is only
+	 * concatenated out of the given prefix and detail when it is asked for.
+	 * 
+	 * @param aMsgPrefix the constant part of the message
+	 * @param aMsgDetail the variable part of the message
+	 * @param aErrorCode the error code
+	 */
+	protected CodedException(String aMsgPrefix, String aMsgDetail, int aErrorCode)
+	{
+		super(null, null, false, FULL_STACK_TRACES);
+		mErrorCode = aErrorCode;
+		mMsgPrefix = aMsgPrefix;
+		mMsgDetail = aMsgDetail;
+		MVCExceptionCounters.increment(aErrorCode);
+	}
+	
+	
+	@Override
+	public String getMessage()
+	{
+		String msg = super.getMessage();
+		if (msg == null && mMsgPrefix != null)
+		{
+			msg = mMsgPrefix + mMsgDetail;
+		}
+		
+		return msg;
 	}
 }
@@ -6,5 +6,20 @@ public class HandleNavigationException extends HandleRequestException
 	{
 		super(msg, errorCode);
 	}
+	
+	
+	/**
+	 * creates a lightweight exception for an expected failure (like a missing forward),
+	 * without a stack trace. the message is only concatenated out of the prefix and detail
+	 * when it is asked for.
+	 * 
+	 * @param aMsgPrefix the constant part of the message
+	 * @param aMsgDetail the variable part of the message
+	 * @param aErrorCode the error code
+	 */
+	public HandleNavigationException(String aMsgPrefix, String aMsgDetail, int aErrorCode)
+	{
+		super(aMsgPrefix, aMsgDetail, aErrorCode);
+	}
 
 }
@@ -10,5 +10,14 @@ public class HandleRequestException extends CodedException
 		super(msg, errorCode);
 		// TODO Auto-generated constructor stub
 	}
-
+	
+	
+	/**
+	 * creates a lightweight exception for an expected failure, without a stack trace and
+	 * with a lazily built message
+	 */
+	protected HandleRequestException(String aMsgPrefix, String aMsgDetail, int aErrorCode)
+	{
+		super(aMsgPrefix, aMsgDetail, aErrorCode);
+	}
 }
@@ -48,6 +48,24 @@ public class MVCExceptionCodes
 	
 	public static int MVC_ERROR_WHILE_ANALYZING_FORM_PARAMETERS = 1032;
 	
+	public static int MVC_SINGLETON_ACTION_IS_NOT_STATELESS = 1033;
+	public static int MVC_STATELESS_ACTION_EXECUTED_WITHOUT_CONTEXT = 1034;
+	public static int MVC_INTERCEPTOR_CANT_BE_INSTANTIATED = 1035;
+	public static int MVC_INTERCEPTOR_IS_NOT_DEFINED = 1036;
+	public static int MVC_IDEMPOTENT_REQUEST_STILL_IN_PROGRESS = 1037;
+	public static int MVC_IDEMPOTENT_REQUEST_FAILED = 1038;
+	public static int MVC_ASYNC_ACTION_FAILED = 1039;
+	public static int MVC_ASYNC_ACTION_TIMED_OUT = 1040;
+	public static int MVC_ACTION_EXECUTION_CONCURRENCY_LIMIT_REACHED = 1041;
+	public static int MVC_CIRCUIT_BREAKER_IS_OPEN = 1042;
+	public static int MVC_ACTION_DEADLINE_EXCEEDED = 1043;
+	public static int MVC_FAN_OUT_SUBTASK_FAILED = 1044;
+	public static int MVC_DATA_LOADER_BATCH_FAILED = 1045;
+	public static int MVC_AJAX_REQUEST_SUPERSEDED = 1046;
+	public static int MVC_BATCHED_ACTION_IS_NOT_BATCH_AJAX_ACTION = 1047;
+	public static int MVC_BATCH_AJAX_ACTION_FAILED = 1048;
+	public static int MVC_ACTION_CHAIN_TOO_DEEP = 1049;
+	
 	
 	
 }
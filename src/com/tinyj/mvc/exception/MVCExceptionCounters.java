@@ -0,0 +1,107 @@
+package com.tinyj.mvc.exception;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * counts how many CodedExceptions were created for every error code. since expected failures
+ * (like requests to unknown actions) are thrown without a stack trace and usually are not 
+ * logged, these counters are the way to see how often every failure happens.
+ * 
+ * the counters are kept for the error codes in the range 1000 -> 9999 (see MVCExceptionCodes).
+ * counting is lock free and does not allocate, except when a code is counted for the first time.
+ * 
+ * @author asaf.peeri
+ *
+ */
+public class MVCExceptionCounters
+{
+	public static final int MIN_ERROR_CODE = 1000;
+	public static final int MAX_ERROR_CODE = 9999;
+	
+	private static final AtomicReferenceArray<LongAdder> sCounters = new AtomicReferenceArray<LongAdder>(MAX_ERROR_CODE - MIN_ERROR_CODE + 1);
+	
+	
+	/**
+	 * counts one more failure of the given error code
+	 * 
+	 * @param aErrorCode the error code
+	 */
+	public static void increment(int aErrorCode)
+	{
+		if (aErrorCode < MIN_ERROR_CODE || aErrorCode > MAX_ERROR_CODE)
+		{
+			return;
+		}
+		
+		int index = aErrorCode - MIN_ERROR_CODE;
+		LongAdder counter = sCounters.get(index);
+		if (counter == null)
+		{
+			sCounters.compareAndSet(index, null, new LongAdder());
+			counter = sCounters.get(index);
+		}
+		
+		counter.increment();
+	}
+	
+	
+	/**
+	 * returns how many failures of the given error code were counted
+	 * 
+	 * @param aErrorCode the error code
+	 * 
+	 * @return the number of failures counted for the error code
+	 */
+	public static long getCount(int aErrorCode)
+	{
+		if (aErrorCode < MIN_ERROR_CODE || aErrorCode > MAX_ERROR_CODE)
+		{
+			return 0;
+		}
+		
+		LongAdder counter = sCounters.get(aErrorCode - MIN_ERROR_CODE);
+		
+		return counter == null ? 0 : counter.sum();
+	}
+	
+	
+	/**
+	 * returns the counts of all the error codes that were counted at least once
+	 * 
+	 * @return a Map of error codes to their counts, sorted by error code
+	 */
+	public static Map<Integer, Long> getCounts()
+	{
+		Map<Integer, Long> counts = new TreeMap<Integer, Long>();
+		for (int i=0 ; i<sCounters.length() ; ++i)
+		{
+			LongAdder counter = sCounters.get(i);
+			if (counter != null)
+			{
+				counts.put(MIN_ERROR_CODE + i, counter.sum());
+			}
+		}
+		
+		return counts;
+	}
+	
+	
+	/**
+	 * resets all the counters
+	 */
+	public static void reset()
+	{
+		for (int i=0 ; i<sCounters.length() ; ++i)
+		{
+			LongAdder counter = sCounters.get(i);
+			if (counter != null)
+			{
+				counter.reset();
+			}
+		}
+	}
+}
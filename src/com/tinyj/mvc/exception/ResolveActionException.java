@@ -7,5 +7,20 @@ public class ResolveActionException extends HandleRequestException
 	{
 		super(msg, errorCode);
 	}
+	
+	
+	/**
+	 * creates a lightweight exception for an expected failure (like a request to an unknown action),
+	 * without a stack trace. the message is only concatenated out of the prefix and detail
+	 * when it is asked for.
+	 * 
+	 * @param aMsgPrefix the constant part of the message
+	 * @param aMsgDetail the variable part of the message
+	 * @param aErrorCode the error code
+	 */
+	public ResolveActionException(String aMsgPrefix, String aMsgDetail, int aErrorCode)
+	{
+		super(aMsgPrefix, aMsgDetail, aErrorCode);
+	}
 
 }
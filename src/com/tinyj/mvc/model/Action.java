@@ -41,4 +41,19 @@ public abstract class Action
 	
 	
 	public abstract ActionResponse execute() throws ActionExecutionException, SessionExpiredException;
+	
+	
+	/**
+	 * executes the action for the request of the given MVCContext. this is the method called
+	 * by the controllers. by default it calls <i>execute()</i>, as the action already holds 
+	 * its MVCContext. a StatelessAction overrides it to use the given MVCContext instead.
+	 * 
+	 * @param aMVCContext the mvc context of the current request
+	 * 
+	 * @return the action response
+	 */
+	public ActionResponse execute(MVCContext aMVCContext) throws ActionExecutionException, SessionExpiredException
+	{
+		return execute();
+	}
 }
@@ -0,0 +1,16 @@
+package com.tinyj.mvc.model;
+
+/**
+ * this enum defines 2 modes of executing an Action:
+ * container - the action is executed on the container thread handling the request (the default)
+ * virtual - the action is executed on a virtual thread (when running on java 21 or later), and 
+ *           the container thread is released while it executes
+ * 
+ * @author asaf.peeri
+ *
+ */
+public enum ActionExecutionMode
+{
+	container,
+	virtual;
+}
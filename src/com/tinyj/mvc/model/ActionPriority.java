@@ -0,0 +1,17 @@
+package com.tinyj.mvc.model;
+
+/**
+ * this enum defines 3 priority classes of Actions, used by the PriorityScheduler under overload:
+ * high - interactive actions, like page actions submitting forms (the default of page actions)
+ * normal - the default of ajax actions
+ * low - background actions, like ajax polling, which are dropped first
+ * 
+ * @author asaf.peeri
+ *
+ */
+public enum ActionPriority
+{
+	high,
+	normal,
+	low;
+}
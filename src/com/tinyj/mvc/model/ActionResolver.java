@@ -1,10 +1,9 @@
 package com.tinyj.mvc.model;
 
-import java.io.File;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
+import javax.servlet.http.HttpServletRequest;
 
 import com.tinyj.mvc.config.AjaxConfigActionDescriptor;
+import com.tinyj.mvc.config.BaseConfigActionDescriptor;
 import com.tinyj.mvc.config.MVCConfigActionDescriptor;
 import com.tinyj.mvc.config.MVCConfigurationManager;
 import com.tinyj.mvc.controller.MVCContext;
@@ -20,91 +19,99 @@ import com.tinyj.mvc.exception.ResolveActionException;
  */
 public class ActionResolver
 {
+	public static final String MVC_ACTION_EXTENSION = ".act";
+	public static final String AJAX_ACTION_EXTENSION = ".ajx";
 	
 	/**
-	 * gets an MVCContext object, extracts the action name from it, and instantiates the
-	 * proper Action object, as defined in the mvc configuration file.
+	 * matches the request URI onto the action mappings using the action router. this only
+	 * looks at the request URI, so it is done before the MVCContext is created (and the 
+	 * request body is parsed), and an unknown action is rejected without reading the body.
 	 * 
-	 * @param aMVCContext the mvc context of this request
+	 * @param aRequest the current request
 	 * 
-	 * @return the instantiated Action object as defined in the action mapping of the mvc configuration file
+	 * @return the matched route, holding the action descriptor
 	 * 
-	 * @throws ResolveActionException when any action resolving is failed
+	 * @throws ResolveActionException when the request URI does not match any action
 	 */
-	public static Action resolveMVCAction(MVCContext aMVCContext)
+	public static RouteMatch<MVCConfigActionDescriptor> resolveMVCRoute(HttpServletRequest aRequest)
 		throws ResolveActionException
 	{
-		
-		String actionPath = getActionFromRequest(aMVCContext);
-		if (actionPath == null)
+		RouteMatch<MVCConfigActionDescriptor> routeMatch = matchRoute(MVCConfigurationManager.getInstance().getMVCActionRouter(), aRequest, MVC_ACTION_EXTENSION);
+		if (routeMatch == null)
 		{
-			throw new ResolveActionException("action cannot be null, empty or slash only: " + actionPath, MVCExceptionCodes.MVC_ACTION_CANT_BE_NULL_EMPTY_OR_SLASH_ONLY);
+			throw createUnresolvedActionException(aRequest, MVC_ACTION_EXTENSION);
 		}
 		
-			
-		MVCConfigActionDescriptor actionDescriptor = MVCConfigurationManager.getInstance().getMVCAction(actionPath);
-		if (actionDescriptor == null)
+		return routeMatch;
+	}
+	
+	
+	/**
+	 * matches the request URI onto the ajax action mappings using the ajax action router. 
+	 * this only looks at the request URI, so it is done before the MVCContext is created 
+	 * (and the request body is parsed), and an unknown action is rejected without reading the body.
+	 * 
+	 * @param aRequest the current request
+	 * 
+	 * @return the matched route, holding the ajax action descriptor
+	 * 
+	 * @throws ResolveActionException when the request URI does not match any ajax action
+	 */
+	public static RouteMatch<AjaxConfigActionDescriptor> resolveAjaxRoute(HttpServletRequest aRequest)
+		throws ResolveActionException
+	{
+		RouteMatch<AjaxConfigActionDescriptor> routeMatch = matchRoute(MVCConfigurationManager.getInstance().getAjaxActionRouter(), aRequest, AJAX_ACTION_EXTENSION);
+		if (routeMatch == null)
 		{
-			throw new ResolveActionException("action does not exist: " + actionPath, MVCExceptionCodes.MVC_ACTION_DOES_NOT_EXIST);
+			throw createUnresolvedActionException(aRequest, AJAX_ACTION_EXTENSION);
 		}
 		
+		return routeMatch;
+	}
+	
+	
+	/**
+	 * instantiates the proper Action object for an already matched route, and sets the 
+	 * matched route on the MVCContext
+	 * 
+	 * @param aRouteMatch the route matched by resolveMVCRoute or resolveAjaxRoute
+	 * @param aMVCContext the mvc context of this request
+	 * 
+	 * @return the instantiated Action object
+	 * 
+	 * @throws ResolveActionException when the action could not be instantiated
+	 */
+	public static Action resolveAction(RouteMatch<? extends BaseConfigActionDescriptor> aRouteMatch, MVCContext aMVCContext)
+		throws ResolveActionException
+	{
+		aMVCContext.setRouteMatch(aRouteMatch);
 		
-		try
-		{
-			Class actionClass = Class.forName(actionDescriptor.getType());
-			Constructor actionConstructor = actionClass.getConstructor(String.class, MVCContext.class);
-			Object actionObj = actionConstructor.newInstance(actionDescriptor.getPath(), aMVCContext);
-			
-			if (!(actionObj instanceof Action))
-			{
-				throw new ResolveActionException("action could not be instantiated. given action is not an instance of com.tinyj.mvc.model.Action: " + actionPath + "; " + actionDescriptor.getType(), MVCExceptionCodes.MVC_ACTION_IS_NOT_INSTANCE_OF_MVC_ACTION_CLASS);
-			}
-			
-			Action action = (Action)actionObj;
-			
-			return action;
-			
-		}
-		catch(ClassNotFoundException cnfe)
-		{
-			throw new ResolveActionException("action could not be instantiated. type cannot be found: " + actionPath + "; " + actionDescriptor.getType(), MVCExceptionCodes.MVC_ACTION_TYPE_CLASS_CANT_BE_FOUND);
-		}
-		catch (SecurityException e)
-		{
-			// TODO Auto-generated catch block
-			throw new ResolveActionException("action could not be instantiated. constructor cannot be accessed: " + actionPath + "; " + actionDescriptor.getType(), MVCExceptionCodes.MVC_ACTION_PROPER_CONSTRUCTOR_CANT_BE_ACCESSED);
-		}
-		catch (NoSuchMethodException e)
-		{
-			// TODO Auto-generated catch block
-			throw new ResolveActionException("action could not be instantiated. constructor cannot be found: " + actionPath + "; " + actionDescriptor.getType(), MVCExceptionCodes.MVC_ACTION_PROPER_CONSTRUCTOR_CANT_BE_FOUND);
-		}
-		catch (IllegalArgumentException e)
-		{
-			// TODO Auto-generated catch block
-			throw new ResolveActionException("action could not be instantiated. constructor cannot be found: " + actionPath + "; " + actionDescriptor.getType(), MVCExceptionCodes.MVC_ACTION_PROPER_CONSTRUCTOR_CANT_BE_FOUND);
-		}
-		catch (InstantiationException e)
-		{
-			// TODO Auto-generated catch block
-			throw new ResolveActionException("action could not be instantiated: " + actionPath + "; " + actionDescriptor.getType(), MVCExceptionCodes.MVC_ACTION_CANT_BE_INSTANTIATED);
-		}
-		catch (IllegalAccessException e)
-		{
-			// TODO Auto-generated catch block
-			throw new ResolveActionException("action could not be instantiated. constructor cannot be accessed: " + actionPath + "; " + actionDescriptor.getType(), MVCExceptionCodes.MVC_ACTION_PROPER_CONSTRUCTOR_CANT_BE_ACCESSED);
-		}
-		catch (InvocationTargetException e)
-		{
-			// TODO Auto-generated catch block
-			throw new ResolveActionException("action could not be instantiated. exception occured: " + actionPath + "; " + actionDescriptor.getType() + ": " + e.toString() , MVCExceptionCodes.MVC_ACTION_CONSTRUCTOR_INVOCATION_EXCEPTION);
-		}
+		return createAction(aRouteMatch.getValue(), aMVCContext);
+	}
+	
+	
+	/**
+	 * gets an MVCContext object, matches its request URI onto the action mappings using the
+	 * action router, and instantiates the proper Action object, as defined in the mvc 
+	 * configuration file. the matched route is set on the MVCContext.
+	 * 
+	 * @param aMVCContext the mvc context of this request
+	 * 
+	 * @return the instantiated Action object as defined in the action mapping of the mvc configuration file
+	 * 
+	 * @throws ResolveActionException when any action resolving is failed
+	 */
+	public static Action resolveMVCAction(MVCContext aMVCContext)
+		throws ResolveActionException
+	{
+		return resolveAction(resolveMVCRoute(aMVCContext.getOriginalRequest()), aMVCContext);
 	}
 	
 	
 	/**
-	 * gets an MVCContext object, extracts the ajax action name from it, and instantiates the
-	 * proper Action object, as defined in the ajax configuration file.
+	 * gets an MVCContext object, matches its request URI onto the ajax action mappings using
+	 * the ajax action router, and instantiates the proper Action object, as defined in the ajax 
+	 * configuration file. the matched route is set on the MVCContext.
 	 * 
 	 * @param aMVCContext the mvc context of this request
 	 * 
@@ -115,71 +122,159 @@ public class ActionResolver
 	public static Action resolveAjaxAction(MVCContext aMVCContext)
 		throws ResolveActionException
 	{
-		
-		String actionPath = getAjaxActionFromRequest(aMVCContext);
-		if (actionPath == null)
+		return resolveAction(resolveAjaxRoute(aMVCContext.getOriginalRequest()), aMVCContext);
+	}
+	
+	
+	/**
+	 * creates the exception thrown when the request URI does not match any action.
+	 * since requests to unknown actions are expected (bots, scanners), the exception is a 
+	 * lightweight one, without a stack trace and with a lazily built message
+	 */
+	protected static ResolveActionException createUnresolvedActionException(HttpServletRequest aRequest, String aActionExtension)
+	{
+		String uri = aRequest.getRequestURI();
+		if (uri == null)
 		{
-			throw new ResolveActionException("action cannot be null, empty or slash only: " + actionPath, MVCExceptionCodes.MVC_ACTION_CANT_BE_NULL_EMPTY_OR_SLASH_ONLY);
+			return new ResolveActionException("action cannot be null, empty or slash only: ", uri, MVCExceptionCodes.MVC_ACTION_CANT_BE_NULL_EMPTY_OR_SLASH_ONLY);
 		}
 		
-			
-		AjaxConfigActionDescriptor ajaxActionDescriptor = MVCConfigurationManager.getInstance().getAjaxAction(actionPath);
-		if (ajaxActionDescriptor == null)
+		//check whether there is any action name between the context path and the extension
+		String contextPath = aRequest.getContextPath();
+		int start = (contextPath != null && uri.startsWith(contextPath)) ? contextPath.length() : 0;
+		int end = uri.lastIndexOf(aActionExtension);
+		if (end < start)
 		{
-			throw new ResolveActionException("action does not exist: " + actionPath, MVCExceptionCodes.MVC_ACTION_DOES_NOT_EXIST);
+			end = uri.length();
 		}
 		
-		
-		try
+		for (int i=start ; i<end ; ++i)
 		{
-			Class actionClass = Class.forName(ajaxActionDescriptor.getType());
-			Constructor actionConstructor = actionClass.getConstructor(String.class, MVCContext.class);
-			Object actionObj = actionConstructor.newInstance(ajaxActionDescriptor.getPath(), aMVCContext);
-			
-			if (!(actionObj instanceof Action))
+			char c = uri.charAt(i);
+			if (c != '/' && !Character.isWhitespace(c))
 			{
-				throw new ResolveActionException("action could not be instantiated. given action is not an instance of com.tinyj.mvc.model.Action: " + actionPath + "; " + ajaxActionDescriptor.getType(), MVCExceptionCodes.MVC_ACTION_IS_NOT_INSTANCE_OF_MVC_ACTION_CLASS);
+				return new ResolveActionException("action does not exist: ", uri, MVCExceptionCodes.MVC_ACTION_DOES_NOT_EXIST);
 			}
-			
-			Action action = (Action)actionObj;
-			
-			return action;
-			
-		}
-		catch(ClassNotFoundException cnfe)
-		{
-			throw new ResolveActionException("action could not be instantiated. type cannot be found: " + actionPath + "; " + ajaxActionDescriptor.getType(), MVCExceptionCodes.MVC_ACTION_TYPE_CLASS_CANT_BE_FOUND);
-		}
-		catch (SecurityException e)
-		{
-			// TODO Auto-generated catch block
-			throw new ResolveActionException("action could not be instantiated. constructor cannot be accessed: " + actionPath + "; " + ajaxActionDescriptor.getType(), MVCExceptionCodes.MVC_ACTION_PROPER_CONSTRUCTOR_CANT_BE_ACCESSED);
 		}
-		catch (NoSuchMethodException e)
+		
+		return new ResolveActionException("action cannot be null, empty or slash only: ", uri, MVCExceptionCodes.MVC_ACTION_CANT_BE_NULL_EMPTY_OR_SLASH_ONLY);
+	}
+	
+	
+	/**
+	 * matches the request URI onto the given router. the matched part of the URI starts
+	 * after the context path and ends before the given action extension.
+	 * 
+	 * @param aRouter the router to match the request URI with
+	 * @param aRequest the current request
+	 * @param aActionExtension the extension of the action in the URI (.act or .ajx)
+	 * 
+	 * @return the matched route, null if no route matches the request URI
+	 */
+	public static <T> RouteMatch<T> matchRoute(ActionRouter<T> aRouter, HttpServletRequest aRequest, String aActionExtension)
+	{
+		String uri = aRequest.getRequestURI();
+		if (uri == null)
 		{
-			// TODO Auto-generated catch block
-			throw new ResolveActionException("action could not be instantiated. constructor cannot be found: " + actionPath + "; " + ajaxActionDescriptor.getType(), MVCExceptionCodes.MVC_ACTION_PROPER_CONSTRUCTOR_CANT_BE_FOUND);
+			return null;
 		}
-		catch (IllegalArgumentException e)
+		
+		String contextPath = aRequest.getContextPath();
+		int start = (contextPath != null && uri.startsWith(contextPath)) ? contextPath.length() : 0;
+		int end = uri.lastIndexOf(aActionExtension);
+		if (end < start)
 		{
-			// TODO Auto-generated catch block
-			throw new ResolveActionException("action could not be instantiated. constructor cannot be found: " + actionPath + "; " + ajaxActionDescriptor.getType(), MVCExceptionCodes.MVC_ACTION_PROPER_CONSTRUCTOR_CANT_BE_FOUND);
+			end = uri.length();
 		}
-		catch (InstantiationException e)
+		
+		return aRouter.match(uri, start, end);
+	}
+	
+	
+	/**
+	 * instantiates the action described by the given descriptor, using its pre-resolved
+	 * action factory. if the descriptor was added without a factory (not through the
+	 * configuration parsing), the factory is resolved here once and kept on the descriptor.
+	 * 
+	 * if the action is singleton scoped, the single shared instance is returned instead
+	 * 
+	 * @param aActionDescriptor the descriptor of the action to instantiate
+	 * @param aMVCContext the mvc context of this request
+	 * 
+	 * @return the instantiated Action object
+	 * 
+	 * @throws ResolveActionException when the action could not be instantiated
+	 */
+	protected static Action createAction(BaseConfigActionDescriptor aActionDescriptor, MVCContext aMVCContext)
+		throws ResolveActionException
+	{
+		if (aActionDescriptor.getScope() == ActionScope.singleton)
 		{
-			// TODO Auto-generated catch block
-			throw new ResolveActionException("action could not be instantiated: " + actionPath + "; " + ajaxActionDescriptor.getType(), MVCExceptionCodes.MVC_ACTION_CANT_BE_INSTANTIATED);
+			Action singletonAction = aActionDescriptor.getSingletonAction();
+			if (singletonAction == null)
+			{
+				//a lock rather than a monitor, so a virtual thread creating it does not pin its carrier thread
+				aActionDescriptor.getSingletonLock().lock();
+				try
+				{
+					singletonAction = aActionDescriptor.getSingletonAction();
+					if (singletonAction == null)
+					{
+						singletonAction = createSingletonAction(aActionDescriptor);
+						aActionDescriptor.setSingletonAction(singletonAction);
+					}
+				}
+				finally
+				{
+					aActionDescriptor.getSingletonLock().unlock();
+				}
+			}
+			
+			return singletonAction;
 		}
-		catch (IllegalAccessException e)
+		
+		return getActionFactory(aActionDescriptor).createAction(aActionDescriptor.getPath(), aMVCContext);
+	}
+	
+	
+	/**
+	 * creates the single shared instance of a singleton scoped action. the action is created 
+	 * with a null MVCContext, and must be a StatelessAction, since it gets the MVCContext of 
+	 * every request as an argument of its <i>execute(MVCContext)</i> method.
+	 * 
+	 * @param aActionDescriptor the descriptor of the singleton action
+	 * 
+	 * @return the singleton action instance
+	 * 
+	 * @throws ResolveActionException when the action could not be instantiated or is not a StatelessAction
+	 */
+	public static Action createSingletonAction(BaseConfigActionDescriptor aActionDescriptor)
+		throws ResolveActionException
+	{
+		Action action = getActionFactory(aActionDescriptor).createAction(aActionDescriptor.getPath(), null);
+		if (!(action instanceof StatelessAction))
 		{
-			// TODO Auto-generated catch block
-			throw new ResolveActionException("action could not be instantiated. constructor cannot be accessed: " + actionPath + "; " + ajaxActionDescriptor.getType(), MVCExceptionCodes.MVC_ACTION_PROPER_CONSTRUCTOR_CANT_BE_ACCESSED);
+			throw new ResolveActionException("singleton action must be an instance of com.tinyj.mvc.model.StatelessAction: " + aActionDescriptor.getPath() + "; " + aActionDescriptor.getType(), MVCExceptionCodes.MVC_SINGLETON_ACTION_IS_NOT_STATELESS);
 		}
-		catch (InvocationTargetException e)
+		
+		return action;
+	}
+	
+	
+	/**
+	 * returns the action factory of the given descriptor, resolving it if it was not resolved yet
+	 */
+	protected static IActionFactory getActionFactory(BaseConfigActionDescriptor aActionDescriptor)
+		throws ResolveActionException
+	{
+		IActionFactory actionFactory = aActionDescriptor.getActionFactory();
+		if (actionFactory == null)
 		{
-			// TODO Auto-generated catch block
-			throw new ResolveActionException("action could not be instantiated. exception occured: " + actionPath + "; " + ajaxActionDescriptor.getType() + ": " + e.toString() , MVCExceptionCodes.MVC_ACTION_CONSTRUCTOR_INVOCATION_EXCEPTION);
+			actionFactory = MethodHandleActionFactory.forType(aActionDescriptor.getPath(), aActionDescriptor.getType());
+			aActionDescriptor.setActionFactory(actionFactory);
 		}
+		
+		return actionFactory;
 	}
 	
 	
@@ -193,49 +288,23 @@ public class ActionResolver
 	 * it is resloved into:
 	 * <i>doAction</i>
 	 * 
+	 * if the action was already resolved for this request, the configured path of the
+	 * resolved action is returned instead.
+	 * 
 	 * @param aMVCContext the mvc context of this request 
 	 * 
 	 * @return the action name without any path prefix or extension postfix
 	 */
 	public static String getActionFromRequest(MVCContext aMVCContext) 
 	{
-		String actionPath = null;
-//		String actionPath = aMVCContext.getOriginalRequest().getPathInfo();
-//		if (actionPath == null)
-//		{
-//			//if the servlet is not mapped by path prefix (/demopath/*) but using a *.act
-//			actionPath = aMVCContext.getOriginalRequest().getServletPath();
-//		}
-		actionPath = aMVCContext.getOriginalRequest().getRequestURI();
-		
-		//remove the .act if exist
-		int lastDotActIndex = actionPath.lastIndexOf(".act");
-		if (lastDotActIndex != -1)
+		//if the action was already resolved for this request, there is no need to parse the URI again
+		RouteMatch<? extends BaseConfigActionDescriptor> routeMatch = aMVCContext.getRouteMatch();
+		if (routeMatch != null)
 		{
-			actionPath = actionPath.substring(0, lastDotActIndex);
+			return routeMatch.getValue().getPath();
 		}
 		
-		if (actionPath == null)
-		{
-			return null;
-		}
-		else
-		{
-			actionPath = actionPath.trim();
-			int lastSlashIndex = actionPath.lastIndexOf("/");
-			if (lastSlashIndex != -1 && actionPath.length() != lastSlashIndex + 1 )
-			{
-				actionPath = actionPath.substring(lastSlashIndex + 1);
-			}
-		}
-		
-		//if we could not parse a proper actionPath
-		if ("/".equals(actionPath) || "".equals(actionPath))
-		{
-			return null;
-		}
-		
-		return actionPath;
+		return getActionNameFromURI(aMVCContext.getOriginalRequest().getRequestURI(), MVC_ACTION_EXTENSION);
 	}
 	
 	
@@ -249,40 +318,56 @@ public class ActionResolver
 	 * it is resloved into:
 	 * <i>doAction</i>
 	 * 
+	 * if the ajax action was already resolved for this request, the configured path of the
+	 * resolved action is returned instead.
+	 * 
 	 * @param aMVCContext the mvc context of this request 
 	 * 
 	 * @return the action name without any path prefix or extension postfix
 	 */
 	public static String getAjaxActionFromRequest(MVCContext aMVCContext) 
 	{
-		String actionPath = null;
-//		String actionPath = aMVCContext.getOriginalRequest().getPathInfo();
-//		if (actionPath == null)
-//		{
-//			//if the servlet is not mapped by path prefix (/demopath/*) but using a *.act
-//			actionPath = aMVCContext.getOriginalRequest().getServletPath();
-//		}
-		actionPath = aMVCContext.getOriginalRequest().getRequestURI();
-		
-		//remove the .act if exist
-		int lastDotActIndex = actionPath.lastIndexOf(".ajx");
-		if (lastDotActIndex != -1)
+		//if the action was already resolved for this request, there is no need to parse the URI again
+		RouteMatch<? extends BaseConfigActionDescriptor> routeMatch = aMVCContext.getRouteMatch();
+		if (routeMatch != null)
 		{
-			actionPath = actionPath.substring(0, lastDotActIndex);
+			return routeMatch.getValue().getPath();
 		}
 		
+		return getActionNameFromURI(aMVCContext.getOriginalRequest().getRequestURI(), AJAX_ACTION_EXTENSION);
+	}
+	
+	
+	
+	/**
+	 * extracts the action name from the given request URI. if the URI includes the given 
+	 * action extension, it removes it. if it includes a path prefix before it, it also removes it.
+	 * 
+	 * @param aRequestURI the request URI
+	 * @param aActionExtension the action extension (.act or .ajx)
+	 * 
+	 * @return the action name without any path prefix or extension postfix
+	 */
+	protected static String getActionNameFromURI(String aRequestURI, String aActionExtension)
+	{
+		String actionPath = aRequestURI;
 		if (actionPath == null)
 		{
 			return null;
 		}
-		else
+		
+		//remove the extension if exist
+		int lastDotActIndex = actionPath.lastIndexOf(aActionExtension);
+		if (lastDotActIndex != -1)
 		{
-			actionPath = actionPath.trim();
-			int lastSlashIndex = actionPath.lastIndexOf("/");
-			if (lastSlashIndex != -1 && actionPath.length() != lastSlashIndex + 1 )
-			{
-				actionPath = actionPath.substring(lastSlashIndex + 1);
-			}
+			actionPath = actionPath.substring(0, lastDotActIndex);
+		}
+		
+		actionPath = actionPath.trim();
+		int lastSlashIndex = actionPath.lastIndexOf("/");
+		if (lastSlashIndex != -1 && actionPath.length() != lastSlashIndex + 1 )
+		{
+			actionPath = actionPath.substring(lastSlashIndex + 1);
 		}
 		
 		//if we could not parse a proper actionPath
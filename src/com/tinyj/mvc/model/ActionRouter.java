@@ -0,0 +1,379 @@
+package com.tinyj.mvc.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * a trie based router, matching a request URI onto the action mapped to it.
+ * the router is built once out of the action mappings (whenever they change), and is then
+ * read only, so it can be used by any number of threads.
+ * 
+ * every edge in the trie is a single path segment. a route path may contain:
+ * <ul>
+ * <li>literal segments, for ex: <i>bla/foo</i></li>
+ * <li>path variables, matching exactly one segment, for ex: <i>orders/{id}/edit</i>. the captured 
+ * values are available through the RouteMatch (and the MVCContext)</li>
+ * <li>a <i>*</i> wildcard segment, matching exactly one segment</li>
+ * <li>a <i>**</i> wildcard segment, as the last segment only, matching the rest of the URI</li>
+ * </ul>
+ * 
+ * when more than one route can match, a literal segment takes precedence over a path variable,
+ * which takes precedence over a <i>*</i> wildcard, which takes precedence over a <i>**</i> wildcard.
+ * 
+ * matching walks the URI by index, without substrings. the captured variables are kept as 
+ * offsets in the RouteMatch, and the values are only extracted when asked for. a route without 
+ * path variables is matched into a RouteMatch built with the route (shared by all its requests), 
+ * so matching it does not allocate. a route with path variables is matched into a new RouteMatch,
+ * as the captured offsets are kept by the request for as long as it lives.
+ * 
+ * @author asaf.peeri
+ *
+ * @param <T> the type of the value mapped to every route
+ */
+public class ActionRouter<T>
+{
+	private static final String WILDCARD_SEGMENT = "*";
+	private static final String TAIL_WILDCARD_SEGMENT = "**";
+	
+	private Node<T> mRoot = new Node<T>();
+	private int mMaxVariableCount = 0;
+	
+	//the match the URI is walked with, reused by each thread (used only for routes with path variables)
+	private final ThreadLocal<RouteMatch<T>> mWalkMatch = new ThreadLocal<RouteMatch<T>>();
+	
+	
+	/**
+	 * adds a route to the router. if the same route already exists, its value is replaced
+	 * 
+	 * @param aPath the route path, relative to the web app (leading and trailing slashes are ignored)
+	 * @param aValue the value to map onto the route
+	 */
+	public void addRoute(String aPath, T aValue)
+	{
+		String[] segments = splitPath(aPath);
+		List<String> variableNames = new ArrayList<String>();
+		
+		Node<T> node = mRoot;
+		for (int i=0 ; i<segments.length ; ++i)
+		{
+			String segment = segments[i];
+			
+			if (TAIL_WILDCARD_SEGMENT.equals(segment))
+			{
+				if (i != segments.length - 1)
+				{
+					throw new IllegalArgumentException("'**' can only be used as the last segment of a route: " + aPath);
+				}
+				if (node.mTailWildcardChild == null)
+				{
+					node.mTailWildcardChild = new Node<T>();
+				}
+				node = node.mTailWildcardChild;
+			}
+			else if (WILDCARD_SEGMENT.equals(segment))
+			{
+				if (node.mWildcardChild == null)
+				{
+					node.mWildcardChild = new Node<T>();
+				}
+				node = node.mWildcardChild;
+			}
+			else if (segment.length() > 2 && segment.startsWith("{") && segment.endsWith("}"))
+			{
+				variableNames.add(segment.substring(1, segment.length() - 1));
+				if (node.mVariableChild == null)
+				{
+					node.mVariableChild = new Node<T>();
+				}
+				node = node.mVariableChild;
+			}
+			else
+			{
+				node = node.getOrAddLiteralChild(segment);
+			}
+		}
+		
+		node.mValue = aValue;
+		node.mVariableNames = variableNames.toArray(new String[variableNames.size()]);
+		node.mStaticMatch = node.mVariableNames.length == 0 ? new RouteMatch<T>(aValue) : null;
+		mMaxVariableCount = Math.max(mMaxVariableCount, node.mVariableNames.length);
+	}
+	
+	
+	/**
+	 * returns the maximal number of path variables in any of the routes. a RouteMatch 
+	 * used with this router should be able to hold that many variables
+	 * 
+	 * @return the maximal number of path variables in a route
+	 */
+	public int getMaxVariableCount()
+	{
+		return mMaxVariableCount;
+	}
+	
+	
+	/**
+	 * creates an empty RouteMatch, large enough to be used with this router
+	 * 
+	 * @return a new RouteMatch
+	 */
+	public RouteMatch<T> newRouteMatch()
+	{
+		return new RouteMatch<T>(mMaxVariableCount);
+	}
+	
+	
+	/**
+	 * matches the given region of the URI onto a route (see match(String, int, int, RouteMatch)).
+	 * 
+	 * the returned match of a route without path variables is shared by all the requests to
+	 * the route, and must not be changed.
+	 * 
+	 * @param aURI the request URI
+	 * @param aStart the index in the URI where the route path starts (after the context path)
+	 * @param aEnd the index in the URI where the route path ends (before the action extension)
+	 * 
+	 * @return the matched route, null if no route matches
+	 */
+	public RouteMatch<T> match(String aURI, int aStart, int aEnd)
+	{
+		if (mMaxVariableCount == 0)
+		{
+			//no route captures variables, so the URI is walked without a match to write them into
+			Node<T> matchedNode = matchRoute(aURI, aStart, aEnd, null);
+			return (matchedNode == null) ? null : matchedNode.mStaticMatch;
+		}
+		
+		RouteMatch<T> walkMatch = mWalkMatch.get();
+		if (walkMatch == null)
+		{
+			walkMatch = newRouteMatch();
+			mWalkMatch.set(walkMatch);
+		}
+		
+		Node<T> matchedNode = matchRoute(aURI, aStart, aEnd, walkMatch);
+		if (matchedNode == null)
+		{
+			return null;
+		}
+		if (matchedNode.mStaticMatch != null)
+		{
+			return matchedNode.mStaticMatch;
+		}
+		
+		RouteMatch<T> routeMatch = newRouteMatch();
+		routeMatch.copyVariableBounds(walkMatch, matchedNode.mVariableNames.length);
+		routeMatch.set(aURI, matchedNode.mValue, matchedNode.mVariableNames, matchedNode.mVariableNames.length);
+		return routeMatch;
+	}
+	
+	
+	/**
+	 * matches the given region of the URI onto a route. the full region is tried first,
+	 * and if it does not match, every shorter suffix of it starting on a segment boundary
+	 * is tried (so a request to <i>/folder/doAction</i> still reaches an action mapped to 
+	 * <i>doAction</i>).
+	 * 
+	 * @param aURI the request URI
+	 * @param aStart the index in the URI where the route path starts (after the context path)
+	 * @param aEnd the index in the URI where the route path ends (before the action extension)
+	 * @param aRouteMatch the match to fill in
+	 * 
+	 * @return true if a route was matched. in that case aRouteMatch holds the matched value
+	 */
+	public boolean match(String aURI, int aStart, int aEnd, RouteMatch<T> aRouteMatch)
+	{
+		Node<T> matchedNode = matchRoute(aURI, aStart, aEnd, aRouteMatch);
+		if (matchedNode == null)
+		{
+			aRouteMatch.clear();
+			return false;
+		}
+		
+		aRouteMatch.set(aURI, matchedNode.mValue, matchedNode.mVariableNames, matchedNode.mVariableNames.length);
+		return true;
+	}
+	
+	
+	/**
+	 * walks the given region of the URI (and its shorter suffixes) down the trie, writing the
+	 * bounds of the captured variables into the given match
+	 * 
+	 * @return the node of the matched route, null if no route matches
+	 */
+	protected Node<T> matchRoute(String aURI, int aStart, int aEnd, RouteMatch<T> aRouteMatch)
+	{
+		int pos = aStart;
+		while (pos < aEnd)
+		{
+			Node<T> matchedNode = matchNode(mRoot, aURI, pos, aEnd, 0, aRouteMatch);
+			if (matchedNode != null)
+			{
+				return matchedNode;
+			}
+			
+			//try again from the next segment
+			pos = aURI.indexOf('/', pos + 1);
+			if (pos == -1)
+			{
+				break;
+			}
+		}
+		
+		return null;
+	}
+	
+	
+	protected Node<T> matchNode(Node<T> aNode, String aURI, int aPos, int aEnd, int aVariableCount, RouteMatch<T> aRouteMatch)
+	{
+		//skip the slashes before the next segment
+		while (aPos < aEnd && aURI.charAt(aPos) == '/')
+		{
+			++aPos;
+		}
+		
+		if (aPos >= aEnd)
+		{
+			if (aNode.mValue != null)
+			{
+				return aNode;
+			}
+			if (aNode.mTailWildcardChild != null && aNode.mTailWildcardChild.mValue != null)
+			{
+				return aNode.mTailWildcardChild;
+			}
+			return null;
+		}
+		
+		int segmentEnd = aURI.indexOf('/', aPos);
+		if (segmentEnd == -1 || segmentEnd > aEnd)
+		{
+			segmentEnd = aEnd;
+		}
+		
+		Node<T> matchedNode = null;
+		Node<T> literalChild = aNode.getLiteralChild(aURI, aPos, segmentEnd);
+		if (literalChild != null && (matchedNode = matchNode(literalChild, aURI, segmentEnd, aEnd, aVariableCount, aRouteMatch)) != null)
+		{
+			return matchedNode;
+		}
+		
+		if (aNode.mVariableChild != null)
+		{
+			aRouteMatch.setVariableBounds(aVariableCount, aPos, segmentEnd);
+			if ((matchedNode = matchNode(aNode.mVariableChild, aURI, segmentEnd, aEnd, aVariableCount + 1, aRouteMatch)) != null)
+			{
+				return matchedNode;
+			}
+		}
+		
+		if (aNode.mWildcardChild != null && (matchedNode = matchNode(aNode.mWildcardChild, aURI, segmentEnd, aEnd, aVariableCount, aRouteMatch)) != null)
+		{
+			return matchedNode;
+		}
+		
+		if (aNode.mTailWildcardChild != null && aNode.mTailWildcardChild.mValue != null)
+		{
+			return aNode.mTailWildcardChild;
+		}
+		
+		return null;
+	}
+	
+	
+	protected static String[] splitPath(String aPath)
+	{
+		List<String> segments = new ArrayList<String>();
+		for (String segment : aPath.trim().split("/"))
+		{
+			if (!"".equals(segment))
+			{
+				segments.add(segment);
+			}
+		}
+		
+		return segments.toArray(new String[segments.size()]);
+	}
+	
+	
+	/**
+	 * computes the same hash code as String.hashCode() over the given region, without
+	 * creating a substring
+	 */
+	protected static int hashRegion(String aString, int aStart, int aEnd)
+	{
+		int hash = 0;
+		for (int i=aStart ; i<aEnd ; ++i)
+		{
+			hash = 31 * hash + aString.charAt(i);
+		}
+		
+		return hash;
+	}
+	
+	
+	
+	/**
+	 * a single node in the routing trie
+	 */
+	protected static class Node<T>
+	{
+		private String[] mLiteralSegments = new String[0];
+		private int[] mLiteralHashes = new int[0];
+		private Node<T>[] mLiteralChildren = newNodeArray(0);
+		private Node<T> mVariableChild;
+		private Node<T> mWildcardChild;
+		private Node<T> mTailWildcardChild;
+		
+		private T mValue;
+		private String[] mVariableNames;
+		private RouteMatch<T> mStaticMatch;
+		
+		
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		private static <T> Node<T>[] newNodeArray(int aSize)
+		{
+			return (Node<T>[])new Node[aSize];
+		}
+		
+		
+		protected Node<T> getOrAddLiteralChild(String aSegment)
+		{
+			Node<T> child = getLiteralChild(aSegment, 0, aSegment.length());
+			if (child != null)
+			{
+				return child;
+			}
+			
+			int size = mLiteralSegments.length;
+			mLiteralSegments = Arrays.copyOf(mLiteralSegments, size + 1);
+			mLiteralHashes = Arrays.copyOf(mLiteralHashes, size + 1);
+			mLiteralChildren = Arrays.copyOf(mLiteralChildren, size + 1);
+			
+			child = new Node<T>();
+			mLiteralSegments[size] = aSegment;
+			mLiteralHashes[size] = aSegment.hashCode();
+			mLiteralChildren[size] = child;
+			
+			return child;
+		}
+		
+		
+		protected Node<T> getLiteralChild(String aURI, int aStart, int aEnd)
+		{
+			int length = aEnd - aStart;
+			int hash = hashRegion(aURI, aStart, aEnd);
+			for (int i=0 ; i<mLiteralSegments.length ; ++i)
+			{
+				if (mLiteralHashes[i] == hash && mLiteralSegments[i].length() == length && aURI.regionMatches(aStart, mLiteralSegments[i], 0, length))
+				{
+					return mLiteralChildren[i];
+				}
+			}
+			
+			return null;
+		}
+	}
+}
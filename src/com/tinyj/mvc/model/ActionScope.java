@@ -0,0 +1,15 @@
+package com.tinyj.mvc.model;
+
+/**
+ * this enum defines 2 types of Action scopes: 
+ * request - a new Action instance is created for every request (the default)
+ * singleton - a single StatelessAction instance is created once, and reused by all requests
+ * 
+ * @author asaf.peeri
+ *
+ */
+public enum ActionScope
+{
+	request,
+	singleton;
+}
@@ -3,6 +3,7 @@ package com.tinyj.mvc.model;
 public class AjaxActionResponse extends ActionResponse 
 {
 	private String responseContentType;
+	private volatile byte[] responseBytes;
 	
 	
 	public AjaxActionResponse(Action aExecutedAction, String aResponseString, String aResponseContentType) 
@@ -16,5 +17,25 @@ public class AjaxActionResponse extends ActionResponse
 	{
 		return responseContentType;
 	}
+	
+	
+	/**
+	 * returns the encoded response, as written back to the caller. the response is encoded once,
+	 * so an action response shared by coalesced requests is not encoded for each of them
+	 * 
+	 * @return the encoded response
+	 */
+	public byte[] getResponseBytes()
+	{
+		byte[] bytes = responseBytes;
+		if (bytes == null)
+		{
+			String response = getResponse();
+			bytes = (response == null) ? new byte[0] : response.getBytes();
+			responseBytes = bytes;
+		}
+		
+		return bytes;
+	}
 
 }
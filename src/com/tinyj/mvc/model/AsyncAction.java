@@ -0,0 +1,135 @@
+package com.tinyj.mvc.model;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+import com.tinyj.mvc.controller.MVCContext;
+import com.tinyj.mvc.exception.ActionExecutionException;
+import com.tinyj.mvc.exception.HandleRequestException;
+import com.tinyj.mvc.exception.MVCExceptionCodes;
+import com.tinyj.mvc.exception.SessionExpiredException;
+
+
+/**
+ * A abstract class defining an asynchronous MVC action. instead of blocking on a slow backend,
+ * an async action returns a CompletableFuture of its action response. 
+ * 
+ * when the controller servlet supports async requests (asyncSupported is true in the web.xml), 
+ * the controllers start an AsyncContext and release the container thread, and the navigation 
+ * (or the ajax write back) is made when the future completes. otherwise, the controllers wait 
+ * for the future on the container thread.
+ * 
+ * the future may complete exceptionally with an ActionExecutionException (or any other 
+ * exception), in which case the error is mapped as configured in the &lt;async&gt; element of 
+ * the configuration.
+ * 
+ * users should extend this class and implement the <i>executeAsync(MVCContext)</i> method and
+ * a public (String, MVCContext) constructor calling the base constructor defined in this class.
+ * 
+ * @author asaf.peeri
+ *
+ */
+public abstract class AsyncAction extends Action
+{
+	
+	public AsyncAction(String aActionPath, MVCContext aMVCContext)
+	{
+		super(aActionPath, aMVCContext);
+	}
+	
+	
+	/**
+	 * starts the execution of the action for the request of the given MVCContext
+	 * 
+	 * @param aMVCContext the mvc context of the current request
+	 * 
+	 * @return the future action response
+	 */
+	public abstract CompletableFuture<ActionResponse> executeAsync(MVCContext aMVCContext) throws ActionExecutionException, SessionExpiredException;
+	
+	
+	/**
+	 * executes the action and waits for its response
+	 */
+	@Override
+	public final ActionResponse execute() throws ActionExecutionException, SessionExpiredException
+	{
+		return execute(getMVCContext());
+	}
+	
+	
+	/**
+	 * executes the action and waits for its response
+	 */
+	@Override
+	public final ActionResponse execute(MVCContext aMVCContext) throws ActionExecutionException, SessionExpiredException
+	{
+		return join(executeAsync(aMVCContext), getActionPath());
+	}
+	
+	
+	/**
+	 * waits for the given future action response, unwrapping the exception it failed with
+	 * 
+	 * @param aFutureResponse the future action response
+	 * @param aActionPath the path of the executed action, for the error message
+	 * 
+	 * @return the action response
+	 */
+	public static ActionResponse join(CompletableFuture<ActionResponse> aFutureResponse, String aActionPath)
+		throws ActionExecutionException, SessionExpiredException
+	{
+		try
+		{
+			return aFutureResponse.get();
+		}
+		catch (ExecutionException ee)
+		{
+			throw toActionExecutionException(ee.getCause(), aActionPath);
+		}
+		catch (InterruptedException ie)
+		{
+			Thread.currentThread().interrupt();
+			throw new ActionExecutionException("interrupted while waiting for async action: ", aActionPath, MVCExceptionCodes.MVC_ASYNC_ACTION_FAILED);
+		}
+	}
+	
+	
+	/**
+	 * converts the exception an async action failed with to an ActionExecutionException. an
+	 * ActionExecutionException is returned as is, and a SessionExpiredException is thrown
+	 * 
+	 * @param aThrowable the exception the async action failed with
+	 * @param aActionPath the path of the executed action, for the error message
+	 * 
+	 * @return the ActionExecutionException to throw
+	 */
+	public static ActionExecutionException toActionExecutionException(Throwable aThrowable, String aActionPath)
+		throws SessionExpiredException
+	{
+		Throwable cause = aThrowable;
+		while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null)
+		{
+			cause = cause.getCause();
+		}
+		
+		if (cause instanceof ActionExecutionException)
+		{
+			return (ActionExecutionException)cause;
+		}
+		else if (cause instanceof SessionExpiredException)
+		{
+			throw (SessionExpiredException)cause;
+		}
+		else if (cause instanceof HandleRequestException)
+		{
+			HandleRequestException hre = (HandleRequestException)cause;
+			return new ActionExecutionException(hre.getMessage(), hre.mErrorCode);
+		}
+		
+		ActionExecutionException aee = new ActionExecutionException("async action failed: " + aActionPath + ": " + cause, MVCExceptionCodes.MVC_ASYNC_ACTION_FAILED);
+		aee.initCause(cause);
+		return aee;
+	}
+}
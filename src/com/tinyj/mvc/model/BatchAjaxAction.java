@@ -0,0 +1,55 @@
+package com.tinyj.mvc.model;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.tinyj.mvc.controller.MVCContext;
+import com.tinyj.mvc.exception.ActionExecutionException;
+import com.tinyj.mvc.exception.SessionExpiredException;
+
+
+/**
+ * A abstract class defining an ajax action which executes the requests of many callers 
+ * together, as a batch (like a lookup action making a single backend round trip for the keys
+ * of all its callers).
+ * 
+ * when the ajax action is configured with batch-window-ms, concurrent requests arriving within
+ * the window (up to batch-max-size of them) are handed to <i>executeBatch()</i> together, and 
+ * each caller gets its own ajax action response back (see MicroBatcher). otherwise, each 
+ * request is executed as a batch of its own.
+ * 
+ * a batch ajax action is stateless, as it executes the requests of many callers at once.
+ * users should extend this class and implement the <i>executeBatch(List)</i> method and a 
+ * public (String, MVCContext) constructor calling the base constructor defined in this class.
+ * 
+ * @author asaf.peeri
+ *
+ */
+public abstract class BatchAjaxAction extends StatelessAction
+{
+	
+	public BatchAjaxAction(String aActionPath, MVCContext aMVCContext)
+	{
+		super(aActionPath, aMVCContext);
+	}
+	
+	
+	/**
+	 * executes the requests of the given MVCContexts together
+	 * 
+	 * @param aMVCContexts the mvc contexts of the batched requests
+	 * 
+	 * @return the ajax action responses of the requests, in the order of their mvc contexts
+	 */
+	public abstract List<AjaxActionResponse> executeBatch(List<MVCContext> aMVCContexts) throws ActionExecutionException, SessionExpiredException;
+	
+	
+	/**
+	 * executes a single request, as a batch of its own
+	 */
+	@Override
+	public final ActionResponse execute(MVCContext aMVCContext) throws ActionExecutionException, SessionExpiredException
+	{
+		return executeBatch(Collections.singletonList(aMVCContext)).get(0);
+	}
+}
@@ -0,0 +1,304 @@
+package com.tinyj.mvc.model;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.tinyj.mvc.controller.MVCContext;
+import com.tinyj.mvc.exception.ActionExecutionException;
+import com.tinyj.mvc.exception.MVCExceptionCodes;
+
+
+/**
+ * a DataLoader removes the N+1 calls of a request, made when an action (or the JSP it forwards
+ * to) fetches the same kind of entities one key at a time. it is request scoped, and is
+ * registered by <i>MVCContext.registerDataLoader()</i>, which also sets it as a request 
+ * attribute, so JSPs can read it by its name.
+ * 
+ * the keys requested by <i>loadLater()</i> are queued until the next <i>dispatch()</i> (or
+ * until a value is needed by <i>load()</i>), and are then loaded together, by a single call to
+ * the batch load function. a key is loaded once per request: the loaded values are memoised,
+ * and a key requested again is not queued again. the keys still queued when the action 
+ * completes are dispatched before the request is forwarded, so the action should queue the 
+ * keys its JSP reads (a key first read by the JSP is loaded on its own):
+ * <pre>
+ *     DataLoader&lt;Long, User&gt; users = aMVCContext.registerDataLoader("users", userService::getUsers);
+ *     List&lt;User&gt; authors = users.loadMany(authorIds);   //a single batch call
+ *     for (Order order : orders)
+ *         users.loadLater(order.getUserId());              //loaded together before the forward
+ * </pre>
+ * and in the JSP:
+ * <pre>
+ *     ${users.values[order.userId].name}
+ * </pre>
+ * 
+ * @author asaf.peeri
+ *
+ */
+public class DataLoader<K, V>
+{
+	private final String mName;
+	private final IBatchLoadFunction<K, V> mBatchLoadFunction;
+	private final int mMaxBatchSize;
+	private final MVCContext mMVCContext;
+	
+	//the loaded (or queued) values of this request, by key
+	private final ConcurrentHashMap<K, CompletableFuture<V>> mValues = new ConcurrentHashMap<K, CompletableFuture<V>>();
+	
+	//the keys queued for the next batch
+	private final ReentrantLock mQueueLock = new ReentrantLock();
+	private List<K> mQueuedKeys = new ArrayList<K>();
+	
+	private final Map<K, V> mValuesView = new ValuesView();
+	
+	
+	/**
+	 * @param aName the name of the loader, under which its batch times are recorded on the MVCContext
+	 * @param aBatchLoadFunction the function loading a batch of keys
+	 * @param aMaxBatchSize the maximal number of keys loaded in a single call, 0 for unlimited
+	 * @param aMVCContext the mvc context of the current request
+	 */
+	public DataLoader(String aName, IBatchLoadFunction<K, V> aBatchLoadFunction, int aMaxBatchSize, MVCContext aMVCContext)
+	{
+		mName = aName;
+		mBatchLoadFunction = aBatchLoadFunction;
+		mMaxBatchSize = aMaxBatchSize;
+		mMVCContext = aMVCContext;
+	}
+	
+	
+	public String getName()
+	{
+		return mName;
+	}
+	
+	
+	/**
+	 * requests the value of the given key, without loading it yet. the key is loaded by the
+	 * next <i>dispatch()</i>, along with all the other queued keys
+	 * 
+	 * @param aKey the key to load
+	 * 
+	 * @return the future value of the key
+	 */
+	public CompletableFuture<V> loadLater(K aKey)
+	{
+		CompletableFuture<V> futureValue = mValues.get(aKey);
+		if (futureValue != null)
+		{
+			return futureValue;
+		}
+		
+		futureValue = new CompletableFuture<V>();
+		CompletableFuture<V> existingValue = mValues.putIfAbsent(aKey, futureValue);
+		if (existingValue != null)
+		{
+			return existingValue;
+		}
+		
+		mQueueLock.lock();
+		try
+		{
+			mQueuedKeys.add(aKey);
+		}
+		finally
+		{
+			mQueueLock.unlock();
+		}
+		
+		return futureValue;
+	}
+	
+	
+	/**
+	 * loads the value of the given key, along with all the keys queued so far
+	 * 
+	 * @param aKey the key to load
+	 * 
+	 * @return the value of the key, or null if there is none
+	 * 
+	 * @throws ActionExecutionException when the batch load function fails
+	 */
+	public V load(K aKey)
+		throws ActionExecutionException
+	{
+		CompletableFuture<V> futureValue = loadLater(aKey);
+		if (!futureValue.isDone())
+		{
+			dispatch();
+		}
+		
+		return getValue(futureValue);
+	}
+	
+	
+	/**
+	 * loads the values of the given keys, along with all the keys queued so far
+	 * 
+	 * @param aKeys the keys to load
+	 * 
+	 * @return the values of the keys, in the order of the keys
+	 * 
+	 * @throws ActionExecutionException when the batch load function fails
+	 */
+	public List<V> loadMany(Collection<K> aKeys)
+		throws ActionExecutionException
+	{
+		List<CompletableFuture<V>> futureValues = new ArrayList<CompletableFuture<V>>(aKeys.size());
+		for (K key : aKeys)
+		{
+			futureValues.add(loadLater(key));
+		}
+		
+		dispatch();
+		
+		List<V> values = new ArrayList<V>(futureValues.size());
+		for (CompletableFuture<V> futureValue : futureValues)
+		{
+			values.add(getValue(futureValue));
+		}
+		
+		return values;
+	}
+	
+	
+	/**
+	 * loads all the queued keys, by as few calls to the batch load function as the max batch
+	 * size allows
+	 */
+	public void dispatch()
+	{
+		List<K> keys = null;
+		mQueueLock.lock();
+		try
+		{
+			if (mQueuedKeys.isEmpty())
+			{
+				return;
+			}
+			
+			keys = mQueuedKeys;
+			mQueuedKeys = new ArrayList<K>();
+		}
+		finally
+		{
+			mQueueLock.unlock();
+		}
+		
+		int batchSize = (mMaxBatchSize > 0) ? mMaxBatchSize : keys.size();
+		for (int i=0 ; i<keys.size() ; i+=batchSize)
+		{
+			loadBatch(keys.subList(i, Math.min(i + batchSize, keys.size())));
+		}
+	}
+	
+	
+	protected void loadBatch(List<K> aKeys)
+	{
+		long startNanos = System.nanoTime();
+		try
+		{
+			Map<K, V> loadedValues = mBatchLoadFunction.loadBatch(Collections.unmodifiableList(aKeys));
+			for (K key : aKeys)
+			{
+				mValues.get(key).complete((loadedValues == null) ? null : loadedValues.get(key));
+			}
+		}
+		catch (Throwable t)
+		{
+			//a failed key is not memoised, so it is loaded again when requested again
+			for (K key : aKeys)
+			{
+				CompletableFuture<V> futureValue = mValues.remove(key);
+				futureValue.completeExceptionally(t);
+			}
+		}
+		finally
+		{
+			mMVCContext.recordTiming("dataLoader:" + mName, System.nanoTime() - startNanos);
+		}
+	}
+	
+	
+	protected V getValue(CompletableFuture<V> aFutureValue)
+		throws ActionExecutionException
+	{
+		try
+		{
+			return aFutureValue.join();
+		}
+		catch (RuntimeException re)
+		{
+			Throwable cause = (re.getCause() == null) ? re : re.getCause();
+			ActionExecutionException aee = new ActionExecutionException("data loader " + mName + " could not load a batch: " + cause, MVCExceptionCodes.MVC_DATA_LOADER_BATCH_FAILED);
+			aee.initCause(cause);
+			throw aee;
+		}
+	}
+	
+	
+	/**
+	 * returns the values of this loader as a map, for JSPs: getting a key from it loads the
+	 * key (along with all the keys queued so far). iterating over it gives the keys loaded so far
+	 * 
+	 * @return the values of this loader as a map
+	 */
+	public Map<K, V> getValues()
+	{
+		return mValuesView;
+	}
+	
+	
+	
+	/**
+	 * the map view of the loader, for JSPs
+	 */
+	protected class ValuesView extends AbstractMap<K, V>
+	{
+		@SuppressWarnings("unchecked")
+		@Override
+		public V get(Object aKey)
+		{
+			try
+			{
+				return load((K)aKey);
+			}
+			catch (ActionExecutionException aee)
+			{
+				throw new IllegalStateException(aee.getMessage(), aee.getCause());
+			}
+		}
+		
+		
+		@Override
+		public boolean containsKey(Object aKey)
+		{
+			return get(aKey) != null;
+		}
+		
+		
+		@Override
+		public Set<Map.Entry<K, V>> entrySet()
+		{
+			Map<K, V> loadedValues = new HashMap<K, V>();
+			for (Map.Entry<K, CompletableFuture<V>> entry : mValues.entrySet())
+			{
+				CompletableFuture<V> futureValue = entry.getValue();
+				if (futureValue.isDone() && !futureValue.isCompletedExceptionally())
+				{
+					loadedValues.put(entry.getKey(), futureValue.join());
+				}
+			}
+			
+			return loadedValues.entrySet();
+		}
+	}
+}
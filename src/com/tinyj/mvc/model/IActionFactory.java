@@ -0,0 +1,18 @@
+package com.tinyj.mvc.model;
+
+import com.tinyj.mvc.controller.MVCContext;
+import com.tinyj.mvc.exception.ResolveActionException;
+
+
+/**
+ * an interface defining how an Action is instantiated for a request.
+ * a factory is resolved once per action descriptor when the configuration is loaded
+ * 
+ * @author asaf.peeri
+ *
+ */
+public interface IActionFactory
+{
+	public Action createAction(String aActionPath, MVCContext aMVCContext)
+		throws ResolveActionException;
+}
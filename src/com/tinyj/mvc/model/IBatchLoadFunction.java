@@ -0,0 +1,25 @@
+package com.tinyj.mvc.model;
+
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * an interface defining how a DataLoader loads a batch of entities in a single call (like a
+ * single "where id in (...)" query, or a single remote call)
+ * 
+ * @author asaf.peeri
+ *
+ */
+public interface IBatchLoadFunction<K, V>
+{
+	/**
+	 * loads the entities of the given keys
+	 * 
+	 * @param aKeys the distinct keys to load
+	 * 
+	 * @return the loaded entities by their keys. a key missing from the map is loaded as null
+	 */
+	public Map<K, V> loadBatch(List<K> aKeys)
+		throws Exception;
+}
@@ -3,6 +3,7 @@ package com.tinyj.mvc.model;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.servlet.http.HttpSession;
 
@@ -26,14 +27,25 @@ import com.tinyj.mvc.exception.SessionExpiredException;
  */
 public class JavaBeanManager
 {
-	protected static JavaBeanManager sInstance;
+	protected static volatile JavaBeanManager sInstance;
+	private static final ReentrantLock sInstanceLock = new ReentrantLock();
+	private static final int BEAN_LOCK_STRIPES = 64;
 	
 	private Map<String, JavaBeanDescriptor> mJavaBeansInfoMap;
 	
+	//striped locks guarding the creation of application and session scoped javaBeans. these are
+	//locks rather than monitors, so virtual threads waiting on them do not pin their carrier threads
+	private final ReentrantLock[] mBeanLocks;
+	
 	
 	protected JavaBeanManager()
 	{
 		mJavaBeansInfoMap = new Hashtable<String, JavaBeanDescriptor>();
+		mBeanLocks = new ReentrantLock[BEAN_LOCK_STRIPES];
+		for (int i=0 ; i<mBeanLocks.length ; ++i)
+		{
+			mBeanLocks[i] = new ReentrantLock();
+		}
 		init();
 	}
 	
@@ -46,7 +58,9 @@ public class JavaBeanManager
 		}
 		else
 		{
-			synchronized (JavaBeanManager.class)
+			//a lock rather than a monitor, so a virtual thread calling it does not pin its carrier thread
+			sInstanceLock.lock();
+			try
 			{
 				if (sInstance != null)
 				{
@@ -58,6 +72,10 @@ public class JavaBeanManager
 					return sInstance;
 				}
 			}
+			finally
+			{
+				sInstanceLock.unlock();
+			}
 		}
 	}
 	
@@ -185,6 +203,15 @@ public class JavaBeanManager
 	
 	
 	
+	/**
+	 * returns the lock stripe of the given hash
+	 */
+	protected ReentrantLock getBeanLock(int aHash)
+	{
+		return mBeanLocks[(aHash ^ (aHash >>> 16)) & (BEAN_LOCK_STRIPES - 1)];
+	}
+	
+	
 	/**
 	 * returns a javaBean instance according to its given name.
 	 * all the javaBeans information is held by the JavaBeanManager singleton. this method
@@ -222,23 +249,52 @@ public class JavaBeanManager
 			
 			if (javaBeanObj == null)
 			{
-				//the javaBean has to be created and hanged
-				javaBeanObj = instantiateClass(descriptor.getFQNClassName());
-				
-				aMVCContext.checkAndGetHttpSession().getServletContext().setAttribute(aJavaBeanName, javaBeanObj);
-				//aMVCContext.getOriginalRequest().getSession(true).getServletContext().setAttribute(aJavaBeanName, javaBeanObj);
+				//concurrent requests must not each create their own instance of the javaBean
+				ReentrantLock beanLock = getBeanLock(aJavaBeanName.hashCode());
+				beanLock.lock();
+				try
+				{
+					javaBeanObj = aMVCContext.checkAndGetHttpSession().getServletContext().getAttribute(aJavaBeanName);
+					if (javaBeanObj == null)
+					{
+						//the javaBean has to be created and hanged
+						javaBeanObj = instantiateClass(descriptor.getFQNClassName());
+						
+						aMVCContext.checkAndGetHttpSession().getServletContext().setAttribute(aJavaBeanName, javaBeanObj);
+						//aMVCContext.getOriginalRequest().getSession(true).getServletContext().setAttribute(aJavaBeanName, javaBeanObj);
+					}
+				}
+				finally
+				{
+					beanLock.unlock();
+				}
 			}
 		}
 		else if (descriptor.getScope().equals(JavaBeanScope.session))
 		{
-			javaBeanObj = aMVCContext.checkAndGetHttpSession().getAttribute(aJavaBeanName);
+			HttpSession httpSession = aMVCContext.checkAndGetHttpSession();
+			javaBeanObj = httpSession.getAttribute(aJavaBeanName);
 			//javaBeanObj = aMVCContext.getOriginalRequest().getSession(true).getAttribute(aJavaBeanName);
 			if (javaBeanObj == null)
 			{
-				//the javaBean has to be created and hanged
-				javaBeanObj = instantiateClass(descriptor.getFQNClassName());
-				aMVCContext.checkAndGetHttpSession().setAttribute(aJavaBeanName, javaBeanObj);
-				//aMVCContext.getOriginalRequest().getSession(true).setAttribute(aJavaBeanName, javaBeanObj);
+				//concurrent requests of the same session must not each create their own instance of the javaBean
+				ReentrantLock beanLock = getBeanLock(31 * httpSession.getId().hashCode() + aJavaBeanName.hashCode());
+				beanLock.lock();
+				try
+				{
+					javaBeanObj = httpSession.getAttribute(aJavaBeanName);
+					if (javaBeanObj == null)
+					{
+						//the javaBean has to be created and hanged
+						javaBeanObj = instantiateClass(descriptor.getFQNClassName());
+						httpSession.setAttribute(aJavaBeanName, javaBeanObj);
+						//aMVCContext.getOriginalRequest().getSession(true).setAttribute(aJavaBeanName, javaBeanObj);
+					}
+				}
+				finally
+				{
+					beanLock.unlock();
+				}
 			}
 		}
 		else if (descriptor.getScope().equals(JavaBeanScope.request))
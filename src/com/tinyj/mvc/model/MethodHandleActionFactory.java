@@ -0,0 +1,111 @@
+package com.tinyj.mvc.model;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Modifier;
+
+import com.tinyj.mvc.controller.MVCContext;
+import com.tinyj.mvc.exception.MVCExceptionCodes;
+import com.tinyj.mvc.exception.ResolveActionException;
+
+
+/**
+ * an action factory which resolves the (String, MVCContext) constructor of the action type 
+ * only once, into a MethodHandle. creating an action is then a direct invocation of the 
+ * handle, without Class.forName or reflective constructor lookups on every request.
+ * 
+ * since the resolving is done upon configuration load, a bad action type fails the 
+ * initialization rather than the first request to the action.
+ * 
+ * @author asaf.peeri
+ *
+ */
+public class MethodHandleActionFactory implements IActionFactory
+{
+	private static final MethodType ACTION_CONSTRUCTOR_TYPE = MethodType.methodType(Action.class, String.class, MVCContext.class);
+	
+	private final MethodHandle mConstructorHandle;
+	private final String mType;
+	
+	
+	protected MethodHandleActionFactory(MethodHandle aConstructorHandle, String aType)
+	{
+		mConstructorHandle = aConstructorHandle;
+		mType = aType;
+	}
+	
+	
+	/**
+	 * resolves the action type into a factory
+	 * 
+	 * @param aActionPath the action path (used for error messages)
+	 * @param aType the fully qualified class name of the action
+	 * 
+	 * @return a factory instantiating the given action type
+	 * 
+	 * @throws ResolveActionException when the type cannot be found, is abstract or has no proper constructor
+	 */
+	public static MethodHandleActionFactory forType(String aActionPath, String aType)
+		throws ResolveActionException
+	{
+		try
+		{
+			Class<?> actionClass = Class.forName(aType);
+			if (!Action.class.isAssignableFrom(actionClass))
+			{
+				throw new ResolveActionException("action could not be instantiated. given action is not an instance of com.tinyj.mvc.model.Action: " + aActionPath + "; " + aType, MVCExceptionCodes.MVC_ACTION_IS_NOT_INSTANCE_OF_MVC_ACTION_CLASS);
+			}
+			
+			//the constructor of an abstract class is found, but can't be invoked
+			if (Modifier.isAbstract(actionClass.getModifiers()))
+			{
+				throw new ResolveActionException("action could not be instantiated. given action type is abstract: " + aActionPath + "; " + aType, MVCExceptionCodes.MVC_ACTION_CANT_BE_INSTANTIATED);
+			}
+			
+			MethodHandle constructorHandle = MethodHandles.publicLookup().findConstructor(actionClass, MethodType.methodType(void.class, String.class, MVCContext.class));
+			
+			return new MethodHandleActionFactory(constructorHandle.asType(ACTION_CONSTRUCTOR_TYPE), aType);
+		}
+		catch(ClassNotFoundException cnfe)
+		{
+			throw new ResolveActionException("action could not be instantiated. type cannot be found: " + aActionPath + "; " + aType, MVCExceptionCodes.MVC_ACTION_TYPE_CLASS_CANT_BE_FOUND);
+		}
+		catch (SecurityException e)
+		{
+			throw new ResolveActionException("action could not be instantiated. constructor cannot be accessed: " + aActionPath + "; " + aType, MVCExceptionCodes.MVC_ACTION_PROPER_CONSTRUCTOR_CANT_BE_ACCESSED);
+		}
+		catch (NoSuchMethodException e)
+		{
+			throw new ResolveActionException("action could not be instantiated. constructor cannot be found: " + aActionPath + "; " + aType, MVCExceptionCodes.MVC_ACTION_PROPER_CONSTRUCTOR_CANT_BE_FOUND);
+		}
+		catch (IllegalAccessException e)
+		{
+			throw new ResolveActionException("action could not be instantiated. constructor cannot be accessed: " + aActionPath + "; " + aType, MVCExceptionCodes.MVC_ACTION_PROPER_CONSTRUCTOR_CANT_BE_ACCESSED);
+		}
+	}
+	
+	
+	public Action createAction(String aActionPath, MVCContext aMVCContext)
+		throws ResolveActionException
+	{
+		try
+		{
+			return (Action)mConstructorHandle.invokeExact(aActionPath, aMVCContext);
+		}
+		catch (Exception e)
+		{
+			throw new ResolveActionException("action could not be instantiated. exception occured: " + aActionPath + "; " + mType + ": " + e.toString() , MVCExceptionCodes.MVC_ACTION_CONSTRUCTOR_INVOCATION_EXCEPTION);
+		}
+		catch (Error e)
+		{
+			//errors (like an OutOfMemoryError) are not a failure to resolve the action
+			throw e;
+		}
+		catch (Throwable t)
+		{
+			//invokeExact declares Throwable, but the constructor throws only exceptions and errors
+			throw new ResolveActionException("action could not be instantiated. exception occured: " + aActionPath + "; " + mType + ": " + t.toString() , MVCExceptionCodes.MVC_ACTION_CONSTRUCTOR_INVOCATION_EXCEPTION);
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package com.tinyj.mvc.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * the result of matching a request URI with the ActionRouter. holds the matched value
+ * (the action descriptor) and the offsets of the captured path variables in the URI.
+ * the path variable values are only extracted from the URI when they are asked for.
+ * 
+ * @author asaf.peeri
+ *
+ * @param <T> the type of the matched value
+ */
+public class RouteMatch<T>
+{
+	private static final int[] NO_VARIABLE_BOUNDS = new int[0];
+	
+	private String mURI;
+	private T mValue;
+	private String[] mVariableNames;
+	private int mVariableCount;
+	private int[] mVariableBounds;
+	
+	
+	public RouteMatch(int aMaxVariableCount)
+	{
+		mVariableBounds = aMaxVariableCount == 0 ? NO_VARIABLE_BOUNDS : new int[aMaxVariableCount * 2];
+	}
+	
+	
+	/**
+	 * creates a route matched without a URI (like the route of a chained action), which has no
+	 * path variables
+	 * 
+	 * @param aValue the matched value
+	 */
+	public RouteMatch(T aValue)
+	{
+		this(0);
+		set(null, aValue, null, 0);
+	}
+	
+	
+	protected void setVariableBounds(int aVariableIndex, int aStart, int aEnd)
+	{
+		mVariableBounds[aVariableIndex * 2] = aStart;
+		mVariableBounds[aVariableIndex * 2 + 1] = aEnd;
+	}
+	
+	
+	protected void copyVariableBounds(RouteMatch<T> aRouteMatch, int aVariableCount)
+	{
+		System.arraycopy(aRouteMatch.mVariableBounds, 0, mVariableBounds, 0, aVariableCount * 2);
+	}
+	
+	
+	protected void set(String aURI, T aValue, String[] aVariableNames, int aVariableCount)
+	{
+		mURI = aURI;
+		mValue = aValue;
+		mVariableNames = aVariableNames;
+		mVariableCount = aVariableCount;
+	}
+	
+	
+	protected void clear()
+	{
+		set(null, null, null, 0);
+	}
+	
+	
+	/**
+	 * returns the value of the matched route
+	 * 
+	 * @return the matched value, null if nothing was matched
+	 */
+	public T getValue()
+	{
+		return mValue;
+	}
+	
+	
+	/**
+	 * returns the value of a path variable (a <i>{name}</i> segment in the route)
+	 * 
+	 * @param aVariableName the name of the path variable
+	 * 
+	 * @return the value captured from the URI (as it appears in the URI, not decoded), null if the
+	 * 			route has no such variable
+	 */
+	public String getPathVariable(String aVariableName)
+	{
+		for (int i=0 ; i<mVariableCount ; ++i)
+		{
+			if (mVariableNames[i].equals(aVariableName))
+			{
+				return mURI.substring(mVariableBounds[i * 2], mVariableBounds[i * 2 + 1]);
+			}
+		}
+		
+		return null;
+	}
+	
+	
+	/**
+	 * returns all the path variables captured from the URI
+	 * 
+	 * @return a Map of path variable names to their values
+	 */
+	public Map<String, String> getPathVariables()
+	{
+		Map<String, String> pathVariables = new HashMap<String, String>();
+		for (int i=0 ; i<mVariableCount ; ++i)
+		{
+			pathVariables.put(mVariableNames[i], mURI.substring(mVariableBounds[i * 2], mVariableBounds[i * 2 + 1]));
+		}
+		
+		return pathVariables;
+	}
+}
@@ -0,0 +1,47 @@
+package com.tinyj.mvc.model;
+
+import com.tinyj.mvc.controller.MVCContext;
+import com.tinyj.mvc.exception.ActionExecutionException;
+import com.tinyj.mvc.exception.MVCExceptionCodes;
+import com.tinyj.mvc.exception.SessionExpiredException;
+
+
+/**
+ * A abstract class defining a stateless MVC action. unlike an Action, a stateless action
+ * does not hold the MVCContext of a request, but gets it as an argument of the 
+ * <i>execute(MVCContext)</i> method.
+ * 
+ * a stateless action can be defined with scope="singleton" in the configuration, in which
+ * case a single instance is created upon configuration load (with a null MVCContext), and is 
+ * reused by all the requests to the action, concurrently. therefore, a singleton action must 
+ * be thread safe. it may keep expensive caches and prepared resources in its fields, but no
+ * per request state.
+ * 
+ * users should extend this class and implement the <i>execute(MVCContext)</i> method and a 
+ * public (String, MVCContext) constructor calling the base constructor defined in this class.
+ * 
+ * @author asaf.peeri
+ *
+ */
+public abstract class StatelessAction extends Action
+{
+	
+	public StatelessAction(String aActionPath, MVCContext aMVCContext)
+	{
+		super(aActionPath, aMVCContext);
+	}
+	
+	
+	/**
+	 * a stateless action can only be executed with the MVCContext of the request
+	 */
+	@Override
+	public final ActionResponse execute() throws ActionExecutionException, SessionExpiredException
+	{
+		throw new ActionExecutionException("stateless action must be executed with the MVCContext of the request: " + getActionPath(), MVCExceptionCodes.MVC_STATELESS_ACTION_EXECUTED_WITHOUT_CONTEXT);
+	}
+	
+	
+	@Override
+	public abstract ActionResponse execute(MVCContext aMVCContext) throws ActionExecutionException, SessionExpiredException;
+}